@@ -0,0 +1,239 @@
+package com.dmdev.audit;
+
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.service.SubscriptionListener;
+import com.dmdev.service.SubscriptionOperation;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Append-only audit trail of subscription transitions, written to memory-mapped segment files.
+ * <p>
+ * Appends are lock-free: a writer reserves its slot with one atomic add and fills it with
+ * plain memory writes, so the calling thread never does I/O. A background thread forces
+ * dirty segments to disk every {@code flushInterval} (group commit); records appended since
+ * the last flush can be lost on a machine crash, but not on a process crash. When a segment
+ * is full the next one is created, named {@code audit-<index>.log}. A full segment is forced
+ * once more after the writers still filling slots in it have finished.
+ * <p>
+ * As a {@link SubscriptionListener} the log never fails the transition it records: the
+ * transition is already committed, so a record that cannot be appended, e.g. after
+ * {@link #close()}, is counted in {@link #getDroppedRecords()} instead.
+ */
+public class AuditLog implements SubscriptionListener, AutoCloseable {
+
+    static final String SEGMENT_PREFIX = "audit-";
+    static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Clock clock;
+    private final ScheduledExecutorService flusher;
+    private final ConcurrentLinkedQueue<Segment> retiredSegments = new ConcurrentLinkedQueue<>();
+    private final LongAdder appendedRecords = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder droppedRecords = new LongAdder();
+    private volatile Segment currentSegment;
+    private volatile boolean closed;
+
+    public AuditLog(Path directory, int recordsPerSegment, Clock clock, Duration flushInterval) {
+        if (recordsPerSegment <= 0) {
+            throw new IllegalArgumentException("recordsPerSegment must be positive");
+        }
+        this.directory = directory;
+        this.segmentSize = Math.multiplyExact(recordsPerSegment, AuditRecordLayout.RECORD_SIZE);
+        this.clock = clock;
+        try {
+            Files.createDirectories(directory);
+            this.currentSegment = openSegment(nextSegmentIndex());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "audit-log-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onTransition(SubscriptionOperation operation, Status previousStatus, Subscription subscription) {
+        try {
+            append(operation, previousStatus, subscription);
+        } catch (RuntimeException e) {
+            droppedRecords.increment();
+        }
+    }
+
+    public void append(SubscriptionOperation operation, Status oldStatus, Subscription subscription) {
+        if (closed) {
+            throw new IllegalStateException("Audit log is closed");
+        }
+        var timestamp = clock.instant();
+        while (true) {
+            var segment = currentSegment;
+            segment.writers.incrementAndGet();
+            try {
+                int offset = segment.position.getAndAdd(AuditRecordLayout.RECORD_SIZE);
+                if (offset + AuditRecordLayout.RECORD_SIZE <= segmentSize) {
+                    AuditRecordLayout.write(segment.buffer, offset, operation, subscription.getId(), subscription.getUserId(),
+                            oldStatus, subscription.getStatus(), subscription.getProvider(), timestamp);
+                    appendedRecords.increment();
+                    return;
+                }
+            } finally {
+                segment.writers.decrementAndGet();
+            }
+            roll(segment);
+        }
+    }
+
+    /**
+     * Forces every segment written since the previous flush to disk. A full segment that
+     * still has writers copying into it is forced now and again by a later flush, once they
+     * are done.
+     */
+    public void flush() {
+        flush(false);
+    }
+
+    public long getAppendedRecords() {
+        return appendedRecords.sum();
+    }
+
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    /**
+     * Transitions that could not be recorded, e.g. because the log was already closed.
+     */
+    public long getDroppedRecords() {
+        return droppedRecords.sum();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush(true);
+    }
+
+    static List<Path> listSegments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * @param awaitWriters wait for the writers still copying into a segment instead of
+     *                     leaving it to the next flush; only {@link #close()} waits, as
+     *                     appends stop there
+     */
+    private void flush(boolean awaitWriters) {
+        List<Segment> busy = new ArrayList<>();
+        Segment retired;
+        while ((retired = retiredSegments.poll()) != null) {
+            if (awaitWriters) {
+                awaitWriters(retired);
+            } else if (retired.writers.get() > 0) {
+                busy.add(retired);
+            }
+            retired.buffer.force();
+        }
+        retiredSegments.addAll(busy);
+        var current = currentSegment;
+        if (awaitWriters) {
+            awaitWriters(current);
+        }
+        current.buffer.force();
+        flushes.increment();
+    }
+
+    private static void awaitWriters(Segment segment) {
+        while (segment.writers.get() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private synchronized void roll(Segment full) {
+        if (currentSegment != full) {
+            return;
+        }
+        try {
+            currentSegment = openSegment(full.index + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        retiredSegments.add(full);
+    }
+
+    private long nextSegmentIndex() throws IOException {
+        var segments = listSegments(directory);
+        if (segments.isEmpty()) {
+            return 0;
+        }
+        var lastName = segments.get(segments.size() - 1).getFileName().toString();
+        return Long.parseLong(lastName.substring(SEGMENT_PREFIX.length(), lastName.length() - SEGMENT_SUFFIX.length())) + 1;
+    }
+
+    private Segment openSegment(long index) throws IOException {
+        var file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        try (var randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+            randomAccessFile.setLength(segmentSize);
+            var buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            return new Segment(index, buffer);
+        }
+    }
+
+    private static final class Segment {
+        private final long index;
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger position = new AtomicInteger();
+        /**
+         * Appends between reserving a slot in this segment and finishing the copy into it.
+         */
+        private final AtomicInteger writers = new AtomicInteger();
+
+        private Segment(long index, MappedByteBuffer buffer) {
+            this.index = index;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.dmdev.audit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Replays an {@link AuditLog} directory segment by segment. Within a segment, records come
+ * in slot order; slots that were reserved but never completed are skipped.
+ * <p>
+ * Can be run from the command line to dump a log: {@code AuditLogReader <directory>}.
+ */
+public class AuditLogReader implements Iterable<AuditRecord> {
+
+    private final Path directory;
+
+    public AuditLogReader(Path directory) {
+        this.directory = directory;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: AuditLogReader <directory>");
+            System.exit(1);
+        }
+        for (AuditRecord auditRecord : new AuditLogReader(Paths.get(args[0]))) {
+            System.out.println(auditRecord);
+        }
+    }
+
+    @Override
+    public Iterator<AuditRecord> iterator() {
+        try {
+            return new RecordIterator(AuditLog.listSegments(directory));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ByteBuffer map(Path segment) {
+        try (var channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class RecordIterator implements Iterator<AuditRecord> {
+
+        private final List<Path> segments;
+        private int segmentIndex;
+        private ByteBuffer buffer;
+        private int offset;
+
+        private RecordIterator(List<Path> segments) {
+            this.segments = segments;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (true) {
+                if (buffer != null) {
+                    while (offset + AuditRecordLayout.RECORD_SIZE <= buffer.capacity()) {
+                        if (AuditRecordLayout.isCommitted(buffer, offset)) {
+                            return true;
+                        }
+                        offset += AuditRecordLayout.RECORD_SIZE;
+                    }
+                }
+                if (segmentIndex == segments.size()) {
+                    return false;
+                }
+                buffer = map(segments.get(segmentIndex++));
+                offset = 0;
+            }
+        }
+
+        @Override
+        public AuditRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            var auditRecord = AuditRecordLayout.read(buffer, offset);
+            offset += AuditRecordLayout.RECORD_SIZE;
+            return auditRecord;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.dmdev.audit;
+
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.service.SubscriptionOperation;
+import lombok.Value;
+
+import java.time.Instant;
+
+@Value
+public class AuditRecord {
+    SubscriptionOperation operation;
+    int subscriptionId;
+    int userId;
+    Status oldStatus;
+    Status newStatus;
+    Provider provider;
+    Instant timestamp;
+}
@@ -0,0 +1,88 @@
+package com.dmdev.audit;
+
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.service.SubscriptionOperation;
+import lombok.experimental.UtilityClass;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+
+/**
+ * Fixed 32-byte record layout shared by {@link AuditLog} and {@link AuditLogReader}.
+ * <pre>
+ * offset size field
+ *      0    1 commit marker, set last; 0 means the slot was never completed
+ *      1    1 operation ordinal
+ *      2    1 old status ordinal + 1, 0 when absent
+ *      3    1 new status ordinal + 1
+ *      4    1 provider ordinal + 1, 0 when absent
+ *      8    4 subscription id
+ *     12    4 user id
+ *     16    8 timestamp, epoch seconds
+ *     24    4 timestamp, nanos of second
+ * </pre>
+ * Multi-byte fields are big-endian. The first four bytes are published as one int with a
+ * release store, after every other field, and read with an acquire load: a reader that sees
+ * the commit marker also sees the rest of the record, on any memory model.
+ */
+@UtilityClass
+class AuditRecordLayout {
+
+    static final int RECORD_SIZE = 32;
+
+    private static final byte COMMITTED = 1;
+    private static final VarHandle HEADER = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final int OPERATION = 1;
+    private static final int OLD_STATUS = 2;
+    private static final int NEW_STATUS = 3;
+    private static final int PROVIDER = 4;
+    private static final int SUBSCRIPTION_ID = 8;
+    private static final int USER_ID = 12;
+    private static final int EPOCH_SECONDS = 16;
+    private static final int NANOS = 24;
+
+    private static final SubscriptionOperation[] OPERATIONS = SubscriptionOperation.values();
+    private static final Status[] STATUSES = Status.values();
+    private static final Provider[] PROVIDERS = Provider.values();
+
+    static void write(ByteBuffer buffer, int offset, SubscriptionOperation operation, int subscriptionId, int userId,
+                      Status oldStatus, Status newStatus, Provider provider, Instant timestamp) {
+        buffer.put(offset + PROVIDER, ordinalOrZero(provider));
+        buffer.putInt(offset + SUBSCRIPTION_ID, subscriptionId);
+        buffer.putInt(offset + USER_ID, userId);
+        buffer.putLong(offset + EPOCH_SECONDS, timestamp.getEpochSecond());
+        buffer.putInt(offset + NANOS, timestamp.getNano());
+        int header = COMMITTED << 24
+                     | operation.ordinal() << 16
+                     | (ordinalOrZero(oldStatus) & 0xFF) << 8
+                     | ordinalOrZero(newStatus) & 0xFF;
+        HEADER.setRelease(buffer, offset, header);
+    }
+
+    static boolean isCommitted(ByteBuffer buffer, int offset) {
+        return (int) HEADER.getAcquire(buffer, offset) >>> 24 == COMMITTED;
+    }
+
+    static AuditRecord read(ByteBuffer buffer, int offset) {
+        return new AuditRecord(
+                OPERATIONS[buffer.get(offset + OPERATION)],
+                buffer.getInt(offset + SUBSCRIPTION_ID),
+                buffer.getInt(offset + USER_ID),
+                fromOrdinal(STATUSES, buffer.get(offset + OLD_STATUS)),
+                fromOrdinal(STATUSES, buffer.get(offset + NEW_STATUS)),
+                fromOrdinal(PROVIDERS, buffer.get(offset + PROVIDER)),
+                Instant.ofEpochSecond(buffer.getLong(offset + EPOCH_SECONDS), buffer.getInt(offset + NANOS)));
+    }
+
+    private static byte ordinalOrZero(Enum<?> value) {
+        return value == null ? 0 : (byte) (value.ordinal() + 1);
+    }
+
+    private static <E> E fromOrdinal(E[] values, byte storedOrdinal) {
+        return storedOrdinal == 0 ? null : values[storedOrdinal - 1];
+    }
+}
@@ -0,0 +1,35 @@
+package com.dmdev.bootstrap;
+
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * What {@link PersistenceBootstrap#run()} did and how long each phase took.
+ */
+@Value
+public class BootstrapReport {
+    Duration configuration;
+    Duration poolPrefill;
+    int connectionsOpened;
+    Duration statementPreparation;
+    int statementsPrepared;
+    Duration warmUp;
+    int warmUpIterations;
+    int warmUpQueries;
+    long warmUpRowsMapped;
+
+    public Duration getTotal() {
+        return configuration.plus(poolPrefill).plus(statementPreparation).plus(warmUp);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("bootstrap took %d ms: configuration %d ms, pool prefill %d ms (%d connections), "
+                        + "statement preparation %d ms (%d statements), "
+                        + "warm-up %d ms (%d iterations, %d queries, %d rows mapped)",
+                getTotal().toMillis(), configuration.toMillis(), poolPrefill.toMillis(), connectionsOpened,
+                statementPreparation.toMillis(), statementsPrepared, warmUp.toMillis(), warmUpIterations, warmUpQueries,
+                warmUpRowsMapped);
+    }
+}
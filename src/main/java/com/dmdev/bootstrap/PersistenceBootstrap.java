@@ -0,0 +1,197 @@
+package com.dmdev.bootstrap;
+
+import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.dto.CreateSubscriptionDto;
+import com.dmdev.mapper.CreateSubscriptionBatchMapper;
+import com.dmdev.util.ConnectionManager;
+import com.dmdev.util.PropertiesUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Brings the persistence layer to steady state before traffic arrives, instead of letting
+ * the first requests pay for it:
+ * <ol>
+ *     <li>loads and validates the configuration and the JDBC driver;</li>
+ *     <li>pre-fills the connection pool ({@code bootstrap.pool.prefill}, default: pool size);</li>
+ *     <li>prepares the DAO statements on every pre-filled connection, which also checks
+ *     them against the schema;</li>
+ *     <li>runs {@code bootstrap.warm-up.iterations} synthetic DTOs through validation and
+ *     mapping, {@code bootstrap.warm-up.queries} read-only lookups that match no rows, and
+ *     {@code bootstrap.warm-up.rows} rows generated by the database through the row mapper,
+ *     so the JIT compiles those paths.</li>
+ * </ol>
+ * Phases that need a pool are skipped when {@code db.pool.size} is not set.
+ */
+@RequiredArgsConstructor
+public class PersistenceBootstrap {
+
+    private static final String PREFILL_KEY = "bootstrap.pool.prefill";
+    private static final String WARM_UP_ITERATIONS_KEY = "bootstrap.warm-up.iterations";
+    private static final String WARM_UP_QUERIES_KEY = "bootstrap.warm-up.queries";
+    private static final String WARM_UP_ROWS_KEY = "bootstrap.warm-up.rows";
+
+    private static final int DEFAULT_WARM_UP_ITERATIONS = 20_000;
+    private static final int DEFAULT_WARM_UP_QUERIES = 200;
+    private static final int DEFAULT_WARM_UP_ROWS = 20_000;
+    private static final int WARM_UP_BATCH_SIZE = 1_000;
+
+    private static final List<String> REQUIRED_KEYS = List.of("db.url", "db.user", "db.password", "db.driver");
+    private static final List<String> POSITIVE_INT_KEYS = List.of("db.pool.size");
+    private static final List<String> NON_NEGATIVE_INT_KEYS = List.of("db.pool.statement-cache-size",
+            PREFILL_KEY, WARM_UP_ITERATIONS_KEY, WARM_UP_QUERIES_KEY, WARM_UP_ROWS_KEY);
+
+    private final SubscriptionDao subscriptionDao;
+    private final CreateSubscriptionBatchMapper createSubscriptionBatchMapper;
+
+    public static PersistenceBootstrap getDefault() {
+        return new PersistenceBootstrap(SubscriptionDao.getInstance(), CreateSubscriptionBatchMapper.getInstance());
+    }
+
+    /**
+     * Runs all phases on the calling thread.
+     *
+     * @throws IllegalStateException if the configuration is invalid
+     */
+    public BootstrapReport run() {
+        long started = System.nanoTime();
+        validateConfiguration();
+        var configuration = Duration.ofNanos(System.nanoTime() - started);
+
+        started = System.nanoTime();
+        var pool = ConnectionManager.getPool();
+        int prefill = pool == null ? 0 : getInt(PREFILL_KEY, pool.getMaxSize());
+        int connectionsOpened = prefillPool(prefill);
+        var poolPrefill = Duration.ofNanos(System.nanoTime() - started);
+
+        started = System.nanoTime();
+        int statementsPrepared = prepareStatements(Math.max(prefill, 1));
+        var statementPreparation = Duration.ofNanos(System.nanoTime() - started);
+
+        started = System.nanoTime();
+        int iterations = getInt(WARM_UP_ITERATIONS_KEY, DEFAULT_WARM_UP_ITERATIONS);
+        int queries = getInt(WARM_UP_QUERIES_KEY, DEFAULT_WARM_UP_QUERIES);
+        warmUpMapping(iterations);
+        warmUpQueries(queries);
+        long rowsMapped = subscriptionDao.mapSyntheticRows(getInt(WARM_UP_ROWS_KEY, DEFAULT_WARM_UP_ROWS));
+        var warmUp = Duration.ofNanos(System.nanoTime() - started);
+
+        return new BootstrapReport(configuration, poolPrefill, connectionsOpened,
+                statementPreparation, statementsPrepared, warmUp, iterations, queries, rowsMapped);
+    }
+
+    /**
+     * Closes the connection pools, releasing every physical connection. Call it when the
+     * application stops.
+     */
+    public void shutdown() {
+        ConnectionManager.closeAll();
+    }
+
+    private void validateConfiguration() {
+        List<String> problems = new ArrayList<>();
+        for (String key : REQUIRED_KEYS) {
+            if (PropertiesUtil.get(key) == null) {
+                problems.add(key + " is missing");
+            }
+        }
+        for (String key : POSITIVE_INT_KEYS) {
+            checkInt(key, 1, problems);
+        }
+        for (String key : NON_NEGATIVE_INT_KEYS) {
+            checkInt(key, 0, problems);
+        }
+        var driver = PropertiesUtil.get("db.driver");
+        if (driver != null) {
+            try {
+                Class.forName(driver.trim());
+            } catch (ClassNotFoundException e) {
+                problems.add("db.driver class " + driver + " is not on the classpath");
+            }
+        }
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Invalid configuration: " + String.join("; ", problems));
+        }
+    }
+
+    @SneakyThrows
+    private int prefillPool(int prefill) {
+        var pool = ConnectionManager.getPool();
+        return pool == null ? 0 : pool.prefill(prefill);
+    }
+
+    /**
+     * Holds {@code connections} connections at once so each pooled connection gets its own
+     * prepared statements.
+     */
+    @SneakyThrows
+    private int prepareStatements(int connections) {
+        List<Connection> borrowed = new ArrayList<>(connections);
+        try {
+            int prepared = 0;
+            for (int i = 0; i < connections; i++) {
+                var connection = ConnectionManager.get();
+                borrowed.add(connection);
+                prepared += subscriptionDao.prepareStatements(connection);
+            }
+            return prepared;
+        } finally {
+            for (Connection connection : borrowed) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Expiration dates are taken from the mapper's clock, so the DTOs pass validation and
+     * warm up the same path real requests take.
+     */
+    private void warmUpMapping(int iterations) {
+        var expirationDate = createSubscriptionBatchMapper.getClock().instant().plus(30, ChronoUnit.DAYS);
+        List<CreateSubscriptionDto> batch = new ArrayList<>(WARM_UP_BATCH_SIZE);
+        for (int i = 0; i < Math.min(iterations, WARM_UP_BATCH_SIZE); i++) {
+            batch.add(CreateSubscriptionDto.builder()
+                    .userId(i % 7 == 0 ? null : i)
+                    .name("warm-up-" + (i % 16))
+                    .provider(i % 2 == 0 ? "GOOGLE" : "apple")
+                    .expirationDate(expirationDate)
+                    .build());
+        }
+        for (int done = 0; done < iterations; done += batch.size()) {
+            var chunk = batch.subList(0, Math.min(batch.size(), iterations - done));
+            createSubscriptionBatchMapper.map(chunk);
+        }
+    }
+
+    private void warmUpQueries(int queries) {
+        for (int i = 1; i <= queries; i++) {
+            subscriptionDao.findById(-i);
+            subscriptionDao.findByUserId(-i);
+        }
+    }
+
+    private static void checkInt(String key, int min, List<String> problems) {
+        var value = PropertiesUtil.get(key);
+        if (value == null) {
+            return;
+        }
+        try {
+            if (Integer.parseInt(value.trim()) < min) {
+                problems.add(key + " must be at least " + min);
+            }
+        } catch (NumberFormatException e) {
+            problems.add(key + " is not a number: " + value);
+        }
+    }
+
+    private static int getInt(String key, int defaultValue) {
+        var value = PropertiesUtil.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+}
@@ -0,0 +1,104 @@
+package com.dmdev.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Open-addressing {@code int -> int} map in a direct buffer, sized once for a fixed number
+ * of entries. Buckets are 8 bytes: the key, then the value + 1, so a zeroed bucket is empty.
+ * Collisions use linear probing, and removal shifts the following run back instead of
+ * leaving tombstones, so lookups never slow down as entries churn. Not thread-safe.
+ */
+class OffHeapIntIndex {
+
+    static final int ABSENT = -1;
+
+    private static final int BUCKET_SIZE = 8;
+    private static final int MAX_BUCKETS = 1 << 27;
+
+    private final ByteBuffer buckets;
+    private final int mask;
+    private final int shift;
+
+    OffHeapIntIndex(int maxEntries) {
+        long wanted = Math.max(2, (long) maxEntries * 4 / 3 + 1);
+        if (wanted > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Too many entries for one index: " + maxEntries);
+        }
+        int bucketCount = Integer.highestOneBit((int) wanted - 1) << 1;
+        this.buckets = ByteBuffer.allocateDirect(bucketCount * BUCKET_SIZE);
+        this.mask = bucketCount - 1;
+        this.shift = Integer.numberOfLeadingZeros(bucketCount) + 1;
+    }
+
+    int get(int key) {
+        for (int bucket = home(key); ; bucket = next(bucket)) {
+            int value = valueAt(bucket);
+            if (value == ABSENT || keyAt(bucket) == key) {
+                return value;
+            }
+        }
+    }
+
+    void put(int key, int value) {
+        int bucket = home(key);
+        while (valueAt(bucket) != ABSENT && keyAt(bucket) != key) {
+            bucket = next(bucket);
+        }
+        write(bucket, key, value);
+    }
+
+    void remove(int key) {
+        int hole = home(key);
+        while (keyAt(hole) != key || valueAt(hole) == ABSENT) {
+            if (valueAt(hole) == ABSENT) {
+                return;
+            }
+            hole = next(hole);
+        }
+        for (int candidate = next(hole); valueAt(candidate) != ABSENT; candidate = next(candidate)) {
+            int candidateHome = home(keyAt(candidate));
+            boolean homeBetween = hole <= candidate
+                    ? hole < candidateHome && candidateHome <= candidate
+                    : hole < candidateHome || candidateHome <= candidate;
+            if (!homeBetween) {
+                write(hole, keyAt(candidate), valueAt(candidate));
+                hole = candidate;
+            }
+        }
+        write(hole, 0, ABSENT);
+    }
+
+    void clear() {
+        for (int offset = 0; offset < buckets.capacity(); offset += BUCKET_SIZE) {
+            buckets.putLong(offset, 0);
+        }
+    }
+
+    int capacityBytes() {
+        return buckets.capacity();
+    }
+
+    /**
+     * Fibonacci hashing: the top bits of the product are well mixed even for sequential ids.
+     */
+    private int home(int key) {
+        return (key * 0x9E3779B9) >>> shift;
+    }
+
+    private int next(int bucket) {
+        return (bucket + 1) & mask;
+    }
+
+    private int keyAt(int bucket) {
+        return buckets.getInt(bucket * BUCKET_SIZE);
+    }
+
+    private int valueAt(int bucket) {
+        return buckets.getInt(bucket * BUCKET_SIZE + 4) - 1;
+    }
+
+    private void write(int bucket, int key, int value) {
+        buckets.putInt(bucket * BUCKET_SIZE, key);
+        buckets.putInt(bucket * BUCKET_SIZE + 4, value + 1);
+    }
+}
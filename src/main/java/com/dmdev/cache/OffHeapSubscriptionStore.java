@@ -0,0 +1,240 @@
+package com.dmdev.cache;
+
+import com.dmdev.entity.Subscription;
+import lombok.Value;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.dmdev.cache.SubscriptionSlotLayout.SLOT_SIZE;
+
+/**
+ * Bounded store of {@link Subscription} entries outside the Java heap. Entries are encoded
+ * into fixed-size slots ({@link SubscriptionSlotLayout}) in 1 MiB direct-buffer slabs that
+ * are allocated as the store fills, and found through an {@link OffHeapIntIndex} from id to
+ * slot. Once every slot is taken, CLOCK picks the victim: a read sets the slot's reference
+ * bit, and the sweeping hand clears set bits and evicts the first slot it finds clear.
+ * Entries may carry an expiry time; an expired entry is dropped when it is next looked up.
+ * <p>
+ * Apart from the slab array and a few counters, nothing here is on the heap, so the garbage
+ * collector neither traces nor copies the entries. Reads decode a fresh instance. All
+ * methods are synchronized.
+ */
+public class OffHeapSubscriptionStore {
+
+    private static final int SLAB_BYTES = 1 << 20;
+    private static final int SLOTS_PER_SLAB = SLAB_BYTES / SLOT_SIZE;
+    private static final int NO_SLOT = -1;
+
+    private final int capacity;
+    private final ByteBuffer[] slabs;
+    private final OffHeapIntIndex index;
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private int size;
+    private int usedSlots;
+    private int freeHead = NO_SLOT;
+    private int clockHand;
+
+    public OffHeapSubscriptionStore(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.slabs = new ByteBuffer[(capacity + SLOTS_PER_SLAB - 1) / SLOTS_PER_SLAB];
+        this.index = new OffHeapIntIndex(capacity);
+    }
+
+    /**
+     * @return a new instance decoded from the stored entry, or {@code null} if {@code id} is
+     * not stored
+     */
+    public Subscription get(int id) {
+        return get(id, Long.MIN_VALUE);
+    }
+
+    /**
+     * Like {@link #get(int)}, but drops and ignores the entry if it expired at or before
+     * {@code nowMillis}.
+     */
+    public synchronized Subscription get(int id, long nowMillis) {
+        int slot = findLive(id, nowMillis);
+        if (slot == OffHeapIntIndex.ABSENT) {
+            return null;
+        }
+        var slab = slabOf(slot);
+        SubscriptionSlotLayout.setReferenced(slab, offsetOf(slot), true);
+        return SubscriptionSlotLayout.read(slab, offsetOf(slot));
+    }
+
+    /**
+     * Removes the entry for {@code id} unless it expired at or before {@code nowMillis}.
+     *
+     * @return the removed entry with its expiry, or {@code null} if there was no live entry
+     */
+    public synchronized Entry take(int id, long nowMillis) {
+        int slot = findLive(id, nowMillis);
+        if (slot == OffHeapIntIndex.ABSENT) {
+            return null;
+        }
+        var slab = slabOf(slot);
+        var entry = new Entry(SubscriptionSlotLayout.read(slab, offsetOf(slot)),
+                SubscriptionSlotLayout.readExpiresAt(slab, offsetOf(slot)));
+        free(id, slot);
+        return entry;
+    }
+
+    /**
+     * Stores {@code subscription}, replacing any entry with the same id and evicting another
+     * entry if the store is full. Entries without an id or with a name longer than the
+     * {@code name} column are not stored; any previous entry for the id is dropped.
+     *
+     * @return whether the entry was stored
+     */
+    public boolean put(Subscription subscription) {
+        return put(subscription, Long.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #put(Subscription)}, for an entry that expires at {@code expiresAtMillis}.
+     */
+    public synchronized boolean put(Subscription subscription, long expiresAtMillis) {
+        if (!SubscriptionSlotLayout.fits(subscription)) {
+            if (subscription.getId() != null) {
+                remove(subscription.getId());
+            }
+            return false;
+        }
+        int id = subscription.getId();
+        int slot = index.get(id);
+        if (slot == OffHeapIntIndex.ABSENT) {
+            slot = allocateSlot();
+            index.put(id, slot);
+            size++;
+        }
+        var slab = slabOf(slot);
+        SubscriptionSlotLayout.write(slab, offsetOf(slot), subscription, expiresAtMillis);
+        SubscriptionSlotLayout.setReferenced(slab, offsetOf(slot), true);
+        return true;
+    }
+
+    /**
+     * @return the removed entry, or {@code null} if {@code id} was not stored
+     */
+    public synchronized Subscription remove(int id) {
+        int slot = index.get(id);
+        if (slot == OffHeapIntIndex.ABSENT) {
+            return null;
+        }
+        var removed = SubscriptionSlotLayout.read(slabOf(slot), offsetOf(slot));
+        free(id, slot);
+        return removed;
+    }
+
+    public synchronized void clear() {
+        index.clear();
+        size = 0;
+        usedSlots = 0;
+        freeHead = NO_SLOT;
+        clockHand = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    /**
+     * Direct memory held by the slabs allocated so far and the index.
+     */
+    public synchronized long getAllocatedBytes() {
+        long allocated = index.capacityBytes();
+        for (ByteBuffer slab : slabs) {
+            if (slab != null) {
+                allocated += slab.capacity();
+            }
+        }
+        return allocated;
+    }
+
+    private int findLive(int id, long nowMillis) {
+        int slot = index.get(id);
+        if (slot != OffHeapIntIndex.ABSENT
+            && SubscriptionSlotLayout.readExpiresAt(slabOf(slot), offsetOf(slot)) <= nowMillis) {
+            free(id, slot);
+            expirations.increment();
+            return OffHeapIntIndex.ABSENT;
+        }
+        return slot;
+    }
+
+    private void free(int id, int slot) {
+        var slab = slabOf(slot);
+        index.remove(id);
+        SubscriptionSlotLayout.setReferenced(slab, offsetOf(slot), false);
+        SubscriptionSlotLayout.writeNextFree(slab, offsetOf(slot), freeHead);
+        freeHead = slot;
+        size--;
+    }
+
+    private int allocateSlot() {
+        if (freeHead != NO_SLOT) {
+            int slot = freeHead;
+            freeHead = SubscriptionSlotLayout.readNextFree(slabOf(slot), offsetOf(slot));
+            return slot;
+        }
+        if (usedSlots < capacity) {
+            int slot = usedSlots++;
+            if (slabs[slot / SLOTS_PER_SLAB] == null) {
+                slabs[slot / SLOTS_PER_SLAB] = ByteBuffer.allocateDirect(SLAB_BYTES);
+            }
+            return slot;
+        }
+        return evictSlot();
+    }
+
+    /**
+     * Only called when the free list is empty and every slot is in use, so the hand always
+     * lands on an entry and stops within two turns.
+     */
+    private int evictSlot() {
+        while (true) {
+            int slot = clockHand;
+            clockHand = clockHand + 1 == capacity ? 0 : clockHand + 1;
+            var slab = slabOf(slot);
+            if (SubscriptionSlotLayout.isReferenced(slab, offsetOf(slot))) {
+                SubscriptionSlotLayout.setReferenced(slab, offsetOf(slot), false);
+            } else {
+                index.remove(SubscriptionSlotLayout.readId(slab, offsetOf(slot)));
+                size--;
+                evictions.increment();
+                return slot;
+            }
+        }
+    }
+
+    private ByteBuffer slabOf(int slot) {
+        return slabs[slot / SLOTS_PER_SLAB];
+    }
+
+    private static int offsetOf(int slot) {
+        return slot % SLOTS_PER_SLAB * SLOT_SIZE;
+    }
+
+    @Value
+    public static class Entry {
+        Subscription subscription;
+        long expiresAtMillis;
+    }
+}
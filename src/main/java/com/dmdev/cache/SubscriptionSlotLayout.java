@@ -0,0 +1,142 @@
+package com.dmdev.cache;
+
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import lombok.experimental.UtilityClass;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+/**
+ * Fixed 168-byte slot layout used by {@link OffHeapSubscriptionStore}.
+ * <pre>
+ * offset size field
+ *      0    1 CLOCK reference bit
+ *      1    1 flags: 1 = user id present, 2 = expiration date present
+ *      2    1 provider ordinal + 1, 0 when absent
+ *      3    1 status ordinal + 1, 0 when absent
+ *      4    4 subscription id; next free slot while the slot is on the free list
+ *      8    4 user id
+ *     12    2 name length in chars, -1 when absent
+ *     16    8 expiration date, epoch seconds
+ *     24    4 expiration date, nanos of second
+ *     28  128 name, up to 64 UTF-16 chars
+ *    160    8 expires at, epoch millis; {@link Long#MAX_VALUE} when the entry never expires
+ * </pre>
+ * 64 chars is the width of the {@code name} column, so every stored row fits.
+ */
+@UtilityClass
+class SubscriptionSlotLayout {
+
+    static final int SLOT_SIZE = 168;
+    static final int MAX_NAME_LENGTH = 64;
+
+    private static final int REFERENCED = 0;
+    private static final int FLAGS = 1;
+    private static final int PROVIDER = 2;
+    private static final int STATUS = 3;
+    private static final int ID = 4;
+    private static final int USER_ID = 8;
+    private static final int NAME_LENGTH = 12;
+    private static final int EPOCH_SECONDS = 16;
+    private static final int NANOS = 24;
+    private static final int NAME = 28;
+    private static final int EXPIRES_AT = 160;
+
+    private static final byte HAS_USER_ID = 1;
+    private static final byte HAS_EXPIRATION_DATE = 2;
+
+    private static final Provider[] PROVIDERS = Provider.values();
+    private static final Status[] STATUSES = Status.values();
+
+    static boolean fits(Subscription subscription) {
+        return subscription.getId() != null
+               && (subscription.getName() == null || subscription.getName().length() <= MAX_NAME_LENGTH);
+    }
+
+    static void write(ByteBuffer buffer, int offset, Subscription subscription, long expiresAtMillis) {
+        buffer.putLong(offset + EXPIRES_AT, expiresAtMillis);
+        byte flags = 0;
+        if (subscription.getUserId() != null) {
+            flags |= HAS_USER_ID;
+            buffer.putInt(offset + USER_ID, subscription.getUserId());
+        }
+        var expirationDate = subscription.getExpirationDate();
+        if (expirationDate != null) {
+            flags |= HAS_EXPIRATION_DATE;
+            buffer.putLong(offset + EPOCH_SECONDS, expirationDate.getEpochSecond());
+            buffer.putInt(offset + NANOS, expirationDate.getNano());
+        }
+        buffer.put(offset + FLAGS, flags);
+        buffer.put(offset + PROVIDER, ordinalOrZero(subscription.getProvider()));
+        buffer.put(offset + STATUS, ordinalOrZero(subscription.getStatus()));
+        buffer.putInt(offset + ID, subscription.getId());
+
+        var name = subscription.getName();
+        buffer.putShort(offset + NAME_LENGTH, (short) (name == null ? -1 : name.length()));
+        if (name != null) {
+            for (int i = 0; i < name.length(); i++) {
+                buffer.putChar(offset + NAME + 2 * i, name.charAt(i));
+            }
+        }
+    }
+
+    static Subscription read(ByteBuffer buffer, int offset) {
+        byte flags = buffer.get(offset + FLAGS);
+        return Subscription.builder()
+                .id(buffer.getInt(offset + ID))
+                .userId((flags & HAS_USER_ID) != 0 ? buffer.getInt(offset + USER_ID) : null)
+                .name(readName(buffer, offset))
+                .provider(fromOrdinal(PROVIDERS, buffer.get(offset + PROVIDER)))
+                .expirationDate((flags & HAS_EXPIRATION_DATE) != 0
+                        ? Instant.ofEpochSecond(buffer.getLong(offset + EPOCH_SECONDS), buffer.getInt(offset + NANOS))
+                        : null)
+                .status(fromOrdinal(STATUSES, buffer.get(offset + STATUS)))
+                .build();
+    }
+
+    static long readExpiresAt(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + EXPIRES_AT);
+    }
+
+    static int readId(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + ID);
+    }
+
+    static void writeNextFree(ByteBuffer buffer, int offset, int nextFree) {
+        buffer.putInt(offset + ID, nextFree);
+    }
+
+    static int readNextFree(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + ID);
+    }
+
+    static boolean isReferenced(ByteBuffer buffer, int offset) {
+        return buffer.get(offset + REFERENCED) != 0;
+    }
+
+    static void setReferenced(ByteBuffer buffer, int offset, boolean referenced) {
+        buffer.put(offset + REFERENCED, (byte) (referenced ? 1 : 0));
+    }
+
+    private static String readName(ByteBuffer buffer, int offset) {
+        int length = buffer.getShort(offset + NAME_LENGTH);
+        if (length < 0) {
+            return null;
+        }
+        var chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = buffer.getChar(offset + NAME + 2 * i);
+        }
+        return new String(chars);
+    }
+
+    private static byte ordinalOrZero(Enum<?> value) {
+        return value == null ? 0 : (byte) (value.ordinal() + 1);
+    }
+
+    private static <E> E fromOrdinal(E[] values, byte storedOrdinal) {
+        return storedOrdinal == 0 ? null : values[storedOrdinal - 1];
+    }
+}
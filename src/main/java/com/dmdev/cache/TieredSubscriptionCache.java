@@ -0,0 +1,333 @@
+package com.dmdev.cache;
+
+import com.dmdev.entity.Subscription;
+import com.dmdev.util.PropertiesUtil;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Two-tier cache of subscriptions by id: a small LRU map on the heap in front of a large
+ * {@link OffHeapSubscriptionStore}. Each entry lives in exactly one tier. A hit in the
+ * off-heap tier promotes the entry to the heap tier, and the entry the heap tier then
+ * evicts is demoted to the off-heap tier, so hot entries are served without decoding while
+ * the bulk of the cache stays invisible to the garbage collector. An off-heap capacity of
+ * zero gives a plain on-heap LRU cache.
+ * <p>
+ * Callers get copies, never the cached instances. Loads race with writes, so
+ * {@link #put} takes the {@link #getGeneration() generation} read before the load and
+ * ignores the value if an invalidation happened since. With a TTL, entries also expire a
+ * fixed time after they were loaded, which bounds staleness when an invalidation from
+ * another node is lost.
+ * <p>
+ * The heap tier is split into stripes by id, each an LRU map behind its own lock, so
+ * lookups of different ids do not contend; eviction is therefore least recently used
+ * within a stripe rather than across the whole tier. Small heap tiers keep a single
+ * stripe. The generation is read without locking, and {@link #invalidateAll()} takes every
+ * stripe so no promotion can slip an entry past it.
+ */
+public class TieredSubscriptionCache {
+
+    private static final String HEAP_CAPACITY_KEY = "subscription.cache.heap-capacity";
+    private static final String OFF_HEAP_CAPACITY_KEY = "subscription.cache.off-heap-capacity";
+    private static final String TTL_SECONDS_KEY = "subscription.cache.ttl-seconds";
+
+    private static final int DEFAULT_HEAP_CAPACITY = 10_000;
+    private static final int DEFAULT_OFF_HEAP_CAPACITY = 1_000_000;
+    private static final int DEFAULT_TTL_SECONDS = 300;
+    private static final int MAX_STRIPES = 16;
+    private static final int MIN_ENTRIES_PER_STRIPE = 64;
+
+    private final int heapCapacity;
+    private final Stripe[] stripes;
+    private final OffHeapSubscriptionStore offHeap;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final LongAdder heapHits = new LongAdder();
+    private final LongAdder offHeapHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder promotions = new LongAdder();
+    private final LongAdder demotions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final AtomicLong generation = new AtomicLong();
+
+    public TieredSubscriptionCache(int heapCapacity, int offHeapCapacity) {
+        this(heapCapacity, offHeapCapacity, Duration.ZERO, Clock.systemUTC());
+    }
+
+    /**
+     * @param ttl how long an entry stays valid after it was loaded; {@link Duration#ZERO}
+     *            keeps entries until they are invalidated or evicted
+     */
+    public TieredSubscriptionCache(int heapCapacity, int offHeapCapacity, Duration ttl, Clock clock) {
+        if (heapCapacity < 0 || offHeapCapacity < 0 || heapCapacity + offHeapCapacity == 0 || ttl.isNegative()) {
+            throw new IllegalArgumentException("Capacities must be non-negative and not both zero, ttl non-negative");
+        }
+        this.heapCapacity = heapCapacity;
+        this.stripes = newStripes(heapCapacity);
+        this.offHeap = offHeapCapacity > 0 ? new OffHeapSubscriptionStore(offHeapCapacity) : null;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Creates a cache sized from {@code application.properties}. Entries expire after
+     * {@value #DEFAULT_TTL_SECONDS} seconds unless {@code subscription.cache.ttl-seconds}
+     * says otherwise; {@code 0} disables the TTL.
+     */
+    public static TieredSubscriptionCache load() {
+        return new TieredSubscriptionCache(
+                getInt(HEAP_CAPACITY_KEY, DEFAULT_HEAP_CAPACITY),
+                getInt(OFF_HEAP_CAPACITY_KEY, DEFAULT_OFF_HEAP_CAPACITY),
+                Duration.ofSeconds(getInt(TTL_SECONDS_KEY, DEFAULT_TTL_SECONDS)),
+                Clock.systemUTC());
+    }
+
+    /**
+     * @return a copy of the cached entry, or {@code null} on a miss
+     */
+    public Subscription get(int id) {
+        long now = ttlMillis == 0 ? Long.MIN_VALUE : clock.millis();
+        if (heapCapacity == 0) {
+            var stored = offHeap.get(id, now);
+            countOffHeapLookup(stored != null);
+            return stored;
+        }
+        var stripe = stripeOf(id);
+        stripe.lock.lock();
+        try {
+            var cached = stripe.entries.get(id);
+            if (cached != null && cached.expiresAtMillis <= now) {
+                stripe.entries.remove(id);
+                expirations.increment();
+                cached = null;
+            }
+            if (cached != null) {
+                heapHits.increment();
+                return copy(cached.subscription);
+            }
+            if (offHeap == null) {
+                misses.increment();
+                return null;
+            }
+            var taken = offHeap.take(id, now);
+            countOffHeapLookup(taken != null);
+            if (taken == null) {
+                return null;
+            }
+            promotions.increment();
+            putOnHeap(stripe, new CachedSubscription(taken.getSubscription(), taken.getExpiresAtMillis()));
+            return copy(taken.getSubscription());
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * @return how long an entry stays valid after it was loaded; {@link Duration#ZERO} if
+     * entries never expire
+     */
+    public Duration getTtl() {
+        return Duration.ofMillis(ttlMillis);
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Caches a copy of {@code subscription} unless the cache was invalidated after
+     * {@code loadedAtGeneration}.
+     */
+    public void put(Subscription subscription, long loadedAtGeneration) {
+        if (subscription.getId() == null) {
+            return;
+        }
+        int id = subscription.getId();
+        long expiresAtMillis = ttlMillis == 0 ? Long.MAX_VALUE : clock.millis() + ttlMillis;
+        var stripe = stripeOf(id);
+        stripe.lock.lock();
+        try {
+            // checked under the stripe lock: invalidate(id) bumps the generation under the same lock
+            if (loadedAtGeneration != generation.get()) {
+                return;
+            }
+            if (heapCapacity > 0) {
+                if (offHeap != null) {
+                    offHeap.remove(id);
+                }
+                putOnHeap(stripe, new CachedSubscription(copy(subscription), expiresAtMillis));
+            } else {
+                offHeap.put(subscription, expiresAtMillis);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public void invalidate(int id) {
+        var stripe = stripeOf(id);
+        stripe.lock.lock();
+        try {
+            generation.incrementAndGet();
+            stripe.entries.remove(id);
+            if (offHeap != null) {
+                offHeap.remove(id);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+        }
+        try {
+            generation.incrementAndGet();
+            for (Stripe stripe : stripes) {
+                stripe.entries.clear();
+            }
+            if (offHeap != null) {
+                offHeap.clear();
+            }
+        } finally {
+            for (Stripe stripe : stripes) {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    public int getHeapSize() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.entries.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    public int getOffHeapSize() {
+        return offHeap == null ? 0 : offHeap.size();
+    }
+
+    public long getOffHeapAllocatedBytes() {
+        return offHeap == null ? 0 : offHeap.getAllocatedBytes();
+    }
+
+    public long getHeapHits() {
+        return heapHits.sum();
+    }
+
+    public long getOffHeapHits() {
+        return offHeapHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getPromotions() {
+        return promotions.sum();
+    }
+
+    public long getDemotions() {
+        return demotions.sum();
+    }
+
+    /**
+     * Entries dropped because their TTL ran out, in either tier.
+     */
+    public long getExpirations() {
+        return expirations.sum() + (offHeap == null ? 0 : offHeap.getExpirations());
+    }
+
+    public long getOffHeapEvictions() {
+        return offHeap == null ? 0 : offHeap.getEvictions();
+    }
+
+    public double getHitRate() {
+        long hits = heapHits.sum() + offHeapHits.sum();
+        long total = hits + misses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private void countOffHeapLookup(boolean hit) {
+        if (hit) {
+            offHeapHits.increment();
+        } else {
+            misses.increment();
+        }
+    }
+
+    private Stripe stripeOf(int id) {
+        return stripes[((id * 0x9E3779B9) >>> 16) & (stripes.length - 1)];
+    }
+
+    private void putOnHeap(Stripe stripe, CachedSubscription cached) {
+        stripe.entries.put(cached.subscription.getId(), cached);
+        if (stripe.entries.size() <= stripe.capacity) {
+            return;
+        }
+        var eldest = stripe.entries.entrySet().iterator();
+        var demoted = eldest.next().getValue();
+        eldest.remove();
+        if (offHeap != null && offHeap.put(demoted.subscription, demoted.expiresAtMillis)) {
+            demotions.increment();
+        }
+    }
+
+    /**
+     * One stripe per {@value #MIN_ENTRIES_PER_STRIPE} entries of heap capacity, a power of
+     * two up to {@value #MAX_STRIPES}, with the capacity spread evenly over them.
+     */
+    private static Stripe[] newStripes(int heapCapacity) {
+        int count = Math.min(MAX_STRIPES, Integer.highestOneBit(Math.max(1, heapCapacity / MIN_ENTRIES_PER_STRIPE)));
+        int capacity = (heapCapacity + count - 1) / count;
+        var stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(capacity);
+        }
+        return stripes;
+    }
+
+    private static Subscription copy(Subscription subscription) {
+        return subscription.toBuilder().build();
+    }
+
+    private static int getInt(String key, int defaultValue) {
+        var value = PropertiesUtil.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Integer, CachedSubscription> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final int capacity;
+
+        private Stripe(int capacity) {
+            this.capacity = capacity;
+        }
+    }
+
+    private static final class CachedSubscription {
+
+        private final Subscription subscription;
+        private final long expiresAtMillis;
+
+        private CachedSubscription(Subscription subscription, long expiresAtMillis) {
+            this.subscription = subscription;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
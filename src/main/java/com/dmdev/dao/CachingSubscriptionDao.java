@@ -0,0 +1,126 @@
+package com.dmdev.dao;
+
+import com.dmdev.cache.TieredSubscriptionCache;
+import com.dmdev.entity.Subscription;
+import com.dmdev.invalidation.InvalidationBus;
+import com.dmdev.invalidation.InvalidationListener;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * {@link SubscriptionDao} that serves {@code findById} from a {@link TieredSubscriptionCache}.
+ * Updates and deletes invalidate the id once the delegate has written it, and archiving
+ * invalidates everything, since it does not report which rows it moved. Only writes that
+ * go through this instance are seen, unless an {@link InvalidationBus} connects it to the
+ * other nodes: then updates and deletes are broadcast, archiving that moved rows
+ * broadcasts a reset, and invalidations from other nodes are applied here.
+ */
+public class CachingSubscriptionDao extends ForwardingSubscriptionDao {
+
+    private final TieredSubscriptionCache cache;
+    private volatile InvalidationBus invalidationBus;
+
+    public CachingSubscriptionDao(SubscriptionDao delegate, TieredSubscriptionCache cache) {
+        super(delegate);
+        this.cache = cache;
+    }
+
+    /**
+     * Broadcasts this node's invalidations on {@code invalidationBus} and applies the ones
+     * other nodes publish. The cache must have a TTL, since it is what bounds staleness
+     * when an invalidation is lost.
+     *
+     * @throws IllegalStateException if the cache keeps entries forever
+     */
+    public CachingSubscriptionDao setInvalidationBus(InvalidationBus invalidationBus) {
+        if (cache.getTtl().isZero()) {
+            throw new IllegalStateException("A cache shared through an invalidation bus needs a TTL");
+        }
+        invalidationBus.addListener(new InvalidationListener() {
+            @Override
+            public void onInvalidation(int subscriptionId, Integer userId) {
+                cache.invalidate(subscriptionId);
+            }
+
+            @Override
+            public void onReset() {
+                cache.invalidateAll();
+            }
+        });
+        this.invalidationBus = invalidationBus;
+        return this;
+    }
+
+    @Override
+    public Optional<Subscription> findById(Integer id) {
+        if (id == null) {
+            return delegate().findById(null);
+        }
+        var cached = cache.get(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long generation = cache.getGeneration();
+        var result = delegate().findById(id);
+        result.ifPresent(subscription -> cache.put(subscription, generation));
+        return result;
+    }
+
+    @Override
+    public boolean delete(Integer id) {
+        try {
+            return delegate().delete(id);
+        } finally {
+            invalidate(id, null);
+        }
+    }
+
+    @Override
+    public Subscription update(Subscription entity) {
+        try {
+            return delegate().update(entity);
+        } finally {
+            invalidate(entity.getId(), entity.getUserId());
+        }
+    }
+
+    @Override
+    public boolean expireIfDue(Integer id, Instant now) {
+        try {
+            return delegate().expireIfDue(id, now);
+        } finally {
+            invalidate(id, null);
+        }
+    }
+
+    @Override
+    public int archiveTerminal(Instant terminalBefore, int limit, Instant archivedAt) {
+        int moved = 0;
+        try {
+            moved = delegate().archiveTerminal(terminalBefore, limit, archivedAt);
+            return moved;
+        } finally {
+            cache.invalidateAll();
+            var bus = invalidationBus;
+            if (bus != null && moved > 0) {
+                bus.publishReset();
+            }
+        }
+    }
+
+    public TieredSubscriptionCache getCache() {
+        return cache;
+    }
+
+    private void invalidate(Integer id, Integer userId) {
+        if (id == null) {
+            return;
+        }
+        cache.invalidate(id);
+        var bus = invalidationBus;
+        if (bus != null) {
+            bus.publish(id, userId);
+        }
+    }
+}
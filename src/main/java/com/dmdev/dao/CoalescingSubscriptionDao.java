@@ -0,0 +1,54 @@
+package com.dmdev.dao;
+
+import com.dmdev.entity.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link SubscriptionDao} that shares one query between concurrent identical
+ * {@code findById} and {@code findByUserId} calls. Every other call, writes included, goes
+ * straight to the delegate.
+ */
+public class CoalescingSubscriptionDao extends ForwardingSubscriptionDao {
+
+    private final SingleFlight<Integer, Optional<Subscription>> byId =
+            new SingleFlight<>(result -> result.map(CoalescingSubscriptionDao::copy));
+    private final SingleFlight<Integer, List<Subscription>> byUserId =
+            new SingleFlight<>(CoalescingSubscriptionDao::copyAll);
+
+    public CoalescingSubscriptionDao(SubscriptionDao delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public Optional<Subscription> findById(Integer id) {
+        return byId.execute(id, () -> delegate().findById(id));
+    }
+
+    @Override
+    public List<Subscription> findByUserId(Integer userId) {
+        return byUserId.execute(userId, () -> delegate().findByUserId(userId));
+    }
+
+    public long getCoalescedCalls() {
+        return byId.getCoalescedCalls() + byUserId.getCoalescedCalls();
+    }
+
+    public long getExecutedCalls() {
+        return byId.getExecutedCalls() + byUserId.getExecutedCalls();
+    }
+
+    private static Subscription copy(Subscription subscription) {
+        return subscription.toBuilder().build();
+    }
+
+    private static List<Subscription> copyAll(List<Subscription> subscriptions) {
+        List<Subscription> copies = new ArrayList<>(subscriptions.size());
+        for (Subscription subscription : subscriptions) {
+            copies.add(copy(subscription));
+        }
+        return copies;
+    }
+}
@@ -0,0 +1,42 @@
+package com.dmdev.dao;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Precomputed name-to-constant table, a cheaper replacement for {@code Enum.valueOf}
+ * on hot mapping paths.
+ */
+public final class EnumDecoder<E extends Enum<E>> {
+
+    private final Class<E> type;
+    private final Map<String, E> constants;
+
+    private EnumDecoder(Class<E> type) {
+        this.type = type;
+        E[] values = type.getEnumConstants();
+        this.constants = new HashMap<>(values.length * 2);
+        for (E value : values) {
+            constants.put(value.name(), value);
+        }
+    }
+
+    public static <E extends Enum<E>> EnumDecoder<E> of(Class<E> type) {
+        return new EnumDecoder<>(type);
+    }
+
+    /**
+     * @return the constant with exactly this name, or {@code null} for a {@code null} name
+     * @throws IllegalArgumentException if no constant has this name
+     */
+    public E decode(String name) {
+        if (name == null) {
+            return null;
+        }
+        var value = constants.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("No enum constant " + type.getName() + "." + name);
+        }
+        return value;
+    }
+}
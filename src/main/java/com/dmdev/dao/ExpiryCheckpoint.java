@@ -0,0 +1,21 @@
+package com.dmdev.dao;
+
+import com.dmdev.entity.Subscription;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Position in an expiry-ordered scan: the {@code (expiration_date, id)} of the last row
+ * processed. A scan resumed from it continues with the next row, without re-reading the
+ * ones before.
+ */
+@Value
+public class ExpiryCheckpoint {
+    Instant expirationDate;
+    int id;
+
+    public static ExpiryCheckpoint of(Subscription subscription) {
+        return new ExpiryCheckpoint(subscription.getExpirationDate(), subscription.getId());
+    }
+}
@@ -0,0 +1,181 @@
+package com.dmdev.dao;
+
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/**
+ * {@link SubscriptionDao} that forwards every public method to {@code delegate}, as the base
+ * of the decorators: a subclass overrides only the calls it changes, and every other call
+ * still reaches the delegate instead of running this instance's own queries. A public
+ * method added to {@link SubscriptionDao} needs its forwarding override here.
+ */
+public abstract class ForwardingSubscriptionDao extends SubscriptionDao {
+
+    private final SubscriptionDao delegate;
+
+    protected ForwardingSubscriptionDao(SubscriptionDao delegate) {
+        this.delegate = delegate;
+    }
+
+    protected SubscriptionDao delegate() {
+        return delegate;
+    }
+
+    @Override
+    public void setPublisherExecutor(Executor publisherExecutor) {
+        delegate.setPublisherExecutor(publisherExecutor);
+    }
+
+    @Override
+    public int prepareStatements(Connection connection) {
+        return delegate.prepareStatements(connection);
+    }
+
+    @Override
+    public long mapSyntheticRows(int rows) {
+        return delegate.mapSyntheticRows(rows);
+    }
+
+    @Override
+    public List<Subscription> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Optional<Subscription> findById(Integer id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<Subscription> findAll(boolean includeArchived) {
+        return delegate.findAll(includeArchived);
+    }
+
+    @Override
+    public Optional<Subscription> findById(Integer id, boolean includeArchived) {
+        return delegate.findById(id, includeArchived);
+    }
+
+    @Override
+    public boolean delete(Integer id) {
+        return delegate.delete(id);
+    }
+
+    @Override
+    public Subscription update(Subscription entity) {
+        return delegate.update(entity);
+    }
+
+    @Override
+    public boolean expireIfDue(Integer id, Instant now) {
+        return delegate.expireIfDue(id, now);
+    }
+
+    @Override
+    public Subscription insert(Subscription entity) {
+        return delegate.insert(entity);
+    }
+
+    @Override
+    public List<Subscription> findByUserId(Integer userId) {
+        return delegate.findByUserId(userId);
+    }
+
+    @Override
+    public List<Subscription> findByUserId(Integer userId, boolean includeArchived) {
+        return delegate.findByUserId(userId, includeArchived);
+    }
+
+    @Override
+    public int archiveTerminal(Instant terminalBefore, int limit, Instant archivedAt) {
+        return delegate.archiveTerminal(terminalBefore, limit, archivedAt);
+    }
+
+    @Override
+    public Map<Integer, Subscription> findByIds(Collection<Integer> ids) {
+        return delegate.findByIds(ids);
+    }
+
+    @Override
+    public Map<Integer, List<Subscription>> findByUserIds(Collection<Integer> userIds) {
+        return delegate.findByUserIds(userIds);
+    }
+
+    @Override
+    public List<Subscription> findByStatusAndExpirationBetween(Status status, Instant from, Instant to) {
+        return delegate.findByStatusAndExpirationBetween(status, from, to);
+    }
+
+    @Override
+    public Stream<Subscription> streamByStatusAndExpirationBetween(Status status, Instant from, Instant to,
+                                                                   Provider provider, ExpiryCheckpoint checkpoint) {
+        return delegate.streamByStatusAndExpirationBetween(status, from, to, provider, checkpoint);
+    }
+
+    @Override
+    public Stream<Subscription> streamByStatusAndExpirationBetween(Status status, Instant from, Instant to,
+                                                                   Provider provider, ExpiryCheckpoint checkpoint,
+                                                                   int pageSize) {
+        return delegate.streamByStatusAndExpirationBetween(status, from, to, provider, checkpoint, pageSize);
+    }
+
+    @Override
+    public Flow.Publisher<Subscription> publishAll() {
+        return delegate.publishAll();
+    }
+
+    @Override
+    public Flow.Publisher<Subscription> publishByUserId(Integer userId) {
+        return delegate.publishByUserId(userId);
+    }
+
+    @Override
+    public Flow.Publisher<Subscription> publishByStatus(Status status) {
+        return delegate.publishByStatus(status);
+    }
+
+    @Override
+    public Flow.Publisher<Subscription> publishByExpirationBetween(Instant from, Instant to) {
+        return delegate.publishByExpirationBetween(from, to);
+    }
+
+    @Override
+    public Map<Provider, Map<Status, Long>> countByProviderAndStatus() {
+        return delegate.countByProviderAndStatus();
+    }
+
+    @Override
+    public Stream<Subscription> parallelScan() {
+        return delegate.parallelScan();
+    }
+
+    @Override
+    public void scanPartitions(int partitions, ForkJoinPool pool, IntFunction<Consumer<Subscription>> consumerFactory) {
+        delegate.scanPartitions(partitions, pool, consumerFactory);
+    }
+
+    @Override
+    public void scanAll(Consumer<Subscription> action) {
+        delegate.scanAll(action);
+    }
+
+    @Override
+    public void forEachUserId(IntConsumer action) {
+        delegate.forEachUserId(action);
+    }
+}
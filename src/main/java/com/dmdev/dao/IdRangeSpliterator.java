@@ -0,0 +1,95 @@
+package com.dmdev.dao;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Splits an inclusive id range into sub-ranges that are read independently, each on its own
+ * connection. Splitting stops at {@code minRangeSize}, which caps the number of partitions.
+ * {@link #forEachRemaining} streams its whole range with one query; {@link #tryAdvance}
+ * reads it page by page, so no connection is held between calls.
+ */
+class IdRangeSpliterator<T> implements Spliterator<T> {
+
+    private static final int PAGE_SIZE = 500;
+
+    private final RangeReader<T> reader;
+    private final IdExtractor<T> idExtractor;
+    private final long minRangeSize;
+    private final long to;
+    private final Deque<T> page = new ArrayDeque<>();
+    private long from;
+
+    IdRangeSpliterator(long from, long to, long minRangeSize, RangeReader<T> reader, IdExtractor<T> idExtractor) {
+        this.from = from;
+        this.to = to;
+        this.minRangeSize = Math.max(1, minRangeSize);
+        this.reader = reader;
+        this.idExtractor = idExtractor;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (page.isEmpty()) {
+            if (from > to) {
+                return false;
+            }
+            var rows = reader.readPage(from, to, PAGE_SIZE);
+            if (rows.isEmpty()) {
+                from = to + 1;
+                return false;
+            }
+            page.addAll(rows);
+            from = idExtractor.getId(rows.get(rows.size() - 1)) + 1;
+        }
+        action.accept(page.poll());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        while (!page.isEmpty()) {
+            action.accept(page.poll());
+        }
+        if (from <= to) {
+            reader.readRange(from, to, action);
+            from = to + 1;
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if (!page.isEmpty() || to - from + 1 < 2 * minRangeSize) {
+            return null;
+        }
+        long middle = from + (to - from) / 2;
+        var prefix = new IdRangeSpliterator<>(from, middle, minRangeSize, reader, idExtractor);
+        from = middle + 1;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Math.max(0, to - from + 1) + page.size();
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | DISTINCT;
+    }
+
+    interface RangeReader<T> {
+
+        void readRange(long from, long to, Consumer<? super T> action);
+
+        List<T> readPage(long from, long to, int limit);
+    }
+
+    @FunctionalInterface
+    interface IdExtractor<T> {
+        long getId(T row);
+    }
+}
@@ -0,0 +1,117 @@
+package com.dmdev.dao;
+
+import com.dmdev.jfr.DaoStatementEvent;
+import com.dmdev.util.ConnectionManager;
+import lombok.SneakyThrows;
+import lombok.Value;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Idempotency keys of completed upserts in the {@code idempotency_key} table, each with the
+ * id of the subscription the upsert produced, the hash of the request it was used for and
+ * the time the key stops being honoured.
+ * Expired rows are ignored by lookups and overwritten by saves; {@link #deleteExpired}
+ * removes them for good.
+ */
+public class IdempotencyKeyDao {
+
+    private static final IdempotencyKeyDao INSTANCE = new IdempotencyKeyDao();
+
+    private static final String GET_LIVE_BY_KEY_SQL = """
+            SELECT subscription_id, request_hash
+            FROM idempotency_key
+            WHERE idempotency_key = ?
+              AND expires_at > ?
+            """;
+    private static final String UPDATE_BY_KEY_SQL = """
+            UPDATE idempotency_key
+            SET subscription_id = ?,
+                request_hash = ?,
+                expires_at = ?
+            WHERE idempotency_key = ?
+            """;
+    private static final String SAVE_SQL = """
+            INSERT INTO idempotency_key (subscription_id, request_hash, expires_at, idempotency_key)
+            VALUES (?, ?, ?, ?)
+            """;
+    private static final String DELETE_EXPIRED_SQL = "DELETE FROM idempotency_key WHERE expires_at <= ?";
+
+    public static IdempotencyKeyDao getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return what is stored for {@code key}, unless the key expired at or before {@code now}
+     */
+    @SneakyThrows
+    public Optional<StoredKey> findLive(String key, Instant now) {
+        var event = DaoStatementEvent.start();
+        try (var connection = ConnectionManager.get();
+             var preparedStatement = connection.prepareStatement(GET_LIVE_BY_KEY_SQL)) {
+            preparedStatement.setString(1, key);
+            preparedStatement.setTimestamp(2, Timestamp.from(now));
+
+            var resultSet = preparedStatement.executeQuery();
+            var storedKey = resultSet.next()
+                    ? Optional.of(new StoredKey(resultSet.getInt("subscription_id"), resultSet.getString("request_hash")))
+                    : Optional.<StoredKey>empty();
+            event.finish("findIdempotencyKey", storedKey.isPresent() ? 1 : 0);
+            return storedKey;
+        }
+    }
+
+    /**
+     * Stores {@code subscriptionId} and {@code requestHash} for {@code key}, replacing
+     * whatever was stored before.
+     */
+    @SneakyThrows
+    public void save(String key, int subscriptionId, String requestHash, Instant expiresAt) {
+        var event = DaoStatementEvent.start();
+        try (var connection = ConnectionManager.get();
+             var updateStatement = connection.prepareStatement(UPDATE_BY_KEY_SQL)) {
+            updateStatement.setInt(1, subscriptionId);
+            updateStatement.setString(2, requestHash);
+            updateStatement.setTimestamp(3, Timestamp.from(expiresAt));
+            updateStatement.setString(4, key);
+            if (updateStatement.executeUpdate() > 0) {
+                event.finish("saveIdempotencyKey", 1);
+                return;
+            }
+            try (var insertStatement = connection.prepareStatement(SAVE_SQL)) {
+                insertStatement.setInt(1, subscriptionId);
+                insertStatement.setString(2, requestHash);
+                insertStatement.setTimestamp(3, Timestamp.from(expiresAt));
+                insertStatement.setString(4, key);
+                event.finish("saveIdempotencyKey", insertStatement.executeUpdate());
+            }
+        }
+    }
+
+    /**
+     * @return number of keys removed because they expired at or before {@code now}
+     */
+    @SneakyThrows
+    public int deleteExpired(Instant now) {
+        var event = DaoStatementEvent.start();
+        try (var connection = ConnectionManager.get();
+             var preparedStatement = connection.prepareStatement(DELETE_EXPIRED_SQL)) {
+            preparedStatement.setTimestamp(1, Timestamp.from(now));
+
+            int deleted = preparedStatement.executeUpdate();
+            event.finish("deleteExpiredIdempotencyKeys", deleted);
+            return deleted;
+        }
+    }
+
+    /**
+     * A live key: the subscription its upsert produced and the hash of its request.
+     */
+    @Value
+    public static class StoredKey {
+        int subscriptionId;
+        String requestHash;
+    }
+}
@@ -0,0 +1,50 @@
+package com.dmdev.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Base class for row mappers that read columns by position. Subclasses declare the column
+ * labels they need; {@link #bind} resolves them against the {@link java.sql.ResultSetMetaData}
+ * of each result set and hands the positions, in declaration order, to {@link #read}.
+ */
+public abstract class IndexedRowMapper<T> implements RowMapper<T> {
+
+    private final String[] columnLabels;
+
+    protected IndexedRowMapper(String... columnLabels) {
+        this.columnLabels = columnLabels.clone();
+    }
+
+    @Override
+    public Reader<T> bind(ResultSet resultSet) throws SQLException {
+        var metaData = resultSet.getMetaData();
+        int[] columns = new int[columnLabels.length];
+        Arrays.fill(columns, -1);
+        for (int position = 1; position <= metaData.getColumnCount(); position++) {
+            var label = metaData.getColumnLabel(position);
+            for (int i = 0; i < columnLabels.length; i++) {
+                if (columns[i] == -1 && columnLabels[i].equalsIgnoreCase(label)) {
+                    columns[i] = position;
+                }
+            }
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] == -1) {
+                throw new SQLException("Column " + columnLabels[i] + " is missing from the result set");
+            }
+        }
+        return currentRow -> read(currentRow, columns);
+    }
+
+    protected abstract T read(ResultSet resultSet, int[] columns) throws SQLException;
+
+    /**
+     * Reads a nullable {@code INTEGER} column without going through {@code getObject}.
+     */
+    protected static Integer getInteger(ResultSet resultSet, int column) throws SQLException {
+        int value = resultSet.getInt(column);
+        return value == 0 && resultSet.wasNull() ? null : value;
+    }
+}
@@ -0,0 +1,90 @@
+package com.dmdev.dao;
+
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.query.SubscriptionFilter;
+import com.dmdev.query.SubscriptionQueryEngine;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * {@link SubscriptionDao} that keeps a {@link SubscriptionQueryEngine} in step with the rows
+ * it writes. Inserts and updates are applied to the engine once the delegate has written
+ * them, deletes once the delegate has removed the row. Archiving does not report which
+ * rows it moved, so afterwards the engine's archivable rows are checked against the
+ * delegate, at most {@code limit} ids per query, and the ones that are gone are dropped. Only writes that go through this
+ * instance are seen.
+ */
+public class IndexedSubscriptionDao extends ForwardingSubscriptionDao {
+
+    private final SubscriptionQueryEngine engine;
+
+    public IndexedSubscriptionDao(SubscriptionDao delegate, SubscriptionQueryEngine engine) {
+        super(delegate);
+        this.engine = engine;
+    }
+
+    /**
+     * Refills the engine from the delegate().
+     */
+    public void reload() {
+        engine.reload(delegate());
+    }
+
+    @Override
+    public boolean delete(Integer id) {
+        boolean deleted = delegate().delete(id);
+        if (deleted) {
+            engine.remove(id);
+        }
+        return deleted;
+    }
+
+    @Override
+    public Subscription update(Subscription entity) {
+        var updated = delegate().update(entity);
+        engine.put(updated);
+        return updated;
+    }
+
+    @Override
+    public Subscription insert(Subscription entity) {
+        var inserted = delegate().insert(entity);
+        engine.put(inserted);
+        return inserted;
+    }
+
+    @Override
+    public boolean expireIfDue(Integer id, Instant now) {
+        boolean expired = delegate().expireIfDue(id, now);
+        if (expired) {
+            delegate().findById(id).ifPresent(engine::put);
+        }
+        return expired;
+    }
+
+    @Override
+    public int archiveTerminal(Instant terminalBefore, int limit, Instant archivedAt) {
+        int moved = delegate().archiveTerminal(terminalBefore, limit, archivedAt);
+        if (moved > 0) {
+            var candidates = engine.findIds(SubscriptionFilter.status(Status.CANCELED, Status.EXPIRED)
+                    .and(SubscriptionFilter.expiringBefore(terminalBefore)));
+            int chunk = Math.max(1, limit);
+            for (int from = 0; from < candidates.length; from += chunk) {
+                var ids = Arrays.stream(candidates, from, Math.min(from + chunk, candidates.length)).boxed().toList();
+                var remaining = delegate().findByIds(ids);
+                for (int id : ids) {
+                    if (!remaining.containsKey(id)) {
+                        engine.remove(id);
+                    }
+                }
+            }
+        }
+        return moved;
+    }
+
+    public SubscriptionQueryEngine getEngine() {
+        return engine;
+    }
+}
@@ -0,0 +1,163 @@
+package com.dmdev.dao;
+
+import com.dmdev.util.ConnectionManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cold {@link Flow.Publisher} over a query. Every subscriber gets its own connection and
+ * cursor; rows are read only as far as the subscriber has requested them, and all blocking
+ * JDBC work runs on the given executor. Cancellation closes the statement and releases the
+ * connection.
+ */
+class JdbcPublisher<T> implements Flow.Publisher<T> {
+
+    /**
+     * Rows fetched per round trip at least, so a subscriber requesting one row at a time
+     * does not pay a round trip per row.
+     */
+    private static final int DEFAULT_FETCH_SIZE = 100;
+    private static final int MAX_FETCH_SIZE = 1_000;
+
+    private final String sql;
+    private final StatementBinder binder;
+    private final RowMapper<T> rowMapper;
+    private final Executor executor;
+
+    JdbcPublisher(String sql, StatementBinder binder, RowMapper<T> rowMapper, Executor executor) {
+        this.sql = sql;
+        this.binder = binder;
+        this.rowMapper = rowMapper;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        var subscription = new CursorSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    @FunctionalInterface
+    interface StatementBinder {
+        void bind(PreparedStatement preparedStatement) throws SQLException;
+    }
+
+    private final class CursorSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile Throwable invalidRequest;
+        private boolean done;
+        private Connection connection;
+        private boolean previousAutoCommit;
+        private PreparedStatement preparedStatement;
+        private ResultSet resultSet;
+        private RowMapper.Reader<T> rowReader;
+
+        private CursorSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested " + n + " rows, must be positive");
+                cancelled.set(true);
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            scheduleDrain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled.set(true);
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (pendingDrains.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                if (!done) {
+                    drainOnce();
+                }
+                missed = pendingDrains.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drainOnce() {
+            try {
+                if (cancelled.get()) {
+                    finish();
+                    if (invalidRequest != null) {
+                        subscriber.onError(invalidRequest);
+                    }
+                    return;
+                }
+                if (resultSet == null) {
+                    open();
+                }
+                while (demand.get() > 0 && !cancelled.get()) {
+                    if (!resultSet.next()) {
+                        finish();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    var row = rowReader.read(resultSet);
+                    demand.decrementAndGet();
+                    subscriber.onNext(row);
+                }
+            } catch (Throwable e) {
+                finish();
+                subscriber.onError(e);
+            }
+        }
+
+        private void open() throws SQLException {
+            connection = ConnectionManager.get();
+            previousAutoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            preparedStatement = connection.prepareStatement(sql);
+            preparedStatement.setFetchSize((int) Math.min(Math.max(demand.get(), DEFAULT_FETCH_SIZE), MAX_FETCH_SIZE));
+            binder.bind(preparedStatement);
+            resultSet = preparedStatement.executeQuery();
+            rowReader = rowMapper.bind(resultSet);
+        }
+
+        @SuppressWarnings("try") // the resources are only there to be closed
+        private void finish() {
+            done = true;
+            if (connection == null) {
+                return;
+            }
+            try (var ignoredConnection = connection;
+                 var ignoredStatement = preparedStatement) {
+                connection.commit();
+                connection.setAutoCommit(previousAutoCommit);
+            } catch (SQLException ignored) {
+                // the connection is being discarded, nothing useful to report
+            } finally {
+                connection = null;
+                preparedStatement = null;
+                resultSet = null;
+                rowReader = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.dmdev.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps result set rows to entities. Column positions are resolved once per result set by
+ * {@link #bind}, so reading a row does no name lookups.
+ */
+public interface RowMapper<T> {
+
+    Reader<T> bind(ResultSet resultSet) throws SQLException;
+
+    @FunctionalInterface
+    interface Reader<T> {
+
+        /**
+         * Maps the row the result set is currently positioned on.
+         */
+        T read(ResultSet resultSet) throws SQLException;
+    }
+}
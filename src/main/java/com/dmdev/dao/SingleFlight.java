@@ -0,0 +1,70 @@
+package com.dmdev.dao;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into a single execution.
+ * The first caller (the leader) runs the loader, every caller that arrives while it is
+ * still in flight waits for the same result. Each caller receives its own copy of the
+ * result, so callers are free to mutate what they get back.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Function<V, V> copier;
+    private final LongAdder executedCalls = new LongAdder();
+    private final LongAdder coalescedCalls = new LongAdder();
+
+    public SingleFlight(Function<V, V> copier) {
+        this.copier = copier;
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        var future = new CompletableFuture<V>();
+        var existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalescedCalls.increment();
+            return copier.apply(join(existing));
+        }
+
+        executedCalls.increment();
+        try {
+            var value = loader.get();
+            future.complete(value);
+            return copier.apply(value);
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    public long getExecutedCalls() {
+        return executedCalls.sum();
+    }
+
+    public long getCoalescedCalls() {
+        return coalescedCalls.sum();
+    }
+
+    private V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
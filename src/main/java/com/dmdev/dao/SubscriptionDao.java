@@ -3,22 +3,60 @@ package com.dmdev.dao;
 import com.dmdev.entity.Provider;
 import com.dmdev.entity.Status;
 import com.dmdev.entity.Subscription;
+import com.dmdev.jfr.DaoStatementEvent;
 import com.dmdev.util.ConnectionManager;
 import lombok.SneakyThrows;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.sql.Statement.RETURN_GENERATED_KEYS;
 
 public class SubscriptionDao implements Dao<Integer, Subscription> {
 
+    /**
+     * Shared by every instance that is not given its own, so decorators and custom-mapper
+     * DAOs do not each start a pool.
+     */
+    private static final Executor DEFAULT_PUBLISHER_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        var thread = new Thread(runnable, "subscription-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
     private static final SubscriptionDao INSTANCE = new SubscriptionDao();
+    private static final int STREAMING_FETCH_SIZE = 1_000;
+    private static final int MAX_IN_LIST_SIZE = 1_024;
+    private static final int MAX_ARRAY_SIZE = 10_000;
+    private static final int EXPIRY_PAGE_SIZE = 500;
+    private static final int MAX_SYNTHETIC_ROWS = 1_000;
+    private static final String POSTGRESQL = "PostgreSQL";
 
     private static final String GET_ALL_SQL = """
             SELECT
@@ -32,6 +70,61 @@ public class SubscriptionDao implements Dao<Integer, Subscription> {
             """;
     private static final String GET_BY_ID_SQL = GET_ALL_SQL + " WHERE id = ?";
     private static final String GET_BY_USER_ID_SQL = GET_ALL_SQL + " WHERE user_id = ?";
+    private static final String GET_BY_ID_ARRAY_SQL = GET_ALL_SQL + " WHERE id = ANY(?)";
+    private static final String GET_BY_USER_ID_ARRAY_SQL = GET_ALL_SQL + " WHERE user_id = ANY(?)";
+    private static final String GET_BY_STATUS_SQL = GET_ALL_SQL + " WHERE status = ?";
+    private static final String GET_BY_EXPIRATION_SQL =
+            GET_ALL_SQL + " WHERE expiration_date >= ? AND expiration_date < ?";
+    private static final String GET_BY_STATUS_AND_EXPIRATION_SQL =
+            GET_ALL_SQL + " WHERE status = ? AND expiration_date >= ? AND expiration_date < ?";
+    private static final String GET_EXPIRING_PAGE_SQL = GET_ALL_SQL + """
+             WHERE status = ?
+              AND expiration_date >= ?
+              AND (expiration_date > ? OR id > ?)
+              AND expiration_date < ?
+            """;
+    private static final String EXPIRING_PAGE_ORDER_SQL = " ORDER BY expiration_date, id LIMIT ?";
+    private static final String GET_EXPIRING_PAGE_BY_PROVIDER_SQL =
+            GET_EXPIRING_PAGE_SQL + " AND provider = ?" + EXPIRING_PAGE_ORDER_SQL;
+    private static final String GET_EXPIRING_PAGE_ANY_PROVIDER_SQL = GET_EXPIRING_PAGE_SQL + EXPIRING_PAGE_ORDER_SQL;
+    private static final String GET_ID_BOUNDS_SQL = "SELECT MIN(id), MAX(id) FROM subscription";
+    private static final String GET_BY_ID_RANGE_SQL = GET_ALL_SQL + " WHERE id >= ? AND id <= ?";
+    private static final String GET_PAGE_BY_ID_RANGE_SQL =
+            GET_ALL_SQL + " WHERE id >= ? AND id <= ? ORDER BY id LIMIT ?";
+    private static final String COUNT_BY_PROVIDER_AND_STATUS_SQL =
+            "SELECT provider, status, COUNT(*) FROM subscription GROUP BY provider, status";
+    private static final String GET_ALL_USER_IDS_SQL = "SELECT user_id FROM subscription";
+    private static final String GET_ALL_ARCHIVED_SQL = """
+            SELECT
+                id,
+                user_id,
+                name,
+                provider,
+                expiration_date,
+                status
+            FROM subscription_archive
+            """;
+    private static final String GET_ALL_WITH_ARCHIVED_SQL = GET_ALL_SQL + " UNION ALL " + GET_ALL_ARCHIVED_SQL;
+    private static final String GET_BY_ID_WITH_ARCHIVED_SQL =
+            GET_BY_ID_SQL + " UNION ALL " + GET_ALL_ARCHIVED_SQL + " WHERE id = ?";
+    private static final String GET_BY_USER_ID_WITH_ARCHIVED_SQL =
+            GET_BY_USER_ID_SQL + " UNION ALL " + GET_ALL_ARCHIVED_SQL + " WHERE user_id = ?";
+    private static final String GET_ARCHIVABLE_IDS_SQL = """
+            SELECT id
+            FROM subscription
+            WHERE status IN ('CANCELED', 'EXPIRED')
+              AND expiration_date < ?
+            ORDER BY id
+            LIMIT ?
+            FOR UPDATE
+            """;
+    private static final String COPY_TO_ARCHIVE_SQL = """
+            INSERT INTO subscription_archive (id, user_id, name, provider, expiration_date, status, archived_at)
+            SELECT id, user_id, name, provider, expiration_date, status, ?
+            FROM subscription
+            WHERE id IN (%s)
+            """;
+    private static final String DELETE_BY_IDS_SQL = "DELETE FROM subscription WHERE id IN (%s)";
     private static final String DELETE_BY_ID_SQL = "DELETE FROM subscription WHERE id = ?";
     private static final String SAVE_SQL =
             "INSERT INTO subscription (user_id, name, provider, expiration_date, status) VALUES (?, ?, ?, ?, ?)";
@@ -44,67 +137,216 @@ public class SubscriptionDao implements Dao<Integer, Subscription> {
                 status = ?
             WHERE id = ?
             """;
+    private static final String EXPIRE_IF_DUE_SQL = """
+            UPDATE subscription
+            SET status = 'EXPIRED'
+            WHERE id = ?
+              AND status = 'ACTIVE'
+              AND expiration_date <= ?
+            """;
+    private static final String SYNTHETIC_ROWS_SQL = """
+            WITH RECURSIVE warm_up (n) AS (
+                SELECT 1
+                UNION ALL
+                SELECT n + 1 FROM warm_up WHERE n < %d
+            )
+            SELECT
+                n AS id,
+                n AS user_id,
+                'warm-up' AS name,
+                CASE WHEN MOD(n, 2) = 0 THEN 'GOOGLE' ELSE 'APPLE' END AS provider,
+                CURRENT_TIMESTAMP AS expiration_date,
+                CASE MOD(n, 3) WHEN 0 THEN 'ACTIVE' WHEN 1 THEN 'CANCELED' ELSE 'EXPIRED' END AS status
+            FROM warm_up
+            """;
+    private static final List<String> WARM_UP_SQL = List.of(GET_ALL_SQL, GET_BY_ID_SQL, GET_BY_USER_ID_SQL,
+            GET_BY_STATUS_AND_EXPIRATION_SQL, COUNT_BY_PROVIDER_AND_STATUS_SQL, UPDATE_BY_ID_SQL, DELETE_BY_ID_SQL);
+
+    private final RowMapper<Subscription> rowMapper;
+    private volatile Executor publisherExecutor = DEFAULT_PUBLISHER_EXECUTOR;
+
+    public SubscriptionDao() {
+        this(SubscriptionRowMapper.getInstance());
+    }
+
+    /**
+     * Creates a DAO that maps rows with a custom mapper, e.g. one without name interning.
+     */
+    public SubscriptionDao(RowMapper<Subscription> rowMapper) {
+        this.rowMapper = rowMapper;
+    }
 
     public static SubscriptionDao getInstance() {
         return INSTANCE;
     }
 
+    /**
+     * Sets the executor that runs the blocking JDBC work of the {@code publish*} queries.
+     */
+    public void setPublisherExecutor(Executor publisherExecutor) {
+        this.publisherExecutor = publisherExecutor;
+    }
+
+    /**
+     * Prepares and closes the fixed statements of the hot paths on {@code connection}. This
+     * checks them against the schema and, on a pooled connection, leaves them in its
+     * statement cache.
+     *
+     * @return number of statements prepared
+     */
+    @SneakyThrows
+    public int prepareStatements(Connection connection) {
+        for (String sql : WARM_UP_SQL) {
+            connection.prepareStatement(sql).close();
+        }
+        connection.prepareStatement(SAVE_SQL, RETURN_GENERATED_KEYS).close();
+        return WARM_UP_SQL.size() + 1;
+    }
+
+    /**
+     * Maps {@code rows} rows that the database generates, none of them from the table,
+     * through the row mapper and discards them, in queries of at most
+     * {@value #MAX_SYNTHETIC_ROWS} rows. The rows come from the production driver, so a
+     * warm-up compiles the same row-mapping code that real reads run, even on an empty
+     * table.
+     *
+     * @return number of rows mapped
+     */
+    @SneakyThrows
+    public long mapSyntheticRows(int rows) {
+        long mapped = 0;
+        try (var connection = ConnectionManager.get()) {
+            while (mapped < rows) {
+                int batch = (int) Math.min(MAX_SYNTHETIC_ROWS, rows - mapped);
+                var event = DaoStatementEvent.start();
+                try (var preparedStatement = connection.prepareStatement(SYNTHETIC_ROWS_SQL.formatted(batch))) {
+                    long read = readAll(preparedStatement.executeQuery(), subscription -> {
+                    });
+                    event.finish("mapSyntheticRows", read);
+                    if (read == 0) {
+                        break;
+                    }
+                    mapped += read;
+                }
+            }
+        }
+        return mapped;
+    }
+
     @Override
     @SneakyThrows
     public List<Subscription> findAll() {
+        var event = DaoStatementEvent.start();
         try (var connection = ConnectionManager.get();
              var preparedStatement = connection.prepareStatement(GET_ALL_SQL)) {
-            var resultSet = preparedStatement.executeQuery();
-            List<Subscription> subscriptions = new ArrayList<>();
-            while (resultSet.next()) {
-                subscriptions.add(buildEntity(resultSet));
-            }
-
-            return subscriptions;
+            return finish(event, "findAll", buildEntities(preparedStatement.executeQuery()));
         }
     }
 
     @Override
     @SneakyThrows
     public Optional<Subscription> findById(Integer id) {
+        var event = DaoStatementEvent.start();
         try (var connection = ConnectionManager.get();
              var preparedStatement = connection.prepareStatement(GET_BY_ID_SQL)) {
             preparedStatement.setObject(1, id);
 
             var resultSet = preparedStatement.executeQuery();
-            return resultSet.next()
-                    ? Optional.of(buildEntity(resultSet))
-                    : Optional.empty();
+            return finish(event, "findById", resultSet.next()
+                    ? Optional.of(rowMapper.bind(resultSet).read(resultSet))
+                    : Optional.empty());
+        }
+    }
+
+    /**
+     * Same as {@link #findAll()}, optionally including rows moved to {@code subscription_archive}.
+     */
+    @SneakyThrows
+    public List<Subscription> findAll(boolean includeArchived) {
+        if (!includeArchived) {
+            return findAll();
+        }
+        var event = DaoStatementEvent.start();
+        try (var connection = ConnectionManager.get();
+             var preparedStatement = connection.prepareStatement(GET_ALL_WITH_ARCHIVED_SQL)) {
+            return finish(event, "findAllWithArchived", buildEntities(preparedStatement.executeQuery()));
+        }
+    }
+
+    /**
+     * Same as {@link #findById(Integer)}, optionally looking in {@code subscription_archive} as well.
+     */
+    @SneakyThrows
+    public Optional<Subscription> findById(Integer id, boolean includeArchived) {
+        if (!includeArchived) {
+            return findById(id);
+        }
+        var event = DaoStatementEvent.start();
+        try (var connection = ConnectionManager.get();
+             var preparedStatement = connection.prepareStatement(GET_BY_ID_WITH_ARCHIVED_SQL)) {
+            preparedStatement.setObject(1, id);
+            preparedStatement.setObject(2, id);
+
+            var resultSet = preparedStatement.executeQuery();
+            return finish(event, "findByIdWithArchived", resultSet.next()
+                    ? Optional.of(rowMapper.bind(resultSet).read(resultSet))
+                    : Optional.empty());
         }
     }
 
     @Override
     @SneakyThrows
     public boolean delete(Integer id) {
+        var event = DaoStatementEvent.start();
         try (var connection = ConnectionManager.get();
              var preparedStatement = connection.prepareStatement(DELETE_BY_ID_SQL)) {
             preparedStatement.setObject(1, id);
 
-            return preparedStatement.executeUpdate() > 0;
+            int deleted = preparedStatement.executeUpdate();
+            event.finish("delete", deleted);
+            return deleted > 0;
         }
     }
 
     @Override
     @SneakyThrows
     public Subscription update(Subscription entity) {
+        var event = DaoStatementEvent.start();
         try (var connection = ConnectionManager.get();
              var preparedStatement = connection.prepareStatement(UPDATE_BY_ID_SQL)) {
             prepareStatementToUpsert(preparedStatement, entity);
             preparedStatement.setObject(6, entity.getId());
 
-            preparedStatement.executeUpdate();
+            event.finish("update", preparedStatement.executeUpdate());
             return entity;
         }
     }
 
+    /**
+     * Marks the subscription EXPIRED only if it is still ACTIVE and its expiration date is
+     * not after {@code now}, so a renewal that lands after the caller read the row is kept.
+     * The expiration date itself is left as it is.
+     *
+     * @return whether the row was expired
+     */
+    @SneakyThrows
+    public boolean expireIfDue(Integer id, Instant now) {
+        var event = DaoStatementEvent.start();
+        try (var connection = ConnectionManager.get();
+             var preparedStatement = connection.prepareStatement(EXPIRE_IF_DUE_SQL)) {
+            preparedStatement.setObject(1, id);
+            preparedStatement.setObject(2, Timestamp.from(now));
+
+            int expired = preparedStatement.executeUpdate();
+            event.finish("expireIfDue", expired);
+            return expired > 0;
+        }
+    }
+
     @Override
     @SneakyThrows
     public Subscription insert(Subscription entity) {
+        var event = DaoStatementEvent.start();
         try (var connection = ConnectionManager.get();
              var preparedStatement = connection.prepareStatement(SAVE_SQL, RETURN_GENERATED_KEYS)) {
             prepareStatementToUpsert(preparedStatement, entity);
@@ -115,35 +357,504 @@ public class SubscriptionDao implements Dao<Integer, Subscription> {
             generatedKeys.next();
             entity.setId(generatedKeys.getObject("id", Integer.class));
 
+            event.finish("insert", 1);
             return entity;
         }
     }
 
     @SneakyThrows
     public List<Subscription> findByUserId(Integer userId) {
+        var event = DaoStatementEvent.start();
         try (var connection = ConnectionManager.get();
              var preparedStatement = connection.prepareStatement(GET_BY_USER_ID_SQL)) {
             preparedStatement.setObject(1, userId);
 
+            return finish(event, "findByUserId", buildEntities(preparedStatement.executeQuery()));
+        }
+    }
+
+    /**
+     * Same as {@link #findByUserId(Integer)}, optionally including rows moved to
+     * {@code subscription_archive}.
+     */
+    @SneakyThrows
+    public List<Subscription> findByUserId(Integer userId, boolean includeArchived) {
+        if (!includeArchived) {
+            return findByUserId(userId);
+        }
+        var event = DaoStatementEvent.start();
+        try (var connection = ConnectionManager.get();
+             var preparedStatement = connection.prepareStatement(GET_BY_USER_ID_WITH_ARCHIVED_SQL)) {
+            preparedStatement.setObject(1, userId);
+            preparedStatement.setObject(2, userId);
+
+            return finish(event, "findByUserIdWithArchived", buildEntities(preparedStatement.executeQuery()));
+        }
+    }
+
+    /**
+     * Moves up to {@code limit} CANCELED or EXPIRED subscriptions whose expiration date is
+     * before {@code terminalBefore} into {@code subscription_archive}, in one transaction.
+     * The rows are locked while they are copied and deleted.
+     *
+     * @return number of rows moved
+     */
+    @SneakyThrows
+    public int archiveTerminal(Instant terminalBefore, int limit, Instant archivedAt) {
+        var event = DaoStatementEvent.start();
+        try (var connection = ConnectionManager.get()) {
+            var autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                List<Integer> ids = new ArrayList<>(limit);
+                try (var preparedStatement = connection.prepareStatement(GET_ARCHIVABLE_IDS_SQL)) {
+                    preparedStatement.setObject(1, Timestamp.from(terminalBefore));
+                    preparedStatement.setInt(2, limit);
+                    var resultSet = preparedStatement.executeQuery();
+                    while (resultSet.next()) {
+                        ids.add(resultSet.getInt(1));
+                    }
+                }
+                if (ids.isEmpty()) {
+                    connection.commit();
+                    event.finish("archiveTerminal", 0);
+                    return 0;
+                }
+
+                var placeholders = "?,".repeat(ids.size() - 1) + "?";
+                try (var copyStatement = connection.prepareStatement(COPY_TO_ARCHIVE_SQL.formatted(placeholders));
+                     var deleteStatement = connection.prepareStatement(DELETE_BY_IDS_SQL.formatted(placeholders))) {
+                    copyStatement.setObject(1, Timestamp.from(archivedAt));
+                    for (int i = 0; i < ids.size(); i++) {
+                        copyStatement.setInt(i + 2, ids.get(i));
+                        deleteStatement.setInt(i + 1, ids.get(i));
+                    }
+                    copyStatement.executeUpdate();
+                    int moved = deleteStatement.executeUpdate();
+                    connection.commit();
+                    event.finish("archiveTerminal", moved);
+                    return moved;
+                }
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Loads many subscriptions by id with as few statements as possible.
+     * Duplicate and {@code null} ids are ignored; ids without a row are absent from the result.
+     */
+    public Map<Integer, Subscription> findByIds(Collection<Integer> ids) {
+        Map<Integer, Subscription> subscriptions = new HashMap<>();
+        findByKeys(ids, "id", GET_BY_ID_ARRAY_SQL,
+                subscription -> subscriptions.put(subscription.getId(), subscription));
+        return subscriptions;
+    }
+
+    /**
+     * Loads the subscriptions of many users with as few statements as possible.
+     * Every distinct requested user id is present in the result, with an empty list if
+     * the user has no subscriptions.
+     */
+    public Map<Integer, List<Subscription>> findByUserIds(Collection<Integer> userIds) {
+        Map<Integer, List<Subscription>> subscriptions = new LinkedHashMap<>();
+        for (Integer userId : userIds) {
+            if (userId != null) {
+                subscriptions.putIfAbsent(userId, new ArrayList<>());
+            }
+        }
+        findByKeys(subscriptions.keySet(), "user_id", GET_BY_USER_ID_ARRAY_SQL,
+                subscription -> subscriptions.get(subscription.getUserId()).add(subscription));
+        return subscriptions;
+    }
+
+    /**
+     * Returns subscriptions in {@code status} whose expiration date is in {@code [from, to)}.
+     */
+    @SneakyThrows
+    public List<Subscription> findByStatusAndExpirationBetween(Status status, Instant from, Instant to) {
+        var event = DaoStatementEvent.start();
+        try (var connection = ConnectionManager.get();
+             var preparedStatement = connection.prepareStatement(GET_BY_STATUS_AND_EXPIRATION_SQL)) {
+            preparedStatement.setObject(1, status.name());
+            preparedStatement.setObject(2, Timestamp.from(from));
+            preparedStatement.setObject(3, Timestamp.from(to));
+
+            return finish(event, "findByStatusAndExpirationBetween", buildEntities(preparedStatement.executeQuery()));
+        }
+    }
+
+    /**
+     * Streams subscriptions in {@code status} whose expiration date is in {@code [from, to)}
+     * in {@code (expiration_date, id)} order, optionally only those of {@code provider}.
+     * With a checkpoint, the stream starts right after it. Rows are read in keyset pages of
+     * {@value #EXPIRY_PAGE_SIZE}, each its own short query along the
+     * {@code (status, expiration_date, id)} index, so no connection or transaction is held
+     * between pages and a job can persist {@link ExpiryCheckpoint#of} its last processed row
+     * to resume after a crash.
+     *
+     * @param provider   provider to restrict to, or {@code null} for all
+     * @param checkpoint last row already processed, or {@code null} to start at {@code from}
+     */
+    public Stream<Subscription> streamByStatusAndExpirationBetween(Status status, Instant from, Instant to,
+                                                                   Provider provider, ExpiryCheckpoint checkpoint) {
+        return streamByStatusAndExpirationBetween(status, from, to, provider, checkpoint, EXPIRY_PAGE_SIZE);
+    }
+
+    public Stream<Subscription> streamByStatusAndExpirationBetween(Status status, Instant from, Instant to,
+                                                                   Provider provider, ExpiryCheckpoint checkpoint,
+                                                                   int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        var start = checkpoint == null || checkpoint.getExpirationDate().isBefore(from)
+                ? new ExpiryCheckpoint(from, Integer.MIN_VALUE)
+                : checkpoint;
+        var spliterator = new ExpiryPageSpliterator(status, to, provider, start, pageSize);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    public Flow.Publisher<Subscription> publishAll() {
+        return publish(GET_ALL_SQL, preparedStatement -> {
+        });
+    }
+
+    public Flow.Publisher<Subscription> publishByUserId(Integer userId) {
+        return publish(GET_BY_USER_ID_SQL, preparedStatement -> preparedStatement.setObject(1, userId));
+    }
+
+    public Flow.Publisher<Subscription> publishByStatus(Status status) {
+        return publish(GET_BY_STATUS_SQL, preparedStatement -> preparedStatement.setObject(1, status.name()));
+    }
+
+    /**
+     * Publishes subscriptions whose expiration date is in {@code [from, to)}.
+     */
+    public Flow.Publisher<Subscription> publishByExpirationBetween(Instant from, Instant to) {
+        return publish(GET_BY_EXPIRATION_SQL, preparedStatement -> {
+            preparedStatement.setObject(1, Timestamp.from(from));
+            preparedStatement.setObject(2, Timestamp.from(to));
+        });
+    }
+
+    /**
+     * Counts subscriptions per provider and status with one aggregate query.
+     * Combinations without rows are absent from the result.
+     */
+    @SneakyThrows
+    public Map<Provider, Map<Status, Long>> countByProviderAndStatus() {
+        var event = DaoStatementEvent.start();
+        try (var connection = ConnectionManager.get();
+             var preparedStatement = connection.prepareStatement(COUNT_BY_PROVIDER_AND_STATUS_SQL)) {
             var resultSet = preparedStatement.executeQuery();
-            List<Subscription> subscriptions = new ArrayList<>();
+            Map<Provider, Map<Status, Long>> counts = new EnumMap<>(Provider.class);
+            long rows = 0;
             while (resultSet.next()) {
-                subscriptions.add(buildEntity(resultSet));
+                counts.computeIfAbsent(Provider.valueOf(resultSet.getString(1)), provider -> new EnumMap<>(Status.class))
+                        .put(Status.valueOf(resultSet.getString(2)), resultSet.getLong(3));
+                rows++;
             }
+            event.finish("countByProviderAndStatus", rows);
+            return counts;
+        }
+    }
 
-            return subscriptions;
+    /**
+     * Returns a parallel stream over all subscriptions. The id range is split into
+     * partitions of roughly equal width, each read on its own connection; the number of
+     * partitions is capped by the parallelism of the pool running the stream
+     * ({@link ForkJoinPool#commonPool()} unless the terminal operation is invoked from
+     * inside another {@link ForkJoinPool}).
+     */
+    public Stream<Subscription> parallelScan() {
+        var pool = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool();
+        var bounds = findIdBounds();
+        if (bounds == null) {
+            return Stream.empty();
         }
+        long width = bounds[1] - bounds[0] + 1;
+        long minRangeSize = (width + pool.getParallelism() - 1) / pool.getParallelism();
+        var spliterator = new IdRangeSpliterator<>(bounds[0], bounds[1], minRangeSize,
+                new SubscriptionRangeReader(), Subscription::getId);
+        return StreamSupport.stream(spliterator, true);
     }
 
-    private Subscription buildEntity(ResultSet resultSet) throws SQLException {
-        return Subscription.builder()
-                .id(resultSet.getObject("id", Integer.class))
-                .userId(resultSet.getObject("user_id", Integer.class))
-                .name(resultSet.getObject("name", String.class))
-                .provider(Provider.valueOf(resultSet.getObject("provider", String.class)))
-                .expirationDate(resultSet.getObject("expiration_date", Timestamp.class).toInstant())
-                .status(Status.valueOf(resultSet.getObject("status", String.class)))
-                .build();
+    /**
+     * Reads all subscriptions in {@code partitions} id ranges in parallel on {@code pool},
+     * each on its own connection. Partition {@code i} delivers its rows, on a single thread,
+     * to the consumer returned by {@code consumerFactory.apply(i)}. The partition count is
+     * capped by the pool parallelism. Returns when every partition has been read.
+     */
+    public void scanPartitions(int partitions, ForkJoinPool pool, IntFunction<Consumer<Subscription>> consumerFactory) {
+        var bounds = findIdBounds();
+        if (bounds == null) {
+            return;
+        }
+        long width = bounds[1] - bounds[0] + 1;
+        int partitionCount = (int) Math.max(1, Math.min(Math.min(partitions, pool.getParallelism()), width));
+        List<Callable<Void>> tasks = new ArrayList<>(partitionCount);
+        var rangeReader = new SubscriptionRangeReader();
+        for (int partition = 0; partition < partitionCount; partition++) {
+            long from = bounds[0] + width * partition / partitionCount;
+            long to = bounds[0] + width * (partition + 1) / partitionCount - 1;
+            var consumer = consumerFactory.apply(partition);
+            tasks.add(() -> {
+                rangeReader.readRange(from, to, consumer);
+                return null;
+            });
+        }
+        for (Future<Void> future : pool.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while scanning partitions", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Streams every row through a server-side cursor, in no particular order, without
+     * collecting them into a list.
+     */
+    @SneakyThrows
+    public void scanAll(Consumer<Subscription> action) {
+        var event = DaoStatementEvent.start();
+        try (var connection = ConnectionManager.get()) {
+            var autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (var preparedStatement = connection.prepareStatement(GET_ALL_SQL)) {
+                preparedStatement.setFetchSize(STREAMING_FETCH_SIZE);
+
+                event.finish("scanAll", readAll(preparedStatement.executeQuery(), action));
+            } finally {
+                connection.commit();
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Streams the user id of every row through a server-side cursor, without
+     * materializing the rows. A user with several subscriptions is reported several times.
+     */
+    @SneakyThrows
+    public void forEachUserId(IntConsumer action) {
+        var event = DaoStatementEvent.start();
+        try (var connection = ConnectionManager.get()) {
+            var autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (var preparedStatement = connection.prepareStatement(GET_ALL_USER_IDS_SQL)) {
+                preparedStatement.setFetchSize(STREAMING_FETCH_SIZE);
+
+                var resultSet = preparedStatement.executeQuery();
+                long rows = 0;
+                while (resultSet.next()) {
+                    action.accept(resultSet.getInt(1));
+                    rows++;
+                }
+                event.finish("forEachUserId", rows);
+            } finally {
+                connection.commit();
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private Flow.Publisher<Subscription> publish(String sql, JdbcPublisher.StatementBinder binder) {
+        return new JdbcPublisher<>(sql, binder, rowMapper, publisherExecutor);
+    }
+
+    @SneakyThrows
+    private void findByKeys(Collection<Integer> keys, String column, String arraySql, Consumer<Subscription> action) {
+        List<Integer> distinctKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        distinctKeys.remove(null);
+        if (distinctKeys.isEmpty()) {
+            return;
+        }
+
+        try (var connection = ConnectionManager.get()) {
+            var postgresql = POSTGRESQL.equals(connection.getMetaData().getDatabaseProductName());
+            int chunkSize = postgresql ? MAX_ARRAY_SIZE : MAX_IN_LIST_SIZE;
+            for (int from = 0; from < distinctKeys.size(); from += chunkSize) {
+                var chunk = distinctKeys.subList(from, Math.min(from + chunkSize, distinctKeys.size()));
+                if (postgresql) {
+                    var event = DaoStatementEvent.start();
+                    try (var preparedStatement = connection.prepareStatement(arraySql)) {
+                        preparedStatement.setArray(1, connection.createArrayOf("integer", chunk.toArray()));
+                        event.finish("findByKeysArray", readAll(preparedStatement.executeQuery(), action));
+                    }
+                } else {
+                    findByKeysInList(connection, column, chunk, action);
+                }
+            }
+        }
+    }
+
+    /**
+     * Pads the IN list to the next power of two by repeating the last key, so only a handful
+     * of distinct statement shapes reach the driver.
+     */
+    private void findByKeysInList(Connection connection, String column, List<Integer> keys,
+                                  Consumer<Subscription> action) throws SQLException {
+        int parameterCount = Math.min(Integer.highestOneBit(keys.size() - 1) << 1, MAX_IN_LIST_SIZE);
+        parameterCount = Math.max(parameterCount, keys.size());
+        var sql = GET_ALL_SQL + " WHERE " + column + " IN (" + "?,".repeat(parameterCount - 1) + "?)";
+        var event = DaoStatementEvent.start();
+        try (var preparedStatement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameterCount; i++) {
+                preparedStatement.setInt(i + 1, keys.get(Math.min(i, keys.size() - 1)));
+            }
+            event.finish("findByKeysInList", readAll(preparedStatement.executeQuery(), action));
+        }
+    }
+
+    @SneakyThrows
+    private long[] findIdBounds() {
+        try (var connection = ConnectionManager.get();
+             var preparedStatement = connection.prepareStatement(GET_ID_BOUNDS_SQL)) {
+            var resultSet = preparedStatement.executeQuery();
+            resultSet.next();
+            long min = resultSet.getLong(1);
+            return resultSet.wasNull()
+                    ? null
+                    : new long[]{min, resultSet.getLong(2)};
+        }
+    }
+
+    private List<Subscription> buildEntities(ResultSet resultSet) throws SQLException {
+        List<Subscription> subscriptions = new ArrayList<>();
+        readAll(resultSet, subscriptions::add);
+        return subscriptions;
+    }
+
+    private long readAll(ResultSet resultSet, Consumer<Subscription> action) throws SQLException {
+        var reader = rowMapper.bind(resultSet);
+        long rows = 0;
+        while (resultSet.next()) {
+            action.accept(reader.read(resultSet));
+            rows++;
+        }
+        return rows;
+    }
+
+    private static <T extends Collection<?>> T finish(DaoStatementEvent event, String sqlId, T rows) {
+        event.finish(sqlId, rows.size());
+        return rows;
+    }
+
+    private static <T> Optional<T> finish(DaoStatementEvent event, String sqlId, Optional<T> row) {
+        event.finish(sqlId, row.isPresent() ? 1 : 0);
+        return row;
+    }
+
+    private class SubscriptionRangeReader implements IdRangeSpliterator.RangeReader<Subscription> {
+
+        @Override
+        @SneakyThrows
+        public void readRange(long from, long to, Consumer<? super Subscription> action) {
+            var event = DaoStatementEvent.start();
+            try (var connection = ConnectionManager.get()) {
+                var autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try (var preparedStatement = connection.prepareStatement(GET_BY_ID_RANGE_SQL)) {
+                    preparedStatement.setFetchSize(STREAMING_FETCH_SIZE);
+                    preparedStatement.setLong(1, from);
+                    preparedStatement.setLong(2, to);
+                    event.finish("readRange", readAll(preparedStatement.executeQuery(), action::accept));
+                } finally {
+                    connection.commit();
+                    connection.setAutoCommit(autoCommit);
+                }
+            }
+        }
+
+        @Override
+        @SneakyThrows
+        public List<Subscription> readPage(long from, long to, int limit) {
+            var event = DaoStatementEvent.start();
+            try (var connection = ConnectionManager.get();
+                 var preparedStatement = connection.prepareStatement(GET_PAGE_BY_ID_RANGE_SQL)) {
+                preparedStatement.setLong(1, from);
+                preparedStatement.setLong(2, to);
+                preparedStatement.setInt(3, limit);
+                return finish(event, "readPage", buildEntities(preparedStatement.executeQuery()));
+            }
+        }
+    }
+
+    /**
+     * Fetches the next page only when the previous one is used up; a short page means the
+     * range is exhausted.
+     */
+    private class ExpiryPageSpliterator extends Spliterators.AbstractSpliterator<Subscription> {
+
+        private final Status status;
+        private final Instant to;
+        private final Provider provider;
+        private final int pageSize;
+        private ExpiryCheckpoint after;
+        private List<Subscription> page = List.of();
+        private int position;
+        private boolean exhausted;
+
+        private ExpiryPageSpliterator(Status status, Instant to, Provider provider, ExpiryCheckpoint after,
+                                      int pageSize) {
+            super(Long.MAX_VALUE, ORDERED | DISTINCT | NONNULL);
+            this.status = status;
+            this.to = to;
+            this.provider = provider;
+            this.after = after;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Subscription> action) {
+            if (position == page.size()) {
+                if (exhausted) {
+                    return false;
+                }
+                page = readPage();
+                position = 0;
+                exhausted = page.size() < pageSize;
+                if (page.isEmpty()) {
+                    return false;
+                }
+                after = ExpiryCheckpoint.of(page.get(page.size() - 1));
+            }
+            action.accept(page.get(position++));
+            return true;
+        }
+
+        @SneakyThrows
+        private List<Subscription> readPage() {
+            var event = DaoStatementEvent.start();
+            var sql = provider == null ? GET_EXPIRING_PAGE_ANY_PROVIDER_SQL : GET_EXPIRING_PAGE_BY_PROVIDER_SQL;
+            try (var connection = ConnectionManager.get();
+                 var preparedStatement = connection.prepareStatement(sql)) {
+                var afterDate = Timestamp.from(after.getExpirationDate());
+                preparedStatement.setObject(1, status.name());
+                preparedStatement.setObject(2, afterDate);
+                preparedStatement.setObject(3, afterDate);
+                preparedStatement.setInt(4, after.getId());
+                preparedStatement.setObject(5, Timestamp.from(to));
+                int parameter = 6;
+                if (provider != null) {
+                    preparedStatement.setObject(parameter++, provider.name());
+                }
+                preparedStatement.setInt(parameter, pageSize);
+                return finish(event, "streamByStatusAndExpirationPage", buildEntities(preparedStatement.executeQuery()));
+            }
+        }
     }
 
     private void prepareStatementToUpsert(PreparedStatement preparedStatement, Subscription entity) throws SQLException {
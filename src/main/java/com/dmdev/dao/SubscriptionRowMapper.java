@@ -0,0 +1,71 @@
+package com.dmdev.dao;
+
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.util.PropertiesUtil;
+import com.dmdev.util.StringInterner;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+
+public class SubscriptionRowMapper extends IndexedRowMapper<Subscription> {
+
+    private static final String NAME_INTERNER_MAX_SIZE_KEY = "subscription.name-interner.max-size";
+    private static final int DEFAULT_NAME_INTERNER_MAX_SIZE = 10_000;
+
+    private static final EnumDecoder<Provider> PROVIDERS = EnumDecoder.of(Provider.class);
+    private static final EnumDecoder<Status> STATUSES = EnumDecoder.of(Status.class);
+
+    private static final int ID = 0;
+    private static final int USER_ID = 1;
+    private static final int NAME = 2;
+    private static final int PROVIDER = 3;
+    private static final int EXPIRATION_DATE = 4;
+    private static final int STATUS = 5;
+
+    private static final SubscriptionRowMapper INSTANCE = new SubscriptionRowMapper(createNameInterner());
+
+    private final StringInterner nameInterner;
+
+    /**
+     * @param nameInterner pool used to deduplicate subscription names, {@code null} to keep
+     *                     the strings returned by the driver
+     */
+    public SubscriptionRowMapper(StringInterner nameInterner) {
+        super("id", "user_id", "name", "provider", "expiration_date", "status");
+        this.nameInterner = nameInterner;
+    }
+
+    public static SubscriptionRowMapper getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    protected Subscription read(ResultSet resultSet, int[] columns) throws SQLException {
+        var expirationDate = resultSet.getTimestamp(columns[EXPIRATION_DATE]);
+        return new Subscription(
+                getInteger(resultSet, columns[ID]),
+                getInteger(resultSet, columns[USER_ID]),
+                readName(resultSet, columns[NAME]),
+                PROVIDERS.decode(resultSet.getString(columns[PROVIDER])),
+                expirationDate == null ? null : expirationDate.toInstant(),
+                STATUSES.decode(resultSet.getString(columns[STATUS])));
+    }
+
+    public Optional<StringInterner> getNameInterner() {
+        return Optional.ofNullable(nameInterner);
+    }
+
+    private String readName(ResultSet resultSet, int column) throws SQLException {
+        var name = resultSet.getString(column);
+        return nameInterner == null ? name : nameInterner.intern(name);
+    }
+
+    private static StringInterner createNameInterner() {
+        var maxSize = PropertiesUtil.get(NAME_INTERNER_MAX_SIZE_KEY);
+        int size = maxSize == null ? DEFAULT_NAME_INTERNER_MAX_SIZE : Integer.parseInt(maxSize.trim());
+        return size > 0 ? new StringInterner(size) : null;
+    }
+}
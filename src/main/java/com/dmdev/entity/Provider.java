@@ -1,18 +1,33 @@
 package com.dmdev.entity;
 
-import java.util.Arrays;
 import java.util.Optional;
 
 public enum Provider {
     GOOGLE, APPLE;
 
+    private static final Provider[] VALUES = values();
+
     public static Provider findByName(String name) {
         return findByNameOpt(name).orElseThrow();
     }
 
     public static Optional<Provider> findByNameOpt(String name) {
-        return Arrays.stream(values())
-                .filter(provider -> provider.name().equalsIgnoreCase(name))
-                .findFirst();
+        return Optional.ofNullable(findByNameOrNull(name));
+    }
+
+    /**
+     * Case-insensitive lookup without stream or {@link Optional} allocation,
+     * for hot paths that validate large batches.
+     */
+    public static Provider findByNameOrNull(String name) {
+        if (name == null) {
+            return null;
+        }
+        for (Provider provider : VALUES) {
+            if (provider.name().equalsIgnoreCase(name)) {
+                return provider;
+            }
+        }
+        return null;
     }
 }
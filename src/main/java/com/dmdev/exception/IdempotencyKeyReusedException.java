@@ -0,0 +1,14 @@
+package com.dmdev.exception;
+
+/**
+ * An idempotency key was sent again with a different request than the one it was first
+ * used for; the request cannot be processed as sent (HTTP 422).
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
@@ -2,6 +2,8 @@ package com.dmdev.exception;
 
 public class SubscriptionException extends RuntimeException {
 
+    private static final long serialVersionUID = 1L;
+
     public SubscriptionException(String message) {
         super(message);
     }
@@ -9,6 +9,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ValidationException extends RuntimeException {
 
+    private static final long serialVersionUID = 1L;
+
     @Getter
     private final List<Error> errors;
 }
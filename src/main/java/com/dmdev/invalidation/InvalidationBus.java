@@ -0,0 +1,220 @@
+package com.dmdev.invalidation;
+
+import com.dmdev.util.PropertiesUtil;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Broadcasts subscription invalidations to the other nodes that share the database, so
+ * their local caches drop rows this node changed. Published invalidations are
+ * de-duplicated and sent in batches every {@code flushInterval}, or sooner once
+ * {@code maxBatch} are pending, over a pluggable {@link InvalidationTransport}. Invalidations
+ * received from other nodes go to the registered {@link InvalidationListener}s; a node
+ * does not receive its own. A {@link #publishReset() reset} makes the other nodes drop
+ * everything they cache, for changes that cannot be named row by row.
+ * <p>
+ * Delivery is best effort. When a transport reports that frames may have been lost,
+ * listeners get {@link InvalidationListener#onReset()}; an invalidation lost without any
+ * sign is only bounded by the caches' own TTL.
+ */
+public class InvalidationBus implements AutoCloseable {
+
+    private static final String FLUSH_INTERVAL_KEY = "subscription.invalidation.flush-interval-ms";
+    private static final String MAX_BATCH_KEY = "subscription.invalidation.max-batch";
+
+    private static final int DEFAULT_FLUSH_INTERVAL_MS = 10;
+    private static final int DEFAULT_MAX_BATCH = 512;
+
+    private final InvalidationTransport transport;
+    private final long flushIntervalMillis;
+    private final int maxBatch;
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+    private final InvalidationListener dispatcher = new Dispatcher();
+    private final Object pendingLock = new Object();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "invalidation-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LongAdder published = new LongAdder();
+    private final LongAdder framesSent = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder resets = new LongAdder();
+    private Set<Long> pending = new LinkedHashSet<>();
+    private boolean resetPending;
+
+    public InvalidationBus(InvalidationTransport transport, Duration flushInterval, int maxBatch) {
+        if (flushInterval.toMillis() <= 0 || maxBatch <= 0) {
+            throw new IllegalArgumentException("flushInterval and maxBatch must be positive");
+        }
+        this.transport = transport;
+        this.flushIntervalMillis = flushInterval.toMillis();
+        this.maxBatch = maxBatch;
+    }
+
+    /**
+     * Creates a bus over {@link TcpInvalidationTransport#load()}, configured from
+     * {@code application.properties}.
+     */
+    public static InvalidationBus load() {
+        return new InvalidationBus(TcpInvalidationTransport.load(),
+                Duration.ofMillis(getInt(FLUSH_INTERVAL_KEY, DEFAULT_FLUSH_INTERVAL_MS)),
+                getInt(MAX_BATCH_KEY, DEFAULT_MAX_BATCH));
+    }
+
+    public InvalidationBus start() {
+        transport.start(new InvalidationTransport.Receiver() {
+            @Override
+            public void onFrame(byte[] frame) {
+                InvalidationCodec.decode(frame, dispatcher);
+            }
+
+            @Override
+            public void onGap() {
+                dispatcher.onReset();
+            }
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    public InvalidationBus addListener(InvalidationListener listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    public void removeListener(InvalidationListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Queues an invalidation for the next batch; never blocks on the network.
+     *
+     * @param userId owner of the subscription, or {@code null} if unknown
+     */
+    public void publish(int subscriptionId, Integer userId) {
+        int size;
+        synchronized (pendingLock) {
+            pending.add(InvalidationCodec.pack(subscriptionId, userId));
+            size = pending.size();
+        }
+        published.increment();
+        if (size == maxBatch) {
+            try {
+                flusher.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // closing: close() flushes what is left
+            }
+        }
+    }
+
+    /**
+     * Queues a reset and flushes without waiting for the interval: the other nodes drop
+     * everything they cache. It supersedes the invalidations queued before it, so those
+     * are not sent. Never blocks on the network.
+     */
+    public void publishReset() {
+        synchronized (pendingLock) {
+            resetPending = true;
+            pending.clear();
+        }
+        published.increment();
+        try {
+            flusher.execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            // closing: close() flushes what is left
+        }
+    }
+
+    /**
+     * Sends everything queued so far, in frames of at most {@code maxBatch} entries.
+     */
+    public void flush() {
+        Set<Long> batch;
+        boolean reset;
+        synchronized (pendingLock) {
+            if (pending.isEmpty() && !resetPending) {
+                return;
+            }
+            batch = pending;
+            reset = resetPending;
+            pending = new LinkedHashSet<>();
+            resetPending = false;
+        }
+        List<Long> entries = List.copyOf(batch);
+        synchronized (transport) {
+            if (reset) {
+                transport.send(InvalidationCodec.encodeReset());
+                framesSent.increment();
+            }
+            for (int from = 0; from < entries.size(); from += maxBatch) {
+                transport.send(InvalidationCodec.encode(entries.subList(from, Math.min(from + maxBatch, entries.size()))));
+                framesSent.increment();
+            }
+        }
+    }
+
+    /**
+     * Sends what is still queued, then stops the flusher and the transport.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        transport.close();
+    }
+
+    public long getPublished() {
+        return published.sum();
+    }
+
+    public long getFramesSent() {
+        return framesSent.sum();
+    }
+
+    public long getReceived() {
+        return received.sum();
+    }
+
+    public long getResets() {
+        return resets.sum();
+    }
+
+    private static int getInt(String key, int defaultValue) {
+        var value = PropertiesUtil.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private final class Dispatcher implements InvalidationListener {
+
+        @Override
+        public void onInvalidation(int subscriptionId, Integer userId) {
+            received.increment();
+            for (InvalidationListener listener : listeners) {
+                listener.onInvalidation(subscriptionId, userId);
+            }
+        }
+
+        @Override
+        public void onReset() {
+            resets.increment();
+            for (InvalidationListener listener : listeners) {
+                listener.onReset();
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.dmdev.invalidation;
+
+import lombok.experimental.UtilityClass;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+ * Frame format shared by every {@link InvalidationTransport}.
+ * <pre>
+ * offset size field
+ *      0    1 version
+ *      1    4 entry count, or -1 for a reset frame without entries
+ *      5  8*n entries: subscription id, then user id or {@link Integer#MIN_VALUE} when unknown
+ * </pre>
+ * A reset frame tells the receiver to drop everything it caches.
+ * Multi-byte fields are big-endian. Entries travel packed into a {@code long}, subscription
+ * id in the high half.
+ */
+@UtilityClass
+class InvalidationCodec {
+
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 5;
+    private static final int ENTRY_SIZE = 8;
+    private static final int UNKNOWN_USER_ID = Integer.MIN_VALUE;
+    private static final int RESET = -1;
+
+    static long pack(int subscriptionId, Integer userId) {
+        return (long) subscriptionId << 32 | (userId == null ? UNKNOWN_USER_ID : userId) & 0xFFFFFFFFL;
+    }
+
+    static byte[] encode(Collection<Long> entries) {
+        var buffer = ByteBuffer.allocate(HEADER_SIZE + ENTRY_SIZE * entries.size());
+        buffer.put(VERSION);
+        buffer.putInt(entries.size());
+        for (long entry : entries) {
+            buffer.putLong(entry);
+        }
+        return buffer.array();
+    }
+
+    static byte[] encodeReset() {
+        return ByteBuffer.allocate(HEADER_SIZE)
+                .put(VERSION)
+                .putInt(RESET)
+                .array();
+    }
+
+    static void decode(byte[] frame, InvalidationListener listener) {
+        var buffer = ByteBuffer.wrap(frame);
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported invalidation frame version " + version);
+        }
+        int count = buffer.getInt();
+        if (count == RESET && !buffer.hasRemaining()) {
+            listener.onReset();
+            return;
+        }
+        if (count < 0 || buffer.remaining() != count * ENTRY_SIZE) {
+            throw new IllegalArgumentException("Malformed invalidation frame of " + frame.length + " bytes");
+        }
+        for (int i = 0; i < count; i++) {
+            int subscriptionId = buffer.getInt();
+            int userId = buffer.getInt();
+            listener.onInvalidation(subscriptionId, userId == UNKNOWN_USER_ID ? null : userId);
+        }
+    }
+}
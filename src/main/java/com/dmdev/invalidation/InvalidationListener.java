@@ -0,0 +1,18 @@
+package com.dmdev.invalidation;
+
+/**
+ * Receives invalidations that other nodes published on an {@link InvalidationBus}.
+ * Callbacks run on transport threads and must not block.
+ */
+public interface InvalidationListener {
+
+    /**
+     * @param userId owner of the subscription, or {@code null} if the publisher did not know it
+     */
+    void onInvalidation(int subscriptionId, Integer userId);
+
+    /**
+     * Invalidations from some node may have been lost, so nothing cached can be trusted.
+     */
+    void onReset();
+}
@@ -0,0 +1,26 @@
+package com.dmdev.invalidation;
+
+/**
+ * Carries encoded invalidation frames between nodes for an {@link InvalidationBus}.
+ * Delivery is best effort: a transport that may have lost frames to a peer must make that
+ * peer's receiver see {@link Receiver#onGap()} before any later frame.
+ */
+public interface InvalidationTransport extends AutoCloseable {
+
+    void start(Receiver receiver);
+
+    /**
+     * Sends {@code frame} to every peer. Never called concurrently.
+     */
+    void send(byte[] frame);
+
+    @Override
+    void close();
+
+    interface Receiver {
+
+        void onFrame(byte[] frame);
+
+        void onGap();
+    }
+}
@@ -0,0 +1,407 @@
+package com.dmdev.invalidation;
+
+import com.dmdev.util.PropertiesUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link InvalidationTransport} over plain TCP. Each node listens on one port and keeps one
+ * outgoing connection per peer; frames are length-prefixed, and a zero length marks a gap.
+ * <p>
+ * Every peer has its own bounded queue and writer thread, so {@link #send} never touches
+ * the network and a slow or unreachable peer only delays itself. A frame is dropped when
+ * the peer's queue is full, when it cannot be written, or when a write has been stuck for
+ * longer than {@value #WRITE_TIMEOUT_MS} ms, in which case the connection is closed. The
+ * connection is re-opened at once after a healthy connection breaks and then with
+ * exponential backoff. The first frame after a drop is preceded by a gap marker, so the
+ * peer resets its caches instead of missing invalidations. A frame written just before a
+ * peer went away can still vanish without an error; the next write then fails and
+ * triggers the gap.
+ * <p>
+ * Frames can make every node drop its caches, so only peers may send them: an inbound
+ * connection is accepted only from an address that one of the configured peers resolves
+ * to, and is closed otherwise. The listener binds to loopback unless
+ * {@code subscription.invalidation.bind-host} names the interface the peers reach.
+ */
+public class TcpInvalidationTransport implements InvalidationTransport {
+
+    private static final String PORT_KEY = "subscription.invalidation.port";
+    private static final String PEERS_KEY = "subscription.invalidation.peers";
+    private static final String BIND_HOST_KEY = "subscription.invalidation.bind-host";
+
+    private static final int DEFAULT_PORT = 7_070;
+    private static final int CONNECT_TIMEOUT_MS = 1_000;
+    private static final int WRITE_TIMEOUT_MS = 2_000;
+    private static final int MAX_QUEUED_FRAMES = 1_024;
+    private static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final int GAP = 0;
+
+    private final InetSocketAddress bindAddress;
+    private final List<Peer> peers = new CopyOnWriteArrayList<>();
+    private final Set<Socket> inbound = ConcurrentHashMap.newKeySet();
+    private final LongAdder framesDropped = new LongAdder();
+    private final LongAdder connects = new LongAdder();
+    private final LongAdder rejectedConnections = new LongAdder();
+    private volatile ServerSocket serverSocket;
+    private volatile Thread acceptor;
+    private volatile boolean started;
+    private volatile boolean closed;
+
+    public TcpInvalidationTransport(InetSocketAddress bindAddress) {
+        this.bindAddress = bindAddress;
+    }
+
+    /**
+     * Creates a transport that listens on {@code subscription.invalidation.bind-host}
+     * (loopback by default) and {@code subscription.invalidation.port}, and exchanges frames
+     * with the comma-separated {@code host:port} list in {@code subscription.invalidation.peers}.
+     */
+    public static TcpInvalidationTransport load() {
+        var port = PropertiesUtil.get(PORT_KEY);
+        var bindHost = PropertiesUtil.get(BIND_HOST_KEY);
+        int bindPort = port == null ? DEFAULT_PORT : Integer.parseInt(port.trim());
+        var transport = new TcpInvalidationTransport(bindHost == null || bindHost.isBlank()
+                ? new InetSocketAddress(InetAddress.getLoopbackAddress(), bindPort)
+                : new InetSocketAddress(bindHost.trim(), bindPort));
+        var peers = PropertiesUtil.get(PEERS_KEY);
+        if (peers != null) {
+            for (String peer : peers.split(",")) {
+                if (!peer.isBlank()) {
+                    int separator = peer.lastIndexOf(':');
+                    transport.addPeer(new InetSocketAddress(peer.substring(0, separator).trim(),
+                            Integer.parseInt(peer.substring(separator + 1).trim())));
+                }
+            }
+        }
+        return transport;
+    }
+
+    public TcpInvalidationTransport addPeer(InetSocketAddress address) {
+        var peer = new Peer(address);
+        peers.add(peer);
+        if (started) {
+            peer.start();
+        }
+        return this;
+    }
+
+    /**
+     * @return the address actually bound, which tells the port when {@code 0} was requested
+     */
+    public InetSocketAddress getLocalAddress() {
+        return (InetSocketAddress) serverSocket.getLocalSocketAddress();
+    }
+
+    @Override
+    public void start(Receiver receiver) {
+        try {
+            var socket = new ServerSocket();
+            socket.setReuseAddress(true);
+            socket.bind(bindAddress);
+            serverSocket = socket;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot listen on " + bindAddress, e);
+        }
+        acceptor = startDaemon("invalidation-acceptor", () -> accept(receiver));
+        started = true;
+        for (Peer peer : peers) {
+            peer.start();
+        }
+    }
+
+    /**
+     * Queues {@code frame} for every peer without blocking.
+     */
+    @Override
+    public void send(byte[] frame) {
+        for (Peer peer : peers) {
+            peer.enqueue(frame);
+        }
+    }
+
+    /**
+     * Gives the writers up to {@value #WRITE_TIMEOUT_MS} ms to send what is queued, then
+     * stops listening and drops all connections. The listening socket is only released once
+     * the acceptor has left {@code accept()}, so this waits for it; the port can be bound
+     * again as soon as this returns.
+     */
+    @Override
+    public void close() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WRITE_TIMEOUT_MS);
+        for (Peer peer : peers) {
+            peer.awaitDrained(deadline);
+        }
+        closed = true;
+        closeQuietly(serverSocket);
+        var thread = acceptor;
+        if (thread != null) {
+            try {
+                thread.join(CONNECT_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Socket socket : inbound) {
+            closeQuietly(socket);
+        }
+        for (Peer peer : peers) {
+            peer.stop();
+        }
+    }
+
+    public long getFramesDropped() {
+        return framesDropped.sum();
+    }
+
+    public long getConnects() {
+        return connects.sum();
+    }
+
+    /**
+     * Inbound connections closed because they did not come from a peer.
+     */
+    public long getRejectedConnections() {
+        return rejectedConnections.sum();
+    }
+
+    private void accept(Receiver receiver) {
+        while (!closed) {
+            try {
+                var socket = serverSocket.accept();
+                if (!isPeer(socket.getInetAddress())) {
+                    rejectedConnections.increment();
+                    closeQuietly(socket);
+                    continue;
+                }
+                inbound.add(socket);
+                startDaemon("invalidation-reader", () -> read(socket, receiver));
+            } catch (IOException e) {
+                if (!closed) {
+                    sleepQuietly();
+                }
+            }
+        }
+    }
+
+    private void read(Socket socket, Receiver receiver) {
+        try (socket; var input = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (!closed) {
+                int length = input.readInt();
+                if (length == GAP) {
+                    receiver.onGap();
+                    continue;
+                }
+                if (length < 0 || length > MAX_FRAME_SIZE) {
+                    throw new IOException("Invalid frame length " + length);
+                }
+                var frame = new byte[length];
+                input.readFully(frame);
+                receiver.onFrame(frame);
+            }
+        } catch (IOException | RuntimeException e) {
+            // the peer went away or sent garbage; it reconnects and sends a gap marker
+        } finally {
+            inbound.remove(socket);
+        }
+    }
+
+    /**
+     * Peers are matched by address only: their outgoing connections come from ephemeral
+     * ports. Host names are resolved again on every check, so a peer that moved is still
+     * recognised.
+     */
+    private boolean isPeer(InetAddress remote) {
+        for (Peer peer : peers) {
+            try {
+                for (InetAddress address : InetAddress.getAllByName(peer.address.getHostString())) {
+                    if (address.equals(remote)) {
+                        return true;
+                    }
+                }
+            } catch (IOException e) {
+                // unresolvable peer: it cannot be the one connecting
+            }
+        }
+        return false;
+    }
+
+    private static Thread startDaemon(String name, Runnable task) {
+        var thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // nothing left to release
+        }
+    }
+
+    private static void sleepQuietly() {
+        try {
+            Thread.sleep(MIN_BACKOFF_NANOS / 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Peer {
+
+        private final InetSocketAddress address;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(MAX_QUEUED_FRAMES);
+        private final AtomicBoolean gap = new AtomicBoolean();
+        private final AtomicInteger unsent = new AtomicInteger();
+        private volatile Thread writer;
+        private volatile Socket socket;
+        private volatile long writeStartedNanos;
+        private DataOutputStream output;
+        private long backoffNanos = MIN_BACKOFF_NANOS;
+        private long nextAttemptNanos = System.nanoTime();
+
+        private Peer(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        private void start() {
+            writer = startDaemon("invalidation-writer-" + address, this::write);
+        }
+
+        /**
+         * Hands the frame to the writer, or drops it if the writer cannot keep up. A write
+         * stuck past the deadline is aborted by closing its socket.
+         */
+        private void enqueue(byte[] frame) {
+            long started = writeStartedNanos;
+            if (started != 0 && System.nanoTime() - started > TimeUnit.MILLISECONDS.toNanos(WRITE_TIMEOUT_MS)) {
+                closeQuietly(socket);
+            }
+            unsent.incrementAndGet();
+            if (!queue.offer(frame)) {
+                unsent.decrementAndGet();
+                gap.set(true);
+                framesDropped.increment();
+            }
+        }
+
+        private void awaitDrained(long deadlineNanos) {
+            while (writer != null && unsent.get() > 0 && System.nanoTime() - deadlineNanos < 0) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        private void write() {
+            while (!closed) {
+                byte[] frame;
+                try {
+                    frame = queue.take();
+                } catch (InterruptedException e) {
+                    break;
+                }
+                try {
+                    write(frame);
+                } finally {
+                    unsent.decrementAndGet();
+                }
+            }
+            disconnect();
+        }
+
+        /**
+         * Tries the current connection, then at most one fresh one.
+         */
+        private void write(byte[] frame) {
+            for (int attempt = 0; attempt < 2 && !closed; attempt++) {
+                if (output == null && !connect()) {
+                    break;
+                }
+                boolean afterGap = gap.getAndSet(false);
+                writeStartedNanos = System.nanoTime();
+                try {
+                    if (afterGap) {
+                        output.writeInt(GAP);
+                    }
+                    output.writeInt(frame.length);
+                    output.write(frame);
+                    output.flush();
+                    return;
+                } catch (IOException e) {
+                    disconnect();
+                    gap.set(true);
+                } finally {
+                    writeStartedNanos = 0;
+                }
+            }
+            gap.set(true);
+            framesDropped.increment();
+        }
+
+        private boolean connect() {
+            if (System.nanoTime() - nextAttemptNanos < 0) {
+                return false;
+            }
+            var candidate = new Socket();
+            try {
+                candidate.connect(address, CONNECT_TIMEOUT_MS);
+                candidate.setTcpNoDelay(true);
+                output = new DataOutputStream(new BufferedOutputStream(candidate.getOutputStream()));
+                socket = candidate;
+                backoffNanos = MIN_BACKOFF_NANOS;
+                connects.increment();
+                return true;
+            } catch (IOException e) {
+                closeQuietly(candidate);
+                nextAttemptNanos = System.nanoTime() + backoffNanos;
+                backoffNanos = Math.min(backoffNanos * 2, MAX_BACKOFF_NANOS);
+                return false;
+            }
+        }
+
+        private void disconnect() {
+            closeQuietly(socket);
+            socket = null;
+            output = null;
+        }
+
+        /**
+         * Stops the writer; closing the socket also aborts a write in progress.
+         */
+        private void stop() {
+            closeQuietly(socket);
+            var thread = writer;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.dmdev.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.dmdev.ConnectionAcquire")
+@Label("Connection Acquire")
+@Description("Time spent obtaining a JDBC connection from ConnectionManager")
+@Category({"Subscription", "Persistence"})
+@StackTrace(false)
+public class ConnectionAcquireEvent extends Event {
+
+    public static ConnectionAcquireEvent start() {
+        var event = new ConnectionAcquireEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish() {
+        end();
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.dmdev.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.dmdev.DaoStatement")
+@Label("DAO Statement")
+@Description("Execution of one SubscriptionDao statement, including row mapping")
+@Category({"Subscription", "Persistence"})
+@StackTrace(false)
+public class DaoStatementEvent extends Event {
+
+    @Label("SQL Id")
+    String sqlId;
+
+    @Label("Rows")
+    long rows;
+
+    public static DaoStatementEvent start() {
+        var event = new DaoStatementEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String sqlId, long rows) {
+        end();
+        if (shouldCommit()) {
+            this.sqlId = sqlId;
+            this.rows = rows;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.dmdev.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.dmdev.ServiceOperation")
+@Label("Subscription Service Operation")
+@Description("One SubscriptionService call")
+@Category({"Subscription", "Service"})
+public class ServiceOperationEvent extends Event {
+
+    public static final String SUCCESS = "SUCCESS";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Outcome")
+    @Description("SUCCESS, or the simple name of the exception the call failed with")
+    String outcome;
+
+    @Label("User Id")
+    int userId;
+
+    public static ServiceOperationEvent start(String operation) {
+        var event = new ServiceOperationEvent();
+        event.operation = operation;
+        event.begin();
+        return event;
+    }
+
+    public void setUserId(Integer userId) {
+        if (userId != null) {
+            this.userId = userId;
+        }
+    }
+
+    public void finish(String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
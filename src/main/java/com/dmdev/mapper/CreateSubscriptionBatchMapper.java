@@ -0,0 +1,91 @@
+package com.dmdev.mapper;
+
+import com.dmdev.dto.CreateSubscriptionDto;
+import com.dmdev.entity.Subscription;
+import com.dmdev.validator.CreateSubscriptionValidator;
+import com.dmdev.validator.Error;
+import com.dmdev.validator.ValidationResult;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Validates and maps a batch of {@link CreateSubscriptionDto}s in one pass. The clock is
+ * read once per batch and valid DTOs go through the shared {@link ValidationResult#VALID},
+ * so a valid DTO costs one {@link Subscription} and nothing else.
+ */
+@RequiredArgsConstructor
+public class CreateSubscriptionBatchMapper {
+
+    private static final CreateSubscriptionBatchMapper INSTANCE = new CreateSubscriptionBatchMapper(
+            CreateSubscriptionValidator.getInstance(), CreateSubscriptionMapper.getInstance(), Clock.systemUTC());
+
+    private final CreateSubscriptionValidator createSubscriptionValidator;
+    private final CreateSubscriptionMapper createSubscriptionMapper;
+    private final Clock clock;
+
+    public static CreateSubscriptionBatchMapper getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * The clock validation measures expiration dates against.
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    public BatchResult map(List<CreateSubscriptionDto> dtos) {
+        return map(dtos, false);
+    }
+
+    /**
+     * @param failFast stop at the first invalid DTO; subscriptions mapped before it are still returned
+     */
+    public BatchResult map(List<CreateSubscriptionDto> dtos, boolean failFast) {
+        Instant now = clock.instant();
+        List<Subscription> subscriptions = new ArrayList<>(dtos.size());
+        List<BatchError> errors = new ArrayList<>();
+        int index = 0;
+        for (CreateSubscriptionDto dto : dtos) {
+            var validationResult = createSubscriptionValidator.validate(dto, now);
+            if (validationResult == ValidationResult.VALID) {
+                subscriptions.add(createSubscriptionMapper.map(dto));
+            } else {
+                errors.add(new BatchError(index, validationResult.getErrors()));
+                if (failFast) {
+                    return new BatchResult(subscriptions, errors, index + 1);
+                }
+            }
+            index++;
+        }
+        return new BatchResult(subscriptions, errors, index);
+    }
+
+    @Value
+    public static class BatchResult {
+        List<Subscription> subscriptions;
+        List<BatchError> errors;
+        /**
+         * Number of DTOs looked at; less than the batch size only in fail-fast mode.
+         */
+        int processed;
+
+        public boolean hasErrors() {
+            return !errors.isEmpty();
+        }
+    }
+
+    @Value
+    public static class BatchError {
+        /**
+         * Position of the invalid DTO in the input batch.
+         */
+        int index;
+        List<Error> errors;
+    }
+}
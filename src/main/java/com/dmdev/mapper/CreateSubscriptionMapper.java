@@ -22,7 +22,7 @@ public class CreateSubscriptionMapper implements Mapper<CreateSubscriptionDto, S
         return Subscription.builder()
                 .userId(object.getUserId())
                 .name(object.getName())
-                .provider(Provider.findByNameOpt(object.getProvider()).orElse(null))
+                .provider(Provider.findByNameOrNull(object.getProvider()))
                 .expirationDate(object.getExpirationDate())
                 .status(Status.ACTIVE)
                 .build();
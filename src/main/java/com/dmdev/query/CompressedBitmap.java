@@ -0,0 +1,548 @@
+package com.dmdev.query;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative ints in the style of Roaring bitmaps. Values are grouped
+ * by their high 16 bits into containers of 65 536; a container is a sorted {@code char}
+ * array while it holds at most 4 096 values, and a 1 024-word bitmap above that, so sparse
+ * and dense regions both stay small and set operations work a container at a time.
+ * Run-length containers are left out: a full bitmap container is only 8 KiB, and the row
+ * numbers indexed here are reused as rows come and go, so long runs do not last.
+ * <p>
+ * {@link #and}, {@link #or} and {@link #andNot} return new bitmaps that may share containers
+ * with their operands, so the operands must not be changed while the result is in use.
+ * Not thread-safe.
+ */
+public class CompressedBitmap {
+
+    private static final int ARRAY_MAX = 4_096;
+    private static final int WORDS = 1_024;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    public CompressedBitmap() {
+        this(4);
+    }
+
+    private CompressedBitmap(int initialCapacity) {
+        keys = new char[initialCapacity];
+        containers = new Container[initialCapacity];
+    }
+
+    /**
+     * @param values ascending, distinct values; only the first {@code length} are used
+     */
+    public static CompressedBitmap of(int[] values, int length) {
+        var bitmap = new CompressedBitmap();
+        int from = 0;
+        while (from < length) {
+            char key = high(values[from]);
+            int to = from + 1;
+            while (to < length && high(values[to]) == key) {
+                to++;
+            }
+            bitmap.append(key, Container.of(values, from, to));
+            from = to;
+        }
+        return bitmap;
+    }
+
+    /**
+     * @param words plain bitmap: value {@code 64 * i + j} is present if bit {@code j} of
+     *              {@code words[i]} is set
+     */
+    public static CompressedBitmap ofWords(long[] words) {
+        var bitmap = new CompressedBitmap();
+        for (int from = 0; from < words.length; from += WORDS) {
+            int to = Math.min(from + WORDS, words.length);
+            int cardinality = 0;
+            for (int i = from; i < to; i++) {
+                cardinality += Long.bitCount(words[i]);
+            }
+            if (cardinality > 0) {
+                var container = new BitmapContainer(Arrays.copyOfRange(words, from, from + WORDS), cardinality);
+                bitmap.append((char) (from / WORDS), cardinality <= ARRAY_MAX ? container.toArray() : container);
+            }
+        }
+        return bitmap;
+    }
+
+    public static CompressedBitmap and(CompressedBitmap left, CompressedBitmap right) {
+        var result = new CompressedBitmap(Math.max(1, Math.min(left.size, right.size)));
+        int i = 0;
+        int j = 0;
+        while (i < left.size && j < right.size) {
+            int compare = Character.compare(left.keys[i], right.keys[j]);
+            if (compare < 0) {
+                i++;
+            } else if (compare > 0) {
+                j++;
+            } else {
+                result.appendNonEmpty(left.keys[i], left.containers[i++].and(right.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    public static CompressedBitmap or(CompressedBitmap left, CompressedBitmap right) {
+        var result = new CompressedBitmap(Math.max(1, left.size + right.size));
+        int i = 0;
+        int j = 0;
+        while (i < left.size || j < right.size) {
+            int compare = i == left.size ? 1 : j == right.size ? -1 : Character.compare(left.keys[i], right.keys[j]);
+            if (compare < 0) {
+                result.append(left.keys[i], left.containers[i++]);
+            } else if (compare > 0) {
+                result.append(right.keys[j], right.containers[j++]);
+            } else {
+                result.append(left.keys[i], left.containers[i++].or(right.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the values of {@code left} that are not in {@code right}
+     */
+    public static CompressedBitmap andNot(CompressedBitmap left, CompressedBitmap right) {
+        var result = new CompressedBitmap(Math.max(1, left.size));
+        int j = 0;
+        for (int i = 0; i < left.size; i++) {
+            while (j < right.size && right.keys[j] < left.keys[i]) {
+                j++;
+            }
+            if (j < right.size && right.keys[j] == left.keys[i]) {
+                result.appendNonEmpty(left.keys[i], left.containers[i].andNot(right.containers[j]));
+            } else {
+                result.append(left.keys[i], left.containers[i]);
+            }
+        }
+        return result;
+    }
+
+    public void add(int value) {
+        int index = indexOf(high(value));
+        if (index >= 0) {
+            containers[index] = containers[index].add(low(value));
+            return;
+        }
+        index = -index - 1;
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = high(value);
+        containers[index] = new ArrayContainer().add(low(value));
+        size++;
+    }
+
+    public void remove(int value) {
+        int index = indexOf(high(value));
+        if (index < 0) {
+            return;
+        }
+        var container = containers[index].remove(low(value));
+        if (container.cardinality() > 0) {
+            containers[index] = container;
+            return;
+        }
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    public boolean contains(int value) {
+        int index = indexOf(high(value));
+        return index >= 0 && containers[index].contains(low(value));
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(containers, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Passes every value to {@code action} in ascending order.
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * @return the values in ascending order
+     */
+    public int[] toArray() {
+        var values = new int[cardinality()];
+        int offset = 0;
+        for (int i = 0; i < size; i++) {
+            offset = containers[i].copyTo(keys[i] << 16, values, offset);
+        }
+        return values;
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void appendNonEmpty(char key, Container container) {
+        if (container.cardinality() > 0) {
+            append(key, container);
+        }
+    }
+
+    private void append(char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        keys[size] = key;
+        containers[size++] = container;
+    }
+
+    private static char high(int value) {
+        return (char) (value >>> 16);
+    }
+
+    private static char low(int value) {
+        return (char) value;
+    }
+
+    /**
+     * Values of one 65 536-wide block, as their low 16 bits. Mutators return the container
+     * to use from then on, which differs when the representation changes.
+     */
+    private abstract static class Container {
+
+        static Container of(int[] values, int from, int to) {
+            if (to - from <= ARRAY_MAX) {
+                var array = new char[to - from];
+                for (int i = from; i < to; i++) {
+                    array[i - from] = low(values[i]);
+                }
+                return new ArrayContainer(array, array.length);
+            }
+            var bitmap = new BitmapContainer();
+            for (int i = from; i < to; i++) {
+                bitmap.set(low(values[i]));
+            }
+            return bitmap;
+        }
+
+        abstract int cardinality();
+
+        abstract boolean contains(char value);
+
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container andNot(Container other);
+
+        abstract void forEach(int base, IntConsumer action);
+
+        abstract int copyTo(int base, int[] values, int offset);
+    }
+
+    private static final class ArrayContainer extends Container {
+
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, cardinality * 2)));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        Container and(Container other) {
+            var result = new char[cardinality];
+            int length = 0;
+            if (other instanceof ArrayContainer array) {
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[length++] = values[i++];
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result[length++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, length);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (!(other instanceof ArrayContainer array)) {
+                return other.or(this);
+            }
+            var result = new char[cardinality + array.cardinality];
+            int length = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j == array.cardinality || i < cardinality && values[i] < array.values[j]) {
+                    result[length++] = values[i++];
+                } else if (i == cardinality || values[i] > array.values[j]) {
+                    result[length++] = array.values[j++];
+                } else {
+                    result[length++] = values[i++];
+                    j++;
+                }
+            }
+            var union = new ArrayContainer(result, length);
+            return length > ARRAY_MAX ? union.toBitmap() : union;
+        }
+
+        @Override
+        Container andNot(Container other) {
+            var result = new char[cardinality];
+            int length = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (!other.contains(values[i])) {
+                    result[length++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, length);
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(base | values[i]);
+            }
+        }
+
+        @Override
+        int copyTo(int base, int[] target, int offset) {
+            for (int i = 0; i < cardinality; i++) {
+                target[offset++] = base | values[i];
+            }
+            return offset;
+        }
+
+        private BitmapContainer toBitmap() {
+            var bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.set(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[WORDS], 0);
+        }
+
+        private BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & 1L << value) != 0;
+        }
+
+        @Override
+        Container add(char value) {
+            set(value);
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            if (contains(value)) {
+                words[value >>> 6] &= ~(1L << value);
+                cardinality--;
+            }
+            return cardinality <= ARRAY_MAX ? toArray() : this;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            var otherWords = ((BitmapContainer) other).words;
+            var result = new long[WORDS];
+            for (int i = 0; i < WORDS; i++) {
+                result[i] = words[i] & otherWords[i];
+            }
+            return normalize(result);
+        }
+
+        @Override
+        Container or(Container other) {
+            var result = words.clone();
+            if (other instanceof ArrayContainer array) {
+                for (int i = 0; i < array.cardinality; i++) {
+                    char value = array.values[i];
+                    result[value >>> 6] |= 1L << value;
+                }
+            } else {
+                var otherWords = ((BitmapContainer) other).words;
+                for (int i = 0; i < WORDS; i++) {
+                    result[i] |= otherWords[i];
+                }
+            }
+            return normalize(result);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            var result = words.clone();
+            if (other instanceof ArrayContainer array) {
+                for (int i = 0; i < array.cardinality; i++) {
+                    char value = array.values[i];
+                    result[value >>> 6] &= ~(1L << value);
+                }
+            } else {
+                var otherWords = ((BitmapContainer) other).words;
+                for (int i = 0; i < WORDS; i++) {
+                    result[i] &= ~otherWords[i];
+                }
+            }
+            return normalize(result);
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    action.accept(base | i << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        int copyTo(int base, int[] target, int offset) {
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    target[offset++] = base | i << 6 | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return offset;
+        }
+
+        void set(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0) {
+                words[value >>> 6] |= bit;
+                cardinality++;
+            }
+        }
+
+        private ArrayContainer toArray() {
+            var values = new char[Math.max(cardinality, 4)];
+            int length = 0;
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[length++] = (char) (i << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, length);
+        }
+
+        private static Container normalize(long[] words) {
+            int cardinality = 0;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+            var bitmap = new BitmapContainer(words, cardinality);
+            return cardinality <= ARRAY_MAX ? bitmap.toArray() : bitmap;
+        }
+    }
+}
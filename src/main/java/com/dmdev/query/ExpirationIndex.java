@@ -0,0 +1,131 @@
+package com.dmdev.query;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rows bucketed by expiration time, for range filters and soonest-first scans. Each bucket
+ * holds the rows expiring within one hour as a {@link CompressedBitmap}, and buckets are
+ * kept in start order, so a write moves one row between two buckets. A range query takes
+ * the buckets inside the range whole and checks only the rows of the two edge buckets
+ * against the expiration column; a soonest-first scan visits buckets in order and sorts
+ * the candidates of just the buckets it needs.
+ * <p>
+ * Expiration times are read from the table's column, which is passed in because it is
+ * reallocated as the table grows. Not thread-safe.
+ */
+final class ExpirationIndex {
+
+    private static final long BUCKET_MILLIS = 60 * 60 * 1_000;
+
+    private final TreeMap<Long, CompressedBitmap> buckets = new TreeMap<>();
+
+    void add(int row, long expirationMillis) {
+        buckets.computeIfAbsent(bucketOf(expirationMillis), bucket -> new CompressedBitmap()).add(row);
+    }
+
+    void remove(int row, long expirationMillis) {
+        long bucket = bucketOf(expirationMillis);
+        var rows = buckets.get(bucket);
+        if (rows == null) {
+            return;
+        }
+        rows.remove(row);
+        if (rows.isEmpty()) {
+            buckets.remove(bucket);
+        }
+    }
+
+    /**
+     * @param rowCount upper bound of the row numbers in the index
+     * @return rows expiring in {@code [fromMillis, toMillis)}
+     */
+    CompressedBitmap between(long fromMillis, long toMillis, long[] expirations, int rowCount) {
+        if (fromMillis >= toMillis || buckets.isEmpty()) {
+            return new CompressedBitmap();
+        }
+        long firstBucket = bucketOf(fromMillis);
+        long lastBucket = bucketOf(toMillis - 1);
+        var words = new long[(rowCount + 63) >>> 6];
+        for (Map.Entry<Long, CompressedBitmap> entry : buckets.subMap(firstBucket, true, lastBucket, true).entrySet()) {
+            long bucket = entry.getKey();
+            if (bucket != firstBucket && bucket != lastBucket) {
+                entry.getValue().forEach(row -> words[row >>> 6] |= 1L << row);
+            } else {
+                entry.getValue().forEach(row -> {
+                    if (expirations[row] >= fromMillis && expirations[row] < toMillis) {
+                        words[row >>> 6] |= 1L << row;
+                    }
+                });
+            }
+        }
+        return CompressedBitmap.ofWords(words);
+    }
+
+    /**
+     * @param candidates rows that are in the index
+     * @return up to {@code limit} rows of {@code candidates}, soonest expiration first, ties
+     * by row
+     */
+    int[] soonest(CompressedBitmap candidates, int limit, long[] expirations) {
+        int cardinality = candidates.cardinality();
+        int wanted = Math.min(limit, cardinality);
+        if (cardinality <= buckets.size()) {
+            // fewer candidates than buckets: sorting them all is cheaper than the bucket walk
+            var rows = candidates.toArray();
+            sortByExpiration(rows, rows.length, expirations);
+            return Arrays.copyOf(rows, wanted);
+        }
+        var result = new int[wanted];
+        int length = 0;
+        for (CompressedBitmap bucket : buckets.values()) {
+            if (length == wanted) {
+                break;
+            }
+            var rows = CompressedBitmap.and(bucket, candidates).toArray();
+            sortByExpiration(rows, rows.length, expirations);
+            int taken = Math.min(rows.length, wanted - length);
+            System.arraycopy(rows, 0, result, length, taken);
+            length += taken;
+        }
+        return length == wanted ? result : Arrays.copyOf(result, length);
+    }
+
+    private static long bucketOf(long expirationMillis) {
+        return Math.floorDiv(expirationMillis, BUCKET_MILLIS);
+    }
+
+    /**
+     * Stable bottom-up merge sort of {@code rows} by their expiration time, so rows given in
+     * ascending order stay ascending among equal times.
+     */
+    private static void sortByExpiration(int[] rows, int length, long[] expirations) {
+        var source = rows;
+        var target = new int[length];
+        for (int width = 1; width < length; width <<= 1) {
+            for (int from = 0; from < length; from += width << 1) {
+                int middle = Math.min(from + width, length);
+                int to = Math.min(from + (width << 1), length);
+                int left = from;
+                int right = middle;
+                int out = from;
+                while (left < middle && right < to) {
+                    target[out++] = expirations[source[right]] < expirations[source[left]] ? source[right++] : source[left++];
+                }
+                while (left < middle) {
+                    target[out++] = source[left++];
+                }
+                while (right < to) {
+                    target[out++] = source[right++];
+                }
+            }
+            var swap = source;
+            source = target;
+            target = swap;
+        }
+        if (source != rows) {
+            System.arraycopy(source, 0, rows, 0, length);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.dmdev.query;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing {@code int -> int} map over two primitive arrays, for non-negative values.
+ * Collisions use linear probing, removal shifts the following run back instead of leaving
+ * tombstones, and the table doubles once it is three quarters full. Not thread-safe.
+ */
+final class IntIntMap {
+
+    static final int ABSENT = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int shift;
+    private int size;
+
+    IntIntMap() {
+        allocate(16);
+    }
+
+    int get(int key) {
+        for (int bucket = home(key); ; bucket = next(bucket)) {
+            if (values[bucket] == ABSENT || keys[bucket] == key) {
+                return values[bucket];
+            }
+        }
+    }
+
+    void put(int key, int value) {
+        if ((size + 1) * 4L > keys.length * 3L) {
+            resize();
+        }
+        int bucket = home(key);
+        while (values[bucket] != ABSENT && keys[bucket] != key) {
+            bucket = next(bucket);
+        }
+        if (values[bucket] == ABSENT) {
+            size++;
+        }
+        keys[bucket] = key;
+        values[bucket] = value;
+    }
+
+    /**
+     * @return the removed value, or {@link #ABSENT}
+     */
+    int remove(int key) {
+        int hole = home(key);
+        while (values[hole] == ABSENT || keys[hole] != key) {
+            if (values[hole] == ABSENT) {
+                return ABSENT;
+            }
+            hole = next(hole);
+        }
+        int removed = values[hole];
+        for (int candidate = next(hole); values[candidate] != ABSENT; candidate = next(candidate)) {
+            int candidateHome = home(keys[candidate]);
+            boolean homeBetween = hole <= candidate
+                    ? hole < candidateHome && candidateHome <= candidate
+                    : hole < candidateHome || candidateHome <= candidate;
+            if (!homeBetween) {
+                keys[hole] = keys[candidate];
+                values[hole] = values[candidate];
+                hole = candidate;
+            }
+        }
+        values[hole] = ABSENT;
+        size--;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(values, ABSENT);
+        size = 0;
+    }
+
+    private void resize() {
+        var oldKeys = keys;
+        var oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != ABSENT) {
+                int bucket = home(oldKeys[i]);
+                while (values[bucket] != ABSENT) {
+                    bucket = next(bucket);
+                }
+                keys[bucket] = oldKeys[i];
+                values[bucket] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int bucketCount) {
+        keys = new int[bucketCount];
+        values = new int[bucketCount];
+        Arrays.fill(values, ABSENT);
+        mask = bucketCount - 1;
+        shift = Integer.numberOfLeadingZeros(bucketCount) + 1;
+    }
+
+    private int home(int key) {
+        return (key * 0x9E3779B9) >>> shift;
+    }
+
+    private int next(int bucket) {
+        return (bucket + 1) & mask;
+    }
+}
@@ -0,0 +1,91 @@
+package com.dmdev.query;
+
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Predicate over subscriptions for {@link SubscriptionQueryEngine}, built from the factory
+ * methods and combined with {@link #and}, {@link #or} and {@link #not}. Evaluating a filter
+ * yields the bitmap of matching rows: status and provider filters are index lookups,
+ * expiration ranges come from the bucketed expiration index, and user id sets from the
+ * user id index.
+ */
+public final class SubscriptionFilter {
+
+    private final Function<SubscriptionQueryEngine, CompressedBitmap> evaluator;
+
+    private SubscriptionFilter(Function<SubscriptionQueryEngine, CompressedBitmap> evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    public static SubscriptionFilter all() {
+        return new SubscriptionFilter(SubscriptionQueryEngine::liveRows);
+    }
+
+    public static SubscriptionFilter status(Status... statuses) {
+        var copy = statuses.clone();
+        return new SubscriptionFilter(engine -> {
+            var rows = new CompressedBitmap();
+            for (Status status : copy) {
+                rows = CompressedBitmap.or(rows, engine.rowsWithStatus(status));
+            }
+            return rows;
+        });
+    }
+
+    public static SubscriptionFilter provider(Provider... providers) {
+        var copy = providers.clone();
+        return new SubscriptionFilter(engine -> {
+            var rows = new CompressedBitmap();
+            for (Provider provider : copy) {
+                rows = CompressedBitmap.or(rows, engine.rowsWithProvider(provider));
+            }
+            return rows;
+        });
+    }
+
+    /**
+     * Subscriptions expiring at or after {@code from} and before {@code to}.
+     */
+    public static SubscriptionFilter expiringBetween(Instant from, Instant to) {
+        long fromMillis = from.toEpochMilli();
+        long toMillis = to.toEpochMilli();
+        return new SubscriptionFilter(engine -> engine.rowsExpiringBetween(fromMillis, toMillis));
+    }
+
+    public static SubscriptionFilter expiringBefore(Instant to) {
+        long toMillis = to.toEpochMilli();
+        return new SubscriptionFilter(engine -> engine.rowsExpiringBetween(Long.MIN_VALUE, toMillis));
+    }
+
+    public static SubscriptionFilter userIdIn(Collection<Integer> userIds) {
+        var sortedUserIds = userIds.stream()
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .sorted()
+                .distinct()
+                .toArray();
+        return new SubscriptionFilter(engine -> engine.rowsWithUserIdIn(sortedUserIds));
+    }
+
+    public static SubscriptionFilter not(SubscriptionFilter filter) {
+        return new SubscriptionFilter(engine -> CompressedBitmap.andNot(engine.liveRows(), filter.evaluate(engine)));
+    }
+
+    public SubscriptionFilter and(SubscriptionFilter other) {
+        return new SubscriptionFilter(engine -> CompressedBitmap.and(evaluate(engine), other.evaluate(engine)));
+    }
+
+    public SubscriptionFilter or(SubscriptionFilter other) {
+        return new SubscriptionFilter(engine -> CompressedBitmap.or(evaluate(engine), other.evaluate(engine)));
+    }
+
+    CompressedBitmap evaluate(SubscriptionQueryEngine engine) {
+        return evaluator.apply(engine);
+    }
+}
@@ -0,0 +1,285 @@
+package com.dmdev.query;
+
+import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * In-memory copy of the {@code subscription} table for ad-hoc filters, counts and top-N
+ * queries that would otherwise scan the database. Rows are kept column-wise in a
+ * {@link SubscriptionTable} with bitmap indexes per status and provider, an hour-bucketed
+ * {@link ExpirationIndex} and a user id index; a {@link SubscriptionFilter} turns into
+ * bitmap operations over these, so only matching rows are ever materialized.
+ * <p>
+ * The copy is filled by a streaming scan ({@link #reload}) and kept current by
+ * {@link #put} and {@link #remove}, which {@link com.dmdev.dao.IndexedSubscriptionDao} calls
+ * from the write path.
+ * <p>
+ * Any number of queries run at once under a read lock; writes take the write lock. A
+ * reload fills a fresh table without the lock and swaps it in, so queries and writes go on
+ * against the old table meanwhile. Building result objects is split into blocks of 65 536
+ * rows run on {@code pool}; bitmap operations stay on the calling thread.
+ */
+public class SubscriptionQueryEngine {
+
+    private static final int BLOCK_ROWS = 1 << 16;
+
+    private final ForkJoinPool pool;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object reloadLock = new Object();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private SubscriptionTable table = new SubscriptionTable();
+    /**
+     * Writes made while a reload scans, replayed on the fresh table before it is swapped
+     * in; {@code null} when no reload runs.
+     */
+    private List<Consumer<SubscriptionTable>> writesDuringReload;
+
+    public SubscriptionQueryEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public SubscriptionQueryEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Creates an engine filled from {@code subscriptionDao}.
+     */
+    public static SubscriptionQueryEngine load(SubscriptionDao subscriptionDao) {
+        var engine = new SubscriptionQueryEngine();
+        engine.reload(subscriptionDao);
+        return engine;
+    }
+
+    /**
+     * Replaces the contents with a streaming scan of {@code subscriptionDao}. The scan fills
+     * a fresh table while queries and writes keep using the current one; writes made
+     * meanwhile are also recorded and replayed on the fresh table before it replaces the
+     * current one, so none is lost. Concurrent reloads run one after another.
+     */
+    public void reload(SubscriptionDao subscriptionDao) {
+        synchronized (reloadLock) {
+            lock.writeLock().lock();
+            try {
+                writesDuringReload = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            var fresh = new SubscriptionTable();
+            boolean scanned = false;
+            try {
+                subscriptionDao.scanAll(fresh::put);
+                scanned = true;
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    if (scanned) {
+                        writesDuringReload.forEach(write -> write.accept(fresh));
+                        table = fresh;
+                    }
+                    writesDuringReload = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds {@code subscription} or replaces the row with its id.
+     */
+    public void put(Subscription subscription) {
+        if (subscription.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            table.put(subscription);
+            if (writesDuringReload != null) {
+                var copy = subscription.toBuilder().build();
+                writesDuringReload.add(fresh -> fresh.put(copy));
+            }
+            writes.increment();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            boolean removed = table.remove(id);
+            if (writesDuringReload != null) {
+                writesDuringReload.add(fresh -> fresh.remove(id));
+            }
+            if (removed) {
+                writes.increment();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int count(SubscriptionFilter filter) {
+        lock.readLock().lock();
+        try {
+            queries.increment();
+            return filter.evaluate(this).cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return ids of the matching subscriptions, ascending
+     */
+    public int[] findIds(SubscriptionFilter filter) {
+        int[] matching;
+        lock.readLock().lock();
+        try {
+            queries.increment();
+            matching = filter.evaluate(this).toArray();
+            for (int i = 0; i < matching.length; i++) {
+                matching[i] = table.idAt(matching[i]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Arrays.sort(matching);
+        return matching;
+    }
+
+    /**
+     * @return the matching subscriptions, in no particular order
+     */
+    public List<Subscription> find(SubscriptionFilter filter) {
+        lock.readLock().lock();
+        try {
+            queries.increment();
+            return materialize(filter.evaluate(this).toArray());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return up to {@code limit} matching subscriptions, soonest expiration first
+     */
+    public List<Subscription> findSoonestExpiring(SubscriptionFilter filter, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            queries.increment();
+            return materialize(table.soonestExpiring(filter.evaluate(this), limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return table.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getQueries() {
+        return queries.sum();
+    }
+
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    CompressedBitmap liveRows() {
+        return table.liveRows();
+    }
+
+    CompressedBitmap rowsWithStatus(Status status) {
+        return table.rowsWithStatus(status);
+    }
+
+    CompressedBitmap rowsWithProvider(Provider provider) {
+        return table.rowsWithProvider(provider);
+    }
+
+    CompressedBitmap rowsExpiringBetween(long fromMillis, long toMillis) {
+        return table.rowsExpiringBetween(fromMillis, toMillis);
+    }
+
+    /**
+     * @param userIds distinct user ids
+     */
+    CompressedBitmap rowsWithUserIdIn(int[] userIds) {
+        return table.rowsWithUserIdIn(userIds);
+    }
+
+    private List<Subscription> materialize(int[] rows) {
+        var source = table;
+        var subscriptions = new Subscription[rows.length];
+        forEachBlock(rows.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                subscriptions[i] = source.read(rows[i]);
+            }
+        });
+        return Arrays.asList(subscriptions);
+    }
+
+    /**
+     * Runs {@code task} over {@code [0, length)} in blocks of {@link #BLOCK_ROWS}, on the
+     * pool if there is more than one block.
+     */
+    private void forEachBlock(int length, BlockTask task) {
+        if (length <= BLOCK_ROWS) {
+            task.run(0, length);
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < length; from += BLOCK_ROWS) {
+            int blockFrom = from;
+            int blockTo = Math.min(from + BLOCK_ROWS, length);
+            tasks.add(() -> {
+                task.run(blockFrom, blockTo);
+                return null;
+            });
+        }
+        for (Future<Void> future : pool.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while running a query", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface BlockTask {
+
+        void run(int from, int to);
+    }
+}
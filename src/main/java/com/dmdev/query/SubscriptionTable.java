@@ -0,0 +1,217 @@
+package com.dmdev.query;
+
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Rows of {@link SubscriptionQueryEngine}, stored column-wise in primitive arrays, with
+ * their indexes: a {@link CompressedBitmap} per {@link Status} and per {@link Provider}, a
+ * bitmap of live rows, an {@link ExpirationIndex}, and per user id a doubly linked list of
+ * its rows threaded through two more columns. Row numbers of removed subscriptions are
+ * reused. Not thread-safe; the engine guards it with its lock.
+ */
+final class SubscriptionTable {
+
+    private static final int INITIAL_CAPACITY = 1_024;
+    private static final int NO_ROW = IntIntMap.ABSENT;
+    private static final Status[] STATUSES = Status.values();
+    private static final Provider[] PROVIDERS = Provider.values();
+
+    private final IntIntMap rowsById = new IntIntMap();
+    private final IntIntMap firstRowByUserId = new IntIntMap();
+    private final CompressedBitmap live = new CompressedBitmap();
+    private final CompressedBitmap[] rowsByStatus = newBitmaps(STATUSES.length);
+    private final CompressedBitmap[] rowsByProvider = newBitmaps(PROVIDERS.length);
+    private final ExpirationIndex expirationIndex = new ExpirationIndex();
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] userIds = new int[INITIAL_CAPACITY];
+    private int[] nextRowOfUser = new int[INITIAL_CAPACITY];
+    private int[] previousRowOfUser = new int[INITIAL_CAPACITY];
+    private long[] expirations = new long[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private byte[] providers = new byte[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int[] freeRows = new int[16];
+    private int freeCount;
+    private int rowCount;
+
+    /**
+     * Adds {@code subscription} or replaces the row with its id.
+     */
+    void put(Subscription subscription) {
+        int id = subscription.getId();
+        int userId = subscription.getUserId();
+        byte status = (byte) subscription.getStatus().ordinal();
+        byte provider = (byte) subscription.getProvider().ordinal();
+        long expiration = subscription.getExpirationDate().toEpochMilli();
+        int row = rowsById.get(id);
+        if (row == NO_ROW) {
+            row = allocateRow();
+            rowsById.put(id, row);
+            live.add(row);
+            rowsByStatus[status].add(row);
+            rowsByProvider[provider].add(row);
+            expirationIndex.add(row, expiration);
+            linkToUser(row, userId);
+        } else {
+            if (statuses[row] != status) {
+                rowsByStatus[statuses[row]].remove(row);
+                rowsByStatus[status].add(row);
+            }
+            if (providers[row] != provider) {
+                rowsByProvider[providers[row]].remove(row);
+                rowsByProvider[provider].add(row);
+            }
+            if (expirations[row] != expiration) {
+                expirationIndex.remove(row, expirations[row]);
+                expirationIndex.add(row, expiration);
+            }
+            if (userIds[row] != userId) {
+                unlinkFromUser(row);
+                linkToUser(row, userId);
+            }
+        }
+        ids[row] = id;
+        userIds[row] = userId;
+        expirations[row] = expiration;
+        statuses[row] = status;
+        providers[row] = provider;
+        names[row] = subscription.getName();
+    }
+
+    /**
+     * @return whether a row with {@code id} was there
+     */
+    boolean remove(int id) {
+        int row = rowsById.remove(id);
+        if (row == NO_ROW) {
+            return false;
+        }
+        live.remove(row);
+        rowsByStatus[statuses[row]].remove(row);
+        rowsByProvider[providers[row]].remove(row);
+        expirationIndex.remove(row, expirations[row]);
+        unlinkFromUser(row);
+        names[row] = null;
+        if (freeCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+        }
+        freeRows[freeCount++] = row;
+        return true;
+    }
+
+    int size() {
+        return rowsById.size();
+    }
+
+    int idAt(int row) {
+        return ids[row];
+    }
+
+    Subscription read(int row) {
+        return Subscription.builder()
+                .id(ids[row])
+                .userId(userIds[row])
+                .name(names[row])
+                .provider(PROVIDERS[providers[row]])
+                .expirationDate(Instant.ofEpochMilli(expirations[row]))
+                .status(STATUSES[statuses[row]])
+                .build();
+    }
+
+    CompressedBitmap liveRows() {
+        return live;
+    }
+
+    CompressedBitmap rowsWithStatus(Status status) {
+        return rowsByStatus[status.ordinal()];
+    }
+
+    CompressedBitmap rowsWithProvider(Provider provider) {
+        return rowsByProvider[provider.ordinal()];
+    }
+
+    CompressedBitmap rowsExpiringBetween(long fromMillis, long toMillis) {
+        return expirationIndex.between(fromMillis, toMillis, expirations, rowCount);
+    }
+
+    /**
+     * @param userIds distinct user ids
+     */
+    CompressedBitmap rowsWithUserIdIn(int[] userIds) {
+        var rows = new int[16];
+        int length = 0;
+        for (int userId : userIds) {
+            for (int row = firstRowByUserId.get(userId); row != NO_ROW; row = nextRowOfUser[row]) {
+                if (length == rows.length) {
+                    rows = Arrays.copyOf(rows, length * 2);
+                }
+                rows[length++] = row;
+            }
+        }
+        Arrays.sort(rows, 0, length);
+        return CompressedBitmap.of(rows, length);
+    }
+
+    /**
+     * @return up to {@code limit} rows of {@code candidates}, soonest expiration first
+     */
+    int[] soonestExpiring(CompressedBitmap candidates, int limit) {
+        return expirationIndex.soonest(candidates, limit, expirations);
+    }
+
+    private void linkToUser(int row, int userId) {
+        int first = firstRowByUserId.get(userId);
+        nextRowOfUser[row] = first;
+        previousRowOfUser[row] = NO_ROW;
+        if (first != NO_ROW) {
+            previousRowOfUser[first] = row;
+        }
+        firstRowByUserId.put(userId, row);
+    }
+
+    private void unlinkFromUser(int row) {
+        int previous = previousRowOfUser[row];
+        int next = nextRowOfUser[row];
+        if (previous != NO_ROW) {
+            nextRowOfUser[previous] = next;
+        } else if (next != NO_ROW) {
+            firstRowByUserId.put(userIds[row], next);
+        } else {
+            firstRowByUserId.remove(userIds[row]);
+        }
+        if (next != NO_ROW) {
+            previousRowOfUser[next] = previous;
+        }
+    }
+
+    private int allocateRow() {
+        if (freeCount > 0) {
+            return freeRows[--freeCount];
+        }
+        if (rowCount == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            userIds = Arrays.copyOf(userIds, capacity);
+            nextRowOfUser = Arrays.copyOf(nextRowOfUser, capacity);
+            previousRowOfUser = Arrays.copyOf(previousRowOfUser, capacity);
+            expirations = Arrays.copyOf(expirations, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            providers = Arrays.copyOf(providers, capacity);
+            names = Arrays.copyOf(names, capacity);
+        }
+        return rowCount++;
+    }
+
+    private static CompressedBitmap[] newBitmaps(int count) {
+        var bitmaps = new CompressedBitmap[count];
+        for (int i = 0; i < count; i++) {
+            bitmaps[i] = new CompressedBitmap();
+        }
+        return bitmaps;
+    }
+}
@@ -0,0 +1,149 @@
+package com.dmdev.scheduler;
+
+import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.service.SubscriptionListener;
+import com.dmdev.service.SubscriptionOperation;
+import com.dmdev.service.SubscriptionService;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fires subscription expirations at their {@code expirationDate} instead of polling the table.
+ * <p>
+ * Only ACTIVE subscriptions expiring within the look-ahead window are held in memory; the
+ * window rolls forward on every tick. Register the scheduler as a listener of the service so
+ * renewals reschedule and cancellations drop their entries. All time is read from the
+ * service's {@link Clock}.
+ */
+public class ExpiryScheduler implements SubscriptionListener, AutoCloseable {
+
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 4;
+
+    private final SubscriptionService subscriptionService;
+    private final SubscriptionDao subscriptionDao;
+    private final Clock clock;
+    private final long tickMillis;
+    private final long lookAheadMillis;
+    private final TimingWheel timingWheel;
+    private final LongAdder firedExpirations = new LongAdder();
+    private Instant loadedUntil;
+    private ScheduledFuture<?> tickTask;
+
+    public ExpiryScheduler(SubscriptionService subscriptionService, SubscriptionDao subscriptionDao,
+                           Duration tick, Duration lookAhead) {
+        this.subscriptionService = subscriptionService;
+        this.subscriptionDao = subscriptionDao;
+        this.clock = subscriptionService.getClock();
+        this.tickMillis = tick.toMillis();
+        this.lookAheadMillis = lookAhead.toMillis();
+        this.timingWheel = new TimingWheel(tickMillis, WHEEL_SIZE, WHEEL_LEVELS, clock.millis());
+        if (lookAheadMillis + tickMillis >= timingWheel.getSpanMillis()) {
+            throw new IllegalArgumentException("Look-ahead window exceeds timing wheel span of "
+                                               + Duration.ofMillis(timingWheel.getSpanMillis()));
+        }
+    }
+
+    /**
+     * Loads every ACTIVE subscription expiring before the end of the first window.
+     * Subscriptions that are already overdue fire on the next tick.
+     */
+    public synchronized void load() {
+        loadedUntil = clock.instant().plusMillis(lookAheadMillis);
+        loadRange(Instant.EPOCH, loadedUntil);
+    }
+
+    /**
+     * Advances the wheel to the current time, expires everything that became due and
+     * extends the look-ahead window.
+     *
+     * @return number of subscriptions expired by this tick
+     */
+    public int tick() {
+        List<Integer> due = new ArrayList<>();
+        synchronized (this) {
+            if (loadedUntil == null) {
+                load();
+            }
+            var now = clock.instant();
+            timingWheel.advanceTo(now.toEpochMilli(), due::add);
+            var until = now.plusMillis(lookAheadMillis);
+            if (until.isAfter(loadedUntil)) {
+                var from = loadedUntil;
+                loadedUntil = until;
+                loadRange(from, until);
+            }
+        }
+        if (due.isEmpty()) {
+            return 0;
+        }
+        int expired = subscriptionService.expireAll(due);
+        firedExpirations.add(expired);
+        return expired;
+    }
+
+    public synchronized void start(ScheduledExecutorService executor) {
+        if (tickTask != null) {
+            throw new IllegalStateException("Expiry scheduler is already started");
+        }
+        tickTask = executor.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (tickTask != null) {
+            tickTask.cancel(false);
+            tickTask = null;
+        }
+    }
+
+    @Override
+    public synchronized void onTransition(SubscriptionOperation operation, Status previousStatus,
+                                          Subscription subscription) {
+        if (subscription.getId() == null) {
+            return;
+        }
+        if (subscription.getStatus() == Status.ACTIVE) {
+            schedule(subscription);
+        } else {
+            timingWheel.cancel(subscription.getId());
+        }
+    }
+
+    public synchronized int getScheduledCount() {
+        return timingWheel.size();
+    }
+
+    public synchronized boolean isScheduled(int subscriptionId) {
+        return timingWheel.contains(subscriptionId);
+    }
+
+    public long getFiredExpirations() {
+        return firedExpirations.sum();
+    }
+
+    private void loadRange(Instant from, Instant to) {
+        for (Subscription subscription : subscriptionDao.findByStatusAndExpirationBetween(Status.ACTIVE, from, to)) {
+            schedule(subscription);
+        }
+    }
+
+    private void schedule(Subscription subscription) {
+        var expirationDate = subscription.getExpirationDate();
+        if (loadedUntil != null && !expirationDate.isBefore(loadedUntil)) {
+            timingWheel.cancel(subscription.getId());
+            return;
+        }
+        timingWheel.schedule(subscription.getId(), expirationDate.toEpochMilli());
+    }
+}
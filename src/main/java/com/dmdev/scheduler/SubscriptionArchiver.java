@@ -0,0 +1,140 @@
+package com.dmdev.scheduler;
+
+import com.dmdev.dao.SubscriptionDao;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves CANCELED and EXPIRED subscriptions that have been terminal for longer than
+ * {@code minAge} into {@code subscription_archive}.
+ * <p>
+ * Rows are moved in chunks, one transaction per chunk, and chunks are spaced so that at
+ * most {@code maxBatchesPerSecond} run, which keeps the job safe to run during peak hours.
+ * A row counts as terminal since its {@code expiration_date}: {@code expire} stamps it with
+ * the expiry time, and a canceled subscription stays usable until that date.
+ */
+public class SubscriptionArchiver implements AutoCloseable {
+
+    private final SubscriptionDao subscriptionDao;
+    private final Clock clock;
+    private final Duration minAge;
+    private final int batchSize;
+    private final long minBatchIntervalNanos;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder archivedRows = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder runs = new LongAdder();
+    private volatile boolean stopped;
+    private volatile long lastRunArchivedRows;
+    private volatile Duration lastRunDuration = Duration.ZERO;
+    private ScheduledFuture<?> runTask;
+
+    public SubscriptionArchiver(SubscriptionDao subscriptionDao, Clock clock, Duration minAge,
+                                int batchSize, double maxBatchesPerSecond) {
+        if (batchSize <= 0 || maxBatchesPerSecond <= 0) {
+            throw new IllegalArgumentException("batchSize and maxBatchesPerSecond must be positive");
+        }
+        this.subscriptionDao = subscriptionDao;
+        this.clock = clock;
+        this.minAge = minAge;
+        this.batchSize = batchSize;
+        this.minBatchIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / maxBatchesPerSecond);
+    }
+
+    /**
+     * Archives everything that is currently eligible, chunk by chunk, unless the archiver is
+     * closed in the meantime. Does nothing if another run is in progress.
+     *
+     * @return number of rows archived by this run
+     */
+    public long runOnce() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        long started = System.nanoTime();
+        long archived = 0;
+        try {
+            var terminalBefore = clock.instant().minus(minAge);
+            while (!stopped) {
+                long batchStarted = System.nanoTime();
+                int moved = subscriptionDao.archiveTerminal(terminalBefore, batchSize, clock.instant());
+                batches.increment();
+                archivedRows.add(moved);
+                archived += moved;
+                if (moved < batchSize) {
+                    break;
+                }
+                throttle(batchStarted);
+            }
+        } finally {
+            runs.increment();
+            lastRunArchivedRows = archived;
+            lastRunDuration = Duration.ofNanos(System.nanoTime() - started);
+            running.set(false);
+        }
+        return archived;
+    }
+
+    public synchronized void start(ScheduledExecutorService executor, Duration interval) {
+        if (runTask != null) {
+            throw new IllegalStateException("Archiver is already started");
+        }
+        stopped = false;
+        runTask = executor.scheduleWithFixedDelay(this::runOnce, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops scheduling and makes a run in progress finish after its current chunk.
+     */
+    @Override
+    public synchronized void close() {
+        stopped = true;
+        if (runTask != null) {
+            runTask.cancel(false);
+            runTask = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public long getArchivedRows() {
+        return archivedRows.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getRuns() {
+        return runs.sum();
+    }
+
+    public long getLastRunArchivedRows() {
+        return lastRunArchivedRows;
+    }
+
+    public Duration getLastRunDuration() {
+        return lastRunDuration;
+    }
+
+    private void throttle(long batchStarted) {
+        long remaining = minBatchIntervalNanos - (System.nanoTime() - batchStarted);
+        if (remaining <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = true;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.dmdev.scheduler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Hierarchical timing wheel keyed by {@code int} ids.
+ * <p>
+ * Level {@code n} has {@code wheelSize} slots of {@code wheelSize^n} ticks each, so the wheel
+ * spans {@code wheelSize^levels} ticks. Schedule and cancel are O(1); advancing is O(1) per tick
+ * plus one re-insert per entry and level it cascades through. Deadlines beyond the span are
+ * rejected, which keeps memory bounded by what the caller decides to load.
+ * <p>
+ * Not thread-safe.
+ */
+public class TimingWheel {
+
+    private final long tickMillis;
+    private final int slotBits;
+    private final int slotMask;
+    private final int levels;
+    private final Entry[][] slots;
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private long currentTick;
+
+    public TimingWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+        if (tickMillis <= 0 || Integer.bitCount(wheelSize) != 1 || wheelSize < 2 || levels < 1
+            || (long) Integer.numberOfTrailingZeros(wheelSize) * levels > 62) {
+            throw new IllegalArgumentException("Invalid timing wheel configuration");
+        }
+        this.tickMillis = tickMillis;
+        this.slotBits = Integer.numberOfTrailingZeros(wheelSize);
+        this.slotMask = wheelSize - 1;
+        this.levels = levels;
+        this.slots = new Entry[levels][wheelSize];
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedules (or reschedules) {@code id} to fire at {@code deadlineMillis}.
+     *
+     * @return {@code false} if the deadline is beyond the wheel span; the id is not scheduled then
+     */
+    public boolean schedule(int id, long deadlineMillis) {
+        cancel(id);
+        long deadlineTick = Math.max(ceilDiv(deadlineMillis, tickMillis), currentTick + 1);
+        if (deadlineTick - currentTick >= getSpanTicks()) {
+            return false;
+        }
+        var entry = new Entry(id, deadlineTick);
+        entries.put(id, entry);
+        place(entry);
+        return true;
+    }
+
+    public boolean cancel(int id) {
+        var entry = entries.remove(id);
+        if (entry == null) {
+            return false;
+        }
+        unlink(entry);
+        return true;
+    }
+
+    public boolean contains(int id) {
+        return entries.containsKey(id);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getSpanMillis() {
+        return getSpanTicks() * tickMillis;
+    }
+
+    public long getCurrentMillis() {
+        return currentTick * tickMillis;
+    }
+
+    /**
+     * Advances the wheel to {@code nowMillis} and passes every id whose deadline has been
+     * reached to {@code expired}, in deadline order.
+     */
+    public void advanceTo(long nowMillis, IntConsumer expired) {
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            if (entries.isEmpty()) {
+                currentTick = targetTick;
+                return;
+            }
+            currentTick++;
+            cascade();
+            var head = slots[0][(int) (currentTick & slotMask)];
+            while (head != null) {
+                var next = head.next;
+                unlink(head);
+                entries.remove(head.id);
+                expired.accept(head.id);
+                head = next;
+            }
+        }
+    }
+
+    private void cascade() {
+        for (int level = levels - 1; level > 0; level--) {
+            if ((currentTick & ((1L << (slotBits * level)) - 1)) != 0) {
+                continue;
+            }
+            int slot = (int) ((currentTick >>> (slotBits * level)) & slotMask);
+            var head = slots[level][slot];
+            slots[level][slot] = null;
+            while (head != null) {
+                var next = head.next;
+                head.previous = null;
+                head.next = null;
+                place(head);
+                head = next;
+            }
+        }
+    }
+
+    private void place(Entry entry) {
+        int level = 0;
+        while (level < levels - 1
+               && (entry.deadlineTick >>> (slotBits * (level + 1))) != (currentTick >>> (slotBits * (level + 1)))) {
+            level++;
+        }
+        int slot = (int) ((entry.deadlineTick >>> (slotBits * level)) & slotMask);
+        var head = slots[level][slot];
+        entry.level = level;
+        entry.slot = slot;
+        entry.previous = null;
+        entry.next = head;
+        if (head != null) {
+            head.previous = entry;
+        }
+        slots[level][slot] = entry;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.previous != null) {
+            entry.previous.next = entry.next;
+        } else if (slots[entry.level][entry.slot] == entry) {
+            slots[entry.level][entry.slot] = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.previous = entry.previous;
+        }
+        entry.previous = null;
+        entry.next = null;
+    }
+
+    private long getSpanTicks() {
+        return 1L << (slotBits * levels);
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+
+    private static final class Entry {
+        private final int id;
+        private final long deadlineTick;
+        private int level;
+        private int slot;
+        private Entry previous;
+        private Entry next;
+
+        private Entry(int id, long deadlineTick) {
+            this.id = id;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
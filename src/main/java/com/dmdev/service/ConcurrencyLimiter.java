@@ -0,0 +1,199 @@
+package com.dmdev.service;
+
+import com.dmdev.exception.LimitExceededException;
+import com.dmdev.util.PropertiesUtil;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control that caps the number of in-flight calls with an AIMD limit driven by
+ * observed latency. A call that completes within {@code latencyThreshold} while the limit
+ * is at least half used raises the limit by one; a slower call cuts it by
+ * {@value #BACKOFF_RATIO}, at most once per round trip, so one burst of slow calls does
+ * not collapse the limit to its minimum.
+ * <p>
+ * A caller that finds the limit reached waits up to {@code maxWait} in a queue of at most
+ * {@code maxQueued} callers and is rejected with {@link LimitExceededException} after that.
+ */
+public class ConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private static final String INITIAL_LIMIT_KEY = "subscription.limiter.initial-limit";
+    private static final String MIN_LIMIT_KEY = "subscription.limiter.min-limit";
+    private static final String MAX_LIMIT_KEY = "subscription.limiter.max-limit";
+    private static final String LATENCY_THRESHOLD_KEY = "subscription.limiter.latency-threshold-ms";
+    private static final String MAX_WAIT_KEY = "subscription.limiter.max-wait-ms";
+    private static final String MAX_QUEUED_KEY = "subscription.limiter.max-queued";
+
+    private static final int DEFAULT_INITIAL_LIMIT = 20;
+    private static final int DEFAULT_MIN_LIMIT = 1;
+    private static final int DEFAULT_MAX_LIMIT = 200;
+    private static final int DEFAULT_LATENCY_THRESHOLD_MS = 100;
+    private static final int DEFAULT_MAX_WAIT_MS = 50;
+    private static final int DEFAULT_MAX_QUEUED = 100;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final long maxWaitNanos;
+    private final int maxQueued;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder decreases = new LongAdder();
+    private volatile double limit;
+    private volatile int inFlight;
+    private volatile int queued;
+    private long lastDecreaseNanos = System.nanoTime();
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold,
+                              Duration maxWait, int maxQueued) {
+        if (minLimit <= 0 || minLimit > initialLimit || initialLimit > maxLimit || maxQueued < 0) {
+            throw new IllegalArgumentException("Limits must satisfy 0 < min <= initial <= max and maxQueued >= 0");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.maxWaitNanos = maxWait.toNanos();
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Creates a limiter configured from {@code application.properties}.
+     */
+    public static ConcurrencyLimiter load() {
+        return new ConcurrencyLimiter(
+                getInt(INITIAL_LIMIT_KEY, DEFAULT_INITIAL_LIMIT),
+                getInt(MIN_LIMIT_KEY, DEFAULT_MIN_LIMIT),
+                getInt(MAX_LIMIT_KEY, DEFAULT_MAX_LIMIT),
+                Duration.ofMillis(getInt(LATENCY_THRESHOLD_KEY, DEFAULT_LATENCY_THRESHOLD_MS)),
+                Duration.ofMillis(getInt(MAX_WAIT_KEY, DEFAULT_MAX_WAIT_MS)),
+                getInt(MAX_QUEUED_KEY, DEFAULT_MAX_QUEUED));
+    }
+
+    /**
+     * Takes a permit, waiting up to {@code maxWait} for one. The permit must be closed when
+     * the call completes, whatever its outcome; its duration is the latency sample.
+     *
+     * @throws LimitExceededException if the queue is full or no permit frees up in time
+     */
+    public Permit acquire() {
+        lock.lock();
+        try {
+            if (queued == 0 && inFlight < (int) limit) {
+                return admit();
+            }
+            if (queued >= maxQueued) {
+                throw reject("queue is full");
+            }
+            queued++;
+            try {
+                long remainingNanos = maxWaitNanos;
+                while (inFlight >= (int) limit) {
+                    if (remainingNanos <= 0) {
+                        throw reject("no permit within " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + " ms");
+                    }
+                    remainingNanos = permitReleased.awaitNanos(remainingNanos);
+                }
+                return admit();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw reject("interrupted while waiting");
+            } finally {
+                queued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    public long getDecreases() {
+        return decreases.sum();
+    }
+
+    private Permit admit() {
+        inFlight++;
+        accepted.increment();
+        return new Permit(System.nanoTime());
+    }
+
+    private LimitExceededException reject(String reason) {
+        rejections.increment();
+        return new LimitExceededException("Concurrency limit " + (int) limit + " reached: " + reason);
+    }
+
+    private void release(long startNanos) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            int previousLimit = (int) limit;
+            if (now - startNanos > latencyThresholdNanos) {
+                if (startNanos - lastDecreaseNanos > 0) {
+                    limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                    lastDecreaseNanos = now;
+                    decreases.increment();
+                }
+            } else if (inFlight * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+            inFlight--;
+            if ((int) limit > previousLimit) {
+                permitReleased.signalAll();
+            } else {
+                permitReleased.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static int getInt(String key, int defaultValue) {
+        var value = PropertiesUtil.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public final class Permit implements AutoCloseable {
+
+        private final long startNanos;
+        private boolean released;
+
+        private Permit(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(startNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.dmdev.service;
+
+import com.dmdev.dao.IdempotencyKeyDao;
+import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.entity.Subscription;
+import com.dmdev.exception.IdempotencyKeyReusedException;
+import com.dmdev.util.PropertiesUtil;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the result of each upsert by its idempotency key, so a retried call returns the
+ * stored subscription instead of running again. Results are kept for {@code ttl} after the
+ * first call completed, in a table of at most {@code capacity} keys that drops the least
+ * recently used key when full. A call that arrives while the first call for its key is
+ * still running waits for that call and shares its result; a failed call is not remembered,
+ * so its retry runs again.
+ * <p>
+ * Each key is bound to the hash of the request it was first used with. A call that reuses
+ * a remembered key for a different request fails with
+ * {@link IdempotencyKeyReusedException} instead of getting the other request's result.
+ * <p>
+ * With {@link #setPersistence persistence}, completed keys are also written to the
+ * {@code idempotency_key} table and looked up there on a local miss, which lets keys survive
+ * a restart and be honoured by other nodes. Such a hit reloads the subscription by id, so it
+ * reflects the row as it is now rather than as the first call left it.
+ * <p>
+ * Callers get copies, never the stored instances.
+ */
+public class IdempotencyStore {
+
+    private static final String CAPACITY_KEY = "subscription.idempotency.capacity";
+    private static final String TTL_SECONDS_KEY = "subscription.idempotency.ttl-seconds";
+
+    private static final int DEFAULT_CAPACITY = 100_000;
+    private static final int DEFAULT_TTL_SECONDS = 24 * 60 * 60;
+
+    private final int capacity;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder waited = new LongAdder();
+    private final LongAdder reusedKeys = new LongAdder();
+    private final LongAdder persistedHits = new LongAdder();
+    private final LongAdder persistFailures = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile IdempotencyKeyDao keyDao;
+    private volatile SubscriptionDao subscriptionDao;
+
+    public IdempotencyStore(int capacity, Duration ttl, Clock clock) {
+        if (capacity <= 0 || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("capacity and ttl must be positive");
+        }
+        this.capacity = capacity;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Creates a store configured from {@code application.properties}.
+     */
+    public static IdempotencyStore load(Clock clock) {
+        return new IdempotencyStore(getInt(CAPACITY_KEY, DEFAULT_CAPACITY),
+                Duration.ofSeconds(getInt(TTL_SECONDS_KEY, DEFAULT_TTL_SECONDS)), clock);
+    }
+
+    /**
+     * Keeps completed keys in {@code keyDao} as well, resolving them through
+     * {@code subscriptionDao} on a local miss.
+     */
+    public IdempotencyStore setPersistence(IdempotencyKeyDao keyDao, SubscriptionDao subscriptionDao) {
+        this.subscriptionDao = subscriptionDao;
+        this.keyDao = keyDao;
+        return this;
+    }
+
+    /**
+     * Returns the result remembered for {@code key}, waiting for it if the first call is
+     * still running, or runs {@code upsert} and remembers its result.
+     *
+     * @param requestHash hash of the request {@code upsert} carries out
+     * @throws IdempotencyKeyReusedException if {@code key} was used for a request with a
+     *                                       different hash
+     */
+    public Subscription execute(String key, String requestHash, Supplier<Subscription> upsert) {
+        var future = new CompletableFuture<Subscription>();
+        Entry existing;
+        synchronized (this) {
+            existing = entries.get(key);
+            if (existing != null && existing.expiresAtMillis <= clock.millis()) {
+                entries.remove(key);
+                expirations.increment();
+                existing = null;
+            }
+            if (existing == null) {
+                entries.put(key, new Entry(future, requestHash));
+                evictOverCapacity();
+            }
+        }
+        if (existing != null) {
+            if (!existing.requestHash.equals(requestHash)) {
+                throw reused(key);
+            }
+            (existing.future.isDone() ? deduplicated : waited).increment();
+            return copy(join(existing.future));
+        }
+
+        try {
+            var result = loadPersisted(key, requestHash);
+            if (result == null) {
+                executed.increment();
+                result = copy(upsert.get());
+                persist(key, requestHash, result);
+            }
+            complete(key, future, result);
+            return copy(result);
+        } catch (RuntimeException | Error e) {
+            forget(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Calls that ran the upsert.
+     */
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    /**
+     * Calls answered from a completed result, without touching the database.
+     */
+    public long getDeduplicated() {
+        return deduplicated.sum();
+    }
+
+    /**
+     * Calls that arrived while the first call for their key was running and shared its result.
+     */
+    public long getWaited() {
+        return waited.sum();
+    }
+
+    /**
+     * Calls rejected because their key had been used for a different request.
+     */
+    public long getReusedKeys() {
+        return reusedKeys.sum();
+    }
+
+    /**
+     * Calls answered from a key found in the {@code idempotency_key} table.
+     */
+    public long getPersistedHits() {
+        return persistedHits.sum();
+    }
+
+    public long getPersistFailures() {
+        return persistFailures.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private Subscription loadPersisted(String key, String requestHash) {
+        var persistence = keyDao;
+        if (persistence == null) {
+            return null;
+        }
+        var storedKey = persistence.findLive(key, Instant.now(clock)).orElse(null);
+        if (storedKey == null) {
+            return null;
+        }
+        if (!storedKey.getRequestHash().equals(requestHash)) {
+            throw reused(key);
+        }
+        var subscription = subscriptionDao.findById(storedKey.getSubscriptionId()).orElse(null);
+        if (subscription != null) {
+            persistedHits.increment();
+        }
+        return subscription;
+    }
+
+    /**
+     * A key that cannot be written only loses protection on other nodes and after a restart;
+     * the upsert itself succeeded, so the failure is counted rather than thrown.
+     */
+    private void persist(String key, String requestHash, Subscription result) {
+        var persistence = keyDao;
+        if (persistence == null || result.getId() == null) {
+            return;
+        }
+        try {
+            persistence.save(key, result.getId(), requestHash, Instant.now(clock).plusMillis(ttlMillis));
+        } catch (RuntimeException e) {
+            persistFailures.increment();
+        }
+    }
+
+    private synchronized void complete(String key, CompletableFuture<Subscription> future, Subscription result) {
+        future.complete(result);
+        var entry = entries.get(key);
+        if (entry != null && entry.future == future) {
+            entry.expiresAtMillis = clock.millis() + ttlMillis;
+        }
+    }
+
+    private synchronized void forget(String key, CompletableFuture<Subscription> future) {
+        var entry = entries.get(key);
+        if (entry != null && entry.future == future) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * An evicted key that is still running keeps its waiters, which hold the future; only
+     * calls arriving after the eviction run the upsert again.
+     */
+    private void evictOverCapacity() {
+        var eldest = entries.entrySet().iterator();
+        while (entries.size() > capacity) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private IdempotencyKeyReusedException reused(String key) {
+        reusedKeys.increment();
+        return new IdempotencyKeyReusedException(String.format("Idempotency key %s was used for a different request", key));
+    }
+
+    private static Subscription join(CompletableFuture<Subscription> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private static Subscription copy(Subscription subscription) {
+        return subscription.toBuilder().build();
+    }
+
+    private static int getInt(String key, int defaultValue) {
+        var value = PropertiesUtil.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static final class Entry {
+
+        private final CompletableFuture<Subscription> future;
+        private final String requestHash;
+        private long expiresAtMillis = Long.MAX_VALUE;
+
+        private Entry(CompletableFuture<Subscription> future, String requestHash) {
+            this.future = future;
+            this.requestHash = requestHash;
+        }
+    }
+}
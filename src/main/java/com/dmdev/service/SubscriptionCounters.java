@@ -0,0 +1,120 @@
+package com.dmdev.service;
+
+import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live subscription counts per {@link Provider} and {@link Status}, kept current from the
+ * {@link SubscriptionService} transitions it listens to.
+ * <p>
+ * Counters are seeded from one aggregate query and can be reconciled against the database
+ * periodically. Changes made outside the service, or racing with a reconciliation, show up
+ * as drift until the next reconciliation.
+ */
+public class SubscriptionCounters implements SubscriptionListener, AutoCloseable {
+
+    private final SubscriptionDao subscriptionDao;
+    private final Map<Provider, Map<Status, LongAdder>> counters = new EnumMap<>(Provider.class);
+    private final LongAdder reconciliations = new LongAdder();
+    private ScheduledFuture<?> reconcileTask;
+
+    public SubscriptionCounters(SubscriptionDao subscriptionDao) {
+        this.subscriptionDao = subscriptionDao;
+        for (Provider provider : Provider.values()) {
+            Map<Status, LongAdder> byStatus = new EnumMap<>(Status.class);
+            for (Status status : Status.values()) {
+                byStatus.put(status, new LongAdder());
+            }
+            counters.put(provider, byStatus);
+        }
+    }
+
+    /**
+     * Replaces the in-memory counts with the current database counts.
+     */
+    public void reconcile() {
+        var actual = subscriptionDao.countByProviderAndStatus();
+        for (Provider provider : Provider.values()) {
+            for (Status status : Status.values()) {
+                var counter = counters.get(provider).get(status);
+                long expected = countOf(actual, provider, status);
+                counter.add(expected - counter.sum());
+            }
+        }
+        reconciliations.increment();
+    }
+
+    /**
+     * Compares the in-memory counts with the database.
+     *
+     * @return database count minus in-memory count for every combination that differs
+     */
+    public Map<Provider, Map<Status, Long>> checkDrift() {
+        var actual = subscriptionDao.countByProviderAndStatus();
+        Map<Provider, Map<Status, Long>> drift = new EnumMap<>(Provider.class);
+        for (Provider provider : Provider.values()) {
+            for (Status status : Status.values()) {
+                long difference = countOf(actual, provider, status) - get(provider, status);
+                if (difference != 0) {
+                    drift.computeIfAbsent(provider, key -> new EnumMap<>(Status.class)).put(status, difference);
+                }
+            }
+        }
+        return drift;
+    }
+
+    public long get(Provider provider, Status status) {
+        return counters.get(provider).get(status).sum();
+    }
+
+    public long getActive(Provider provider) {
+        return get(provider, Status.ACTIVE);
+    }
+
+    public long getReconciliations() {
+        return reconciliations.sum();
+    }
+
+    public synchronized void startReconciliation(ScheduledExecutorService executor, Duration interval) {
+        if (reconcileTask != null) {
+            throw new IllegalStateException("Reconciliation is already started");
+        }
+        reconcileTask = executor.scheduleWithFixedDelay(this::reconcile,
+                interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (reconcileTask != null) {
+            reconcileTask.cancel(false);
+            reconcileTask = null;
+        }
+    }
+
+    @Override
+    public void onTransition(SubscriptionOperation operation, Status previousStatus, Subscription subscription) {
+        var provider = subscription.getProvider();
+        if (provider == null || previousStatus == subscription.getStatus()) {
+            return;
+        }
+        var byStatus = counters.get(provider);
+        if (previousStatus != null) {
+            byStatus.get(previousStatus).decrement();
+        }
+        byStatus.get(subscription.getStatus()).increment();
+    }
+
+    private static long countOf(Map<Provider, Map<Status, Long>> counts, Provider provider, Status status) {
+        return counts.getOrDefault(provider, Map.of()).getOrDefault(status, 0L);
+    }
+}
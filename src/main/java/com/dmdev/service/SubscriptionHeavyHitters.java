@@ -0,0 +1,92 @@
+package com.dmdev.service;
+
+import com.dmdev.util.HeavyHitterTracker;
+import com.dmdev.util.HeavyHitterTracker.HeavyHitter;
+import com.dmdev.util.PropertiesUtil;
+import lombok.Value;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Tracks which user ids and {@code (userId, name)} keys generate the most
+ * {@link SubscriptionService} calls over a sliding window. Caching and throttling layers
+ * can ask {@link #isHeavyUser} or {@link #isHeavyKey} on their hot paths.
+ */
+public class SubscriptionHeavyHitters {
+
+    private static final String WINDOW_SECONDS_KEY = "subscription.heavy-hitters.window-seconds";
+    private static final String BUCKETS_KEY = "subscription.heavy-hitters.buckets";
+    private static final String TOP_K_KEY = "subscription.heavy-hitters.top-k";
+    private static final String WIDTH_KEY = "subscription.heavy-hitters.sketch-width";
+    private static final String DEPTH_KEY = "subscription.heavy-hitters.sketch-depth";
+
+    private static final int DEFAULT_WINDOW_SECONDS = 60;
+    private static final int DEFAULT_BUCKETS = 6;
+    private static final int DEFAULT_TOP_K = 20;
+    private static final int DEFAULT_WIDTH = 2048;
+    private static final int DEFAULT_DEPTH = 4;
+
+    private final HeavyHitterTracker<Integer> users;
+    private final HeavyHitterTracker<SubscriptionKey> keys;
+
+    public SubscriptionHeavyHitters(HeavyHitterTracker<Integer> users, HeavyHitterTracker<SubscriptionKey> keys) {
+        this.users = users;
+        this.keys = keys;
+    }
+
+    /**
+     * Creates trackers configured from {@code application.properties}.
+     */
+    public static SubscriptionHeavyHitters load(Clock clock) {
+        var window = Duration.ofSeconds(getInt(WINDOW_SECONDS_KEY, DEFAULT_WINDOW_SECONDS));
+        int buckets = getInt(BUCKETS_KEY, DEFAULT_BUCKETS);
+        int topK = getInt(TOP_K_KEY, DEFAULT_TOP_K);
+        int width = getInt(WIDTH_KEY, DEFAULT_WIDTH);
+        int depth = getInt(DEPTH_KEY, DEFAULT_DEPTH);
+        return new SubscriptionHeavyHitters(
+                new HeavyHitterTracker<>(window, buckets, topK, width, depth, clock),
+                new HeavyHitterTracker<>(window, buckets, topK, width, depth, clock));
+    }
+
+    /**
+     * Counts one call for the user and, when the name is known, for the key.
+     */
+    public void record(Integer userId, String name) {
+        if (userId == null) {
+            return;
+        }
+        users.record(userId);
+        if (name != null) {
+            keys.record(new SubscriptionKey(userId, name));
+        }
+    }
+
+    public List<HeavyHitter<Integer>> getTopUsers() {
+        return users.getTop();
+    }
+
+    public List<HeavyHitter<SubscriptionKey>> getTopKeys() {
+        return keys.getTop();
+    }
+
+    public boolean isHeavyUser(int userId) {
+        return users.isHeavyHitter(userId);
+    }
+
+    public boolean isHeavyKey(int userId, String name) {
+        return keys.isHeavyHitter(new SubscriptionKey(userId, name));
+    }
+
+    private static int getInt(String key, int defaultValue) {
+        var value = PropertiesUtil.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    @Value
+    public static class SubscriptionKey {
+        Integer userId;
+        String name;
+    }
+}
@@ -0,0 +1,16 @@
+package com.dmdev.service;
+
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+
+/**
+ * Callback for state transitions performed by {@link SubscriptionService}.
+ * Invoked on the calling thread after the change has been written.
+ */
+public interface SubscriptionListener {
+
+    /**
+     * @param previousStatus status before the operation, {@code null} for a newly created subscription
+     */
+    void onTransition(SubscriptionOperation operation, Status previousStatus, Subscription subscription);
+}
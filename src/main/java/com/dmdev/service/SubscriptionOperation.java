@@ -0,0 +1,5 @@
+package com.dmdev.service;
+
+public enum SubscriptionOperation {
+    UPSERT, CANCEL, EXPIRE
+}
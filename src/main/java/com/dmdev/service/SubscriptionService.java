@@ -7,12 +7,22 @@ import com.dmdev.entity.Status;
 import com.dmdev.entity.Subscription;
 import com.dmdev.exception.SubscriptionException;
 import com.dmdev.exception.ValidationException;
+import com.dmdev.jfr.ServiceOperationEvent;
 import com.dmdev.mapper.CreateSubscriptionMapper;
 import com.dmdev.validator.CreateSubscriptionValidator;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.SQLException;
 import java.time.Clock;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @RequiredArgsConstructor
 public class SubscriptionService {
@@ -20,44 +30,261 @@ public class SubscriptionService {
     private final SubscriptionDao subscriptionDao;
     private final CreateSubscriptionMapper createSubscriptionMapper;
     private final CreateSubscriptionValidator createSubscriptionValidator;
+    @Getter
     private final Clock clock;
+    private final List<SubscriptionListener> listeners = new CopyOnWriteArrayList<>();
+    private UserIdFilter userIdFilter;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private SubscriptionHeavyHitters heavyHitters;
+    private IdempotencyStore idempotencyStore;
+
+    /**
+     * Enables the negative cache that lets {@link #upsert} skip the lookup for users
+     * who have no subscriptions yet.
+     */
+    public SubscriptionService setUserIdFilter(UserIdFilter userIdFilter) {
+        this.userIdFilter = userIdFilter;
+        return this;
+    }
+
+    /**
+     * Caps in-flight {@link #upsert}, {@link #cancel} and {@link #expire} calls; calls over
+     * the limit fail with {@link com.dmdev.exception.LimitExceededException}.
+     */
+    public SubscriptionService setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        return this;
+    }
+
+    /**
+     * Counts calls per user and subscription key: {@link #upsert} as it arrives, before
+     * validation and the limiter, and {@link #cancel} and {@link #expire} once the
+     * subscription has been loaded.
+     */
+    public SubscriptionService setHeavyHitters(SubscriptionHeavyHitters heavyHitters) {
+        this.heavyHitters = heavyHitters;
+        return this;
+    }
+
+    /**
+     * Lets {@link #upsert(CreateSubscriptionDto, String)} answer repeated idempotency keys
+     * from {@code idempotencyStore} instead of writing again.
+     */
+    public SubscriptionService setIdempotencyStore(IdempotencyStore idempotencyStore) {
+        this.idempotencyStore = idempotencyStore;
+        return this;
+    }
+
+    public SubscriptionService addListener(SubscriptionListener listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    public void removeListener(SubscriptionListener listener) {
+        listeners.remove(listener);
+    }
 
     public Subscription upsert(CreateSubscriptionDto dto) {
+        return upsert(dto, null);
+    }
+
+    /**
+     * Same as {@link #upsert(CreateSubscriptionDto)}, but a repeat of {@code idempotencyKey}
+     * by the same user returns the first call's result, if an {@link IdempotencyStore} is
+     * set and still remembers the key. Listeners and the limiter only see the first call.
+     * The key is bound to a SHA-256 hash of {@code dto}; reusing it with different fields
+     * fails.
+     *
+     * @param idempotencyKey client-chosen key of this logical request, or {@code null}
+     * @throws com.dmdev.exception.IdempotencyKeyReusedException if the key was used for a
+     *                                                           different {@code dto}
+     */
+    public Subscription upsert(CreateSubscriptionDto dto, String idempotencyKey) {
+        var event = ServiceOperationEvent.start("upsert");
+        if (heavyHitters != null && dto != null) {
+            heavyHitters.record(dto.getUserId(), dto.getName());
+        }
+        try {
+            var savedSubscription = idempotencyStore == null || idempotencyKey == null || dto == null
+                    ? upsertWithPermit(dto)
+                    : idempotencyStore.execute(dto.getUserId() + ":" + idempotencyKey, requestHash(dto),
+                            () -> upsertWithPermit(dto));
+            event.setUserId(savedSubscription.getUserId());
+            event.finish(ServiceOperationEvent.SUCCESS);
+            return savedSubscription;
+        } catch (RuntimeException e) {
+            event.setUserId(dto == null ? null : dto.getUserId());
+            event.finish(e.getClass().getSimpleName());
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("try") // the permit is held, not used, for the duration of the block
+    private Subscription upsertWithPermit(CreateSubscriptionDto dto) {
+        try (var permit = acquirePermit()) {
+            return doUpsert(dto);
+        }
+    }
+
+    private Subscription doUpsert(CreateSubscriptionDto dto) {
         var validationResult = createSubscriptionValidator.validate(dto);
         if (validationResult.hasErrors()) {
             throw new ValidationException(validationResult.getErrors());
         }
 
-        Subscription subscription = subscriptionDao.findByUserId(dto.getUserId()).stream()
+        boolean skipLookup = userIdFilter != null && !userIdFilter.mightHaveSubscriptions(dto.getUserId());
+        if (!skipLookup) {
+            return doUpsert(dto, subscriptionDao.findByUserId(dto.getUserId()));
+        }
+        try {
+            return doUpsert(dto, List.of());
+        } catch (Exception e) {
+            if (!isConstraintViolation(e)) {
+                throw e;
+            }
+            // the filter missed a subscription written elsewhere: look it up and update it
+            userIdFilter.recordMiss(dto.getUserId());
+            return doUpsert(dto, subscriptionDao.findByUserId(dto.getUserId()));
+        }
+    }
+
+    private Subscription doUpsert(CreateSubscriptionDto dto, List<Subscription> existingSubscriptions) {
+        var existing = existingSubscriptions.stream()
                 .filter(existingSubscription -> existingSubscription.getName().equals(dto.getName()))
                 .filter(existingSubscription -> existingSubscription.getProvider() == Provider.findByName(dto.getProvider()))
-                .findFirst()
+                .findFirst();
+        var previousStatus = existing.map(Subscription::getStatus).orElse(null);
+        Subscription subscription = existing
                 .map(existingSubscription -> existingSubscription
                         .setExpirationDate(dto.getExpirationDate())
                         .setStatus(Status.ACTIVE))
                 .orElseGet(() -> createSubscriptionMapper.map(dto));
 
-        return subscriptionDao.upsert(subscription);
+        var savedSubscription = subscriptionDao.upsert(subscription);
+        if (userIdFilter != null) {
+            userIdFilter.add(savedSubscription.getUserId());
+        }
+        notifyListeners(SubscriptionOperation.UPSERT, previousStatus, savedSubscription);
+        return savedSubscription;
     }
 
+    @SuppressWarnings("try") // the permit is held, not used, for the duration of the block
     public void cancel(Integer subscriptionId) {
+        var event = ServiceOperationEvent.start("cancel");
+        try (var permit = acquirePermit()) {
+            doCancel(subscriptionId, event);
+            event.finish(ServiceOperationEvent.SUCCESS);
+        } catch (RuntimeException e) {
+            event.finish(e.getClass().getSimpleName());
+            throw e;
+        }
+    }
+
+    private void doCancel(Integer subscriptionId, ServiceOperationEvent event) {
         var subscription = subscriptionDao.findById(subscriptionId)
                 .orElseThrow(IllegalArgumentException::new);
+        event.setUserId(subscription.getUserId());
+        if (heavyHitters != null) {
+            heavyHitters.record(subscription.getUserId(), subscription.getName());
+        }
         if (subscription.getStatus() != Status.ACTIVE) {
             throw new SubscriptionException(String.format("Only active subscription %d can be canceled", subscriptionId));
         }
         subscription.setStatus(Status.CANCELED);
         subscriptionDao.update(subscription);
+        notifyListeners(SubscriptionOperation.CANCEL, Status.ACTIVE, subscription);
     }
 
+    @SuppressWarnings("try") // the permit is held, not used, for the duration of the block
     public void expire(Integer subscriptionId) {
+        var event = ServiceOperationEvent.start("expire");
+        try (var permit = acquirePermit()) {
+            doExpire(subscriptionId, event);
+            event.finish(ServiceOperationEvent.SUCCESS);
+        } catch (RuntimeException e) {
+            event.finish(e.getClass().getSimpleName());
+            throw e;
+        }
+    }
+
+    private void doExpire(Integer subscriptionId, ServiceOperationEvent event) {
         var subscription = subscriptionDao.findById(subscriptionId)
                 .orElseThrow(IllegalArgumentException::new);
+        event.setUserId(subscription.getUserId());
+        if (heavyHitters != null) {
+            heavyHitters.record(subscription.getUserId(), subscription.getName());
+        }
         if (subscription.getStatus() == Status.EXPIRED) {
             throw new SubscriptionException(String.format("Subscription %d has already expired", subscriptionId));
         }
+        var previousStatus = subscription.getStatus();
         subscription.setStatus(Status.EXPIRED);
         subscription.setExpirationDate(Instant.now(clock));
         subscriptionDao.update(subscription);
+        notifyListeners(SubscriptionOperation.EXPIRE, previousStatus, subscription);
+    }
+
+    /**
+     * Expires every subscription in the batch that is still active and due, i.e. whose
+     * expiration date is not after the clock's current time. The write itself is
+     * conditional on both, so a renewal that reaches the database between the scheduling
+     * decision and this call, on this node or another, is never overwritten. Subscriptions
+     * that were removed, renewed or changed state in the meantime are skipped. Expired
+     * subscriptions keep their expiration date.
+     *
+     * @return number of subscriptions actually expired
+     */
+    public int expireAll(Collection<Integer> subscriptionIds) {
+        var now = Instant.now(clock);
+        int expired = 0;
+        for (Integer subscriptionId : subscriptionIds) {
+            var subscription = subscriptionDao.findById(subscriptionId);
+            if (subscription.isEmpty()
+                || subscription.get().getStatus() != Status.ACTIVE
+                || subscription.get().getExpirationDate().isAfter(now)
+                || !subscriptionDao.expireIfDue(subscriptionId, now)) {
+                continue;
+            }
+            var expiredSubscription = subscription.get().setStatus(Status.EXPIRED);
+            notifyListeners(SubscriptionOperation.EXPIRE, Status.ACTIVE, expiredSubscription);
+            expired++;
+        }
+        return expired;
+    }
+
+    private ConcurrencyLimiter.Permit acquirePermit() {
+        return concurrencyLimiter == null ? null : concurrencyLimiter.acquire();
+    }
+
+    private void notifyListeners(SubscriptionOperation operation, Status previousStatus, Subscription subscription) {
+        for (SubscriptionListener listener : listeners) {
+            listener.onTransition(operation, previousStatus, subscription);
+        }
+    }
+
+    /**
+     * Fields are separated by a NUL, which none of them contains, so different requests
+     * never produce the same input.
+     */
+    @SneakyThrows
+    private static String requestHash(CreateSubscriptionDto dto) {
+        var canonical = dto.getUserId() + "\0" + dto.getName() + "\0" + dto.getProvider() + "\0" + dto.getExpirationDate();
+        var digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest);
+    }
+
+    /**
+     * SQLSTATE class 23 is an integrity constraint violation, here the
+     * {@code UNIQUE (user_id, name)} key.
+     */
+    private static boolean isConstraintViolation(Throwable throwable) {
+        for (var cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException
+                && sqlException.getSQLState() != null
+                && sqlException.getSQLState().startsWith("23")) {
+                return true;
+            }
+        }
+        return false;
     }
 }
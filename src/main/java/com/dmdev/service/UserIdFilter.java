@@ -0,0 +1,121 @@
+package com.dmdev.service;
+
+import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.util.BloomFilter;
+import com.dmdev.util.PropertiesUtil;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Negative cache over the user ids present in {@code subscription}.
+ * A negative answer means the user had no subscriptions when the filter last saw the
+ * table, so the {@code findByUserId} lookup can be skipped. {@link #load} seeds the filter
+ * with a scan of the table and {@link #refresh} rebuilds it the same way; in between it
+ * only learns the user ids added through {@link #add}. Rows written by other processes
+ * are therefore missed until the next refresh, and a caller that skipped the lookup must
+ * be ready for the database to reject a duplicate: {@code SubscriptionService} then
+ * {@link #recordMiss records the miss} and retries with the lookup.
+ */
+public class UserIdFilter {
+
+    private static final String EXPECTED_USERS_KEY = "subscription.user-filter.expected-users";
+    private static final String FALSE_POSITIVE_RATE_KEY = "subscription.user-filter.false-positive-rate";
+    private static final String MAX_BYTES_KEY = "subscription.user-filter.max-bytes";
+
+    private static final long DEFAULT_EXPECTED_USERS = 1_000_000;
+    private static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+    private static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+
+    private final LongAdder skippedLookups = new LongAdder();
+    private final LongAdder passedLookups = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile BloomFilter bloomFilter;
+    /**
+     * The filter a {@link #refresh} is filling, which {@link #add} feeds as well; {@code null}
+     * when no refresh runs.
+     */
+    private volatile BloomFilter refreshing;
+
+    public UserIdFilter(BloomFilter bloomFilter) {
+        this.bloomFilter = bloomFilter;
+    }
+
+    /**
+     * Creates a filter sized from {@code application.properties} and fills it with a
+     * streaming scan of the {@code subscription} table.
+     */
+    public static UserIdFilter load(SubscriptionDao subscriptionDao) {
+        var filter = new UserIdFilter(BloomFilter.create(
+                getLong(EXPECTED_USERS_KEY, DEFAULT_EXPECTED_USERS),
+                getDouble(FALSE_POSITIVE_RATE_KEY, DEFAULT_FALSE_POSITIVE_RATE),
+                getLong(MAX_BYTES_KEY, DEFAULT_MAX_BYTES)));
+        subscriptionDao.forEachUserId(filter::add);
+        return filter;
+    }
+
+    /**
+     * Replaces the contents with a streaming scan of the {@code subscription} table, which
+     * drops user ids that are gone and picks up those written by other processes. User ids
+     * added while the scan runs are kept. Lookups use the old contents until the scan ends.
+     */
+    public synchronized void refresh(SubscriptionDao subscriptionDao) {
+        var fresh = bloomFilter.emptyCopy();
+        refreshing = fresh;
+        try {
+            subscriptionDao.forEachUserId(fresh::put);
+            bloomFilter = fresh;
+        } finally {
+            refreshing = null;
+        }
+    }
+
+    public void add(int userId) {
+        bloomFilter.put(userId);
+        var fresh = refreshing;
+        if (fresh != null) {
+            fresh.put(userId);
+        }
+    }
+
+    /**
+     * Adds {@code userId}, which has subscriptions although the filter said it had none.
+     */
+    public void recordMiss(int userId) {
+        add(userId);
+        misses.increment();
+    }
+
+    public boolean mightHaveSubscriptions(int userId) {
+        if (bloomFilter.mightContain(userId)) {
+            passedLookups.increment();
+            return true;
+        }
+        skippedLookups.increment();
+        return false;
+    }
+
+    public long getSkippedLookups() {
+        return skippedLookups.sum();
+    }
+
+    public long getPassedLookups() {
+        return passedLookups.sum();
+    }
+
+    /**
+     * Negative answers that turned out wrong, see {@link #recordMiss}.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static long getLong(String key, long defaultValue) {
+        var value = PropertiesUtil.get(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    private static double getDouble(String key, double defaultValue) {
+        var value = PropertiesUtil.get(key);
+        return value == null ? defaultValue : Double.parseDouble(value.trim());
+    }
+}
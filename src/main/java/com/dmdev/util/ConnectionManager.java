@@ -1,10 +1,14 @@
 package com.dmdev.util;
 
+import com.dmdev.jfr.ConnectionAcquireEvent;
 import lombok.SneakyThrows;
 import lombok.experimental.UtilityClass;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 @UtilityClass
 public class ConnectionManager {
@@ -13,6 +17,12 @@ public class ConnectionManager {
     private static final String USER_KEY = "db.user";
     private static final String PASSWORD_KEY = "db.password";
     private static final String DRIVER_KEY = "db.driver";
+    private static final String POOL_SIZE_KEY = "db.pool.size";
+    private static final String STATEMENT_CACHE_SIZE_KEY = "db.pool.statement-cache-size";
+    private static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+    private static final Supplier<String> DEFAULT_URL = () -> PropertiesUtil.get(URL_KEY);
+    private static final Map<String, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+    private static volatile Supplier<String> urlSupplier = DEFAULT_URL;
 
     static {
         loadDriver();
@@ -25,9 +35,59 @@ public class ConnectionManager {
 
     @SneakyThrows
     public static Connection get() {
-        return DriverManager.getConnection(
-                PropertiesUtil.get(URL_KEY),
-                PropertiesUtil.get(USER_KEY),
-                PropertiesUtil.get(PASSWORD_KEY));
+        var event = ConnectionAcquireEvent.start();
+        var url = urlSupplier.get();
+        var pool = getPool(url);
+        var connection = pool != null
+                ? pool.getConnection()
+                : DriverManager.getConnection(url, PropertiesUtil.get(USER_KEY), PropertiesUtil.get(PASSWORD_KEY));
+        event.finish();
+        return connection;
+    }
+
+    /**
+     * Returns the pool serving the current database URL, or {@code null} when
+     * {@code db.pool.size} is not set and every call opens a fresh connection.
+     */
+    public static ConnectionPool getPool() {
+        return getPool(urlSupplier.get());
+    }
+
+    /**
+     * Closes every pool and forgets it; the next {@link #get()} opens a fresh one.
+     */
+    public static void closeAll() {
+        for (String url : POOLS.keySet()) {
+            var pool = POOLS.remove(url);
+            if (pool != null) {
+                pool.close();
+            }
+        }
+    }
+
+    /**
+     * Test seam: replaces where connections point, {@code db.url} by default. The supplier
+     * is asked on every {@link #get()}, and each distinct URL gets its own pool until
+     * {@link #closeAll()}; {@code null} restores the default.
+     */
+    static void setUrlSupplier(Supplier<String> urlSupplier) {
+        ConnectionManager.urlSupplier = urlSupplier == null ? DEFAULT_URL : urlSupplier;
+    }
+
+    static Supplier<String> getUrlSupplier() {
+        return urlSupplier;
+    }
+
+    private static ConnectionPool getPool(String url) {
+        var poolSize = PropertiesUtil.get(POOL_SIZE_KEY);
+        if (poolSize == null) {
+            return null;
+        }
+        return POOLS.computeIfAbsent(url, key -> {
+            var statementCacheSize = PropertiesUtil.get(STATEMENT_CACHE_SIZE_KEY);
+            return new ConnectionPool(key, PropertiesUtil.get(USER_KEY), PropertiesUtil.get(PASSWORD_KEY),
+                    Integer.parseInt(poolSize.trim()),
+                    statementCacheSize == null ? DEFAULT_STATEMENT_CACHE_SIZE : Integer.parseInt(statementCacheSize.trim()));
+        });
     }
 }
@@ -0,0 +1,452 @@
+package com.dmdev.util;
+
+import lombok.Value;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded JDBC connection pool with a per-connection prepared-statement cache.
+ * <p>
+ * Closing a pooled connection returns it to the pool; an open transaction is rolled back
+ * and auto-commit restored. Each physical connection keeps up to {@code statementCacheSize}
+ * prepared statements in LRU order, keyed by SQL and generated-keys mode. Closing a cached
+ * statement closes the result sets it produced and keeps the statement for the next
+ * {@code prepareStatement} of the same SQL, which gets it back with its parameters cleared.
+ * Statements are closed for real when they fall out of the LRU or when their connection
+ * is closed, either by the pool or after idling for more than ten minutes.
+ * <p>
+ * A connection that has been idle for more than half a second is checked with
+ * {@link Connection#isValid(int)} before it is handed out, so one that died with a database
+ * restart or a network drop is closed and replaced instead of failing the caller's first
+ * statement.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final int NO_GENERATED_KEYS_MODE = -1;
+    private static final Duration ACQUIRE_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration MAX_IDLE = Duration.ofMinutes(10);
+    private static final Duration VALIDATE_AFTER_IDLE = Duration.ofMillis(500);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final int statementCacheSize;
+    private final Semaphore permits;
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LongAdder statementEvictions = new LongAdder();
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder connectionsClosed = new LongAdder();
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String password, int maxSize, int statementCacheSize) {
+        if (maxSize <= 0 || statementCacheSize < 0) {
+            throw new IllegalArgumentException("maxSize must be positive and statementCacheSize not negative");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Borrows a connection, opening a new one if none is idle and the pool is not full.
+     *
+     * @throws SQLTransientConnectionException if no connection frees up in time
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(ACQUIRE_TIMEOUT.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException("No connection available within " + ACQUIRE_TIMEOUT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+        }
+        try {
+            return borrow().lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens idle connections until the pool holds {@code count} connections (capped at its
+     * maximum size), so the first requests do not pay for connection setup.
+     *
+     * @return number of connections opened
+     */
+    public int prefill(int count) throws SQLException {
+        int opened = 0;
+        int target = Math.min(count, maxSize);
+        while (!closed && idle.size() + maxSize - permits.availablePermits() < target && permits.tryAcquire()) {
+            try {
+                var pooled = new PooledConnection(DriverManager.getConnection(url, user, password));
+                connectionsOpened.increment();
+                pooled.releasedAtNanos = System.nanoTime();
+                idle.offerLast(pooled);
+                opened++;
+            } finally {
+                permits.release();
+            }
+        }
+        return opened;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getStatementHits() {
+        return statementHits.sum();
+    }
+
+    public long getStatementMisses() {
+        return statementMisses.sum();
+    }
+
+    public long getStatementEvictions() {
+        return statementEvictions.sum();
+    }
+
+    public double getStatementHitRate() {
+        long hitCount = statementHits.sum();
+        long total = hitCount + statementMisses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public long getConnectionsOpened() {
+        return connectionsOpened.sum();
+    }
+
+    public long getConnectionsClosed() {
+        return connectionsClosed.sum();
+    }
+
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.closePhysical();
+        }
+    }
+
+    private PooledConnection borrow() throws SQLException {
+        long now = System.nanoTime();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            long idleNanos = now - pooled.releasedAtNanos;
+            if (idleNanos <= MAX_IDLE.toNanos()
+                    && (idleNanos <= VALIDATE_AFTER_IDLE.toNanos() || isValid(pooled))) {
+                return pooled;
+            }
+            pooled.closePhysical();
+        }
+        var physical = DriverManager.getConnection(url, user, password);
+        connectionsOpened.increment();
+        return new PooledConnection(physical);
+    }
+
+    private static boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void giveBack(PooledConnection pooled) {
+        try {
+            pooled.reset();
+            if (closed) {
+                pooled.closePhysical();
+            } else {
+                pooled.releasedAtNanos = System.nanoTime();
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException | RuntimeException e) {
+            pooled.closePhysical();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Value
+    private static class StatementKey {
+        String sql;
+        int generatedKeysMode;
+    }
+
+    /**
+     * One physical connection and its statement cache. Only the thread holding the lease
+     * touches it.
+     */
+    private final class PooledConnection {
+
+        private final Connection physical;
+        private final Map<StatementKey, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+        private final List<StatementHandle> openStatements = new ArrayList<>();
+        private long releasedAtNanos;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        private Connection lease() {
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new ConnectionHandle(this));
+        }
+
+        private PreparedStatement prepare(Connection connection, String sql, int generatedKeysMode) throws SQLException {
+            var key = new StatementKey(sql, generatedKeysMode);
+            var cached = statementCacheSize == 0 ? null : statements.get(key);
+            if (cached != null && !cached.inUse) {
+                statementHits.increment();
+                cached.physical.clearParameters();
+                return open(connection, cached.physical, cached);
+            }
+            statementMisses.increment();
+            var statement = generatedKeysMode == NO_GENERATED_KEYS_MODE
+                    ? physical.prepareStatement(sql)
+                    : physical.prepareStatement(sql, generatedKeysMode);
+            if (cached != null || statementCacheSize == 0) {
+                return open(connection, statement, null);
+            }
+            cached = new CachedStatement(statement);
+            statements.put(key, cached);
+            evictOverflow();
+            return open(connection, statement, cached);
+        }
+
+        private PreparedStatement open(Connection connection, PreparedStatement statement, CachedStatement cached) {
+            var handle = new StatementHandle(this, connection, statement, cached);
+            openStatements.add(handle);
+            return (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, handle);
+        }
+
+        private void evictOverflow() throws SQLException {
+            Iterator<CachedStatement> iterator = statements.values().iterator();
+            while (statements.size() > statementCacheSize && iterator.hasNext()) {
+                var eldest = iterator.next();
+                iterator.remove();
+                statementEvictions.increment();
+                eldest.evicted = true;
+                if (!eldest.inUse) {
+                    eldest.physical.close();
+                }
+            }
+        }
+
+        private void reset() throws SQLException {
+            for (StatementHandle handle : new ArrayList<>(openStatements)) {
+                handle.close();
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+        }
+
+        private void closePhysical() {
+            for (CachedStatement cached : statements.values()) {
+                try {
+                    cached.physical.close();
+                } catch (SQLException ignored) {
+                    // closing the connection releases it anyway
+                }
+            }
+            statements.clear();
+            openStatements.clear();
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+                // the connection is discarded either way
+            } finally {
+                connectionsClosed.increment();
+            }
+        }
+    }
+
+    private static final class CachedStatement {
+
+        private final PreparedStatement physical;
+        private final int defaultFetchSize;
+        private boolean inUse;
+        private boolean evicted;
+
+        private CachedStatement(PreparedStatement physical) throws SQLException {
+            this.physical = physical;
+            this.defaultFetchSize = physical.getFetchSize();
+        }
+    }
+
+    /**
+     * The caller's view of one borrowed connection; unusable once closed.
+     */
+    private final class ConnectionHandle implements InvocationHandler {
+
+        private final PooledConnection pooled;
+        private boolean closed;
+
+        private ConnectionHandle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        giveBack(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.physical;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+            if (method.getName().equals("prepareStatement") && args.length <= 2
+                    && (args.length == 1 || args[1] instanceof Integer)) {
+                int generatedKeysMode = args.length == 1 ? NO_GENERATED_KEYS_MODE : (Integer) args[1];
+                return pooled.prepare((Connection) proxy, (String) args[0], generatedKeysMode);
+            }
+            return ConnectionPool.invoke(pooled.physical, method, args);
+        }
+    }
+
+    /**
+     * The caller's view of one prepared statement. Closing it closes the result sets it
+     * produced and, for a cached statement, hands the statement back to the cache. It and
+     * its result sets report the borrowed connection and this statement as their owners,
+     * so a caller walking back from a result set closes the proxies, not the physical
+     * objects.
+     */
+    private final class StatementHandle implements InvocationHandler {
+
+        private final PooledConnection pooled;
+        private final Connection connection;
+        private final PreparedStatement physical;
+        private final CachedStatement cached;
+        private final List<ResultSet> resultSets = new ArrayList<>(1);
+        private boolean closed;
+
+        private StatementHandle(PooledConnection pooled, Connection connection, PreparedStatement physical,
+                                CachedStatement cached) {
+            this.pooled = pooled;
+            this.connection = connection;
+            this.physical = physical;
+            this.cached = cached;
+            if (cached != null) {
+                cached.inUse = true;
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + physical;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            if (method.getName().equals("getConnection")) {
+                return connection;
+            }
+            var result = ConnectionPool.invoke(physical, method, args);
+            if (result instanceof ResultSet resultSet) {
+                resultSets.add(resultSet);
+                return new PooledResultSet(resultSet, (PreparedStatement) proxy);
+            }
+            return result;
+        }
+
+        private void close() throws SQLException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pooled.openStatements.remove(this);
+            if (cached == null) {
+                physical.close();
+                return;
+            }
+            try {
+                for (ResultSet resultSet : resultSets) {
+                    resultSet.close();
+                }
+                if (cached.evicted) {
+                    physical.close();
+                } else if (physical.getFetchSize() != cached.defaultFetchSize) {
+                    physical.setFetchSize(cached.defaultFetchSize);
+                }
+            } finally {
+                cached.inUse = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.dmdev.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Count-Min sketch over {@code int} keys: {@code depth} rows of {@code width}
+ * counters, one counter per row for each key. Estimates never undercount; with
+ * {@code width = e / epsilon} and {@code depth = ln(1 / delta)} they overcount by at most
+ * {@code epsilon} times the total with probability {@code 1 - delta}.
+ */
+public class CountMinSketch {
+
+    private final AtomicLongArray counters;
+    private final int width;
+    private final int depth;
+
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0 || (long) width * depth > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid count-min sketch dimensions");
+        }
+        this.counters = new AtomicLongArray(width * depth);
+        this.width = width;
+        this.depth = depth;
+    }
+
+    /**
+     * @return the estimate for {@code key} after adding {@code count}
+     */
+    public long add(int key, long count) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.addAndGet(index(row, h1 + row * h2), count));
+        }
+        return estimate;
+    }
+
+    public long estimate(int key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(row, h1 + row * h2)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Resets every counter. Additions that run concurrently may be lost.
+     */
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    private int index(int row, int combinedHash) {
+        return row * width + (combinedHash & Integer.MAX_VALUE) % width;
+    }
+
+    private static long mix(int key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
@@ -0,0 +1,274 @@
+package com.dmdev.util;
+
+import lombok.Value;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streaming top-K of the most frequent keys over a sliding window, in fixed memory.
+ * <p>
+ * The window is split into {@code buckets} slices, each with its own
+ * {@link CountMinSketch}; a key's count is the sum of its estimates across the slices, and
+ * the oldest slice is cleared as the window slides. The top {@code k} keys are held in a
+ * min-heap, so a new key only takes a place by outcounting the current minimum, which is
+ * also published as a lock-free admission threshold. Counts are approximate: they may
+ * overcount colliding keys, and a slide drops the oldest slice as a whole.
+ * <p>
+ * A key already in the top {@code k} raises its count in place without locking; only a
+ * change of heap membership takes the lock. Raised counts can leave the heap out of order,
+ * so it is marked stale and re-sifted, using the heap index each candidate keeps, before
+ * the lock holder next reads its minimum.
+ */
+public class HeavyHitterTracker<K> {
+
+    private final CountMinSketch[] buckets;
+    private final long bucketMillis;
+    private final int k;
+    private final Clock clock;
+    private final Map<K, Candidate<K>> candidates = new ConcurrentHashMap<>();
+    private final Candidate<K>[] heap;
+    private int heapSize;
+    private volatile boolean heapStale;
+    private volatile long currentEpoch;
+    private volatile long admissionThreshold;
+
+    public HeavyHitterTracker(Duration window, int buckets, int k, int width, int depth, Clock clock) {
+        if (buckets <= 0 || k <= 0 || window.toMillis() < buckets) {
+            throw new IllegalArgumentException("Invalid heavy hitter tracker configuration");
+        }
+        this.buckets = new CountMinSketch[buckets];
+        for (int i = 0; i < buckets; i++) {
+            this.buckets[i] = new CountMinSketch(width, depth);
+        }
+        this.bucketMillis = window.toMillis() / buckets;
+        this.k = k;
+        @SuppressWarnings("unchecked")
+        Candidate<K>[] heap = (Candidate<K>[]) new Candidate<?>[k];
+        this.heap = heap;
+        this.clock = clock;
+        this.currentEpoch = clock.millis() / bucketMillis;
+    }
+
+    /**
+     * Counts one occurrence of {@code key}.
+     *
+     * @return the key's estimated count over the window
+     */
+    public long record(K key) {
+        slideIfNeeded();
+        int hash = key.hashCode();
+        buckets[bucketIndex(currentEpoch)].add(hash, 1);
+        long estimate = windowEstimate(hash);
+        var candidate = candidates.get(key);
+        if (candidate != null) {
+            if (candidate.raise(estimate) && !heapStale) {
+                heapStale = true;
+            }
+        } else if (estimate >= admissionThreshold) {
+            offer(key, estimate);
+        }
+        return estimate;
+    }
+
+    public long estimate(K key) {
+        slideIfNeeded();
+        return windowEstimate(key.hashCode());
+    }
+
+    /**
+     * Lock-free check for hot paths such as cache admission or throttling.
+     */
+    public boolean isHeavyHitter(K key) {
+        slideIfNeeded();
+        return candidates.containsKey(key);
+    }
+
+    /**
+     * @return the current top keys, most frequent first
+     */
+    public synchronized List<HeavyHitter<K>> getTop() {
+        slideIfNeeded();
+        List<HeavyHitter<K>> top = new ArrayList<>(heapSize);
+        for (int i = 0; i < heapSize; i++) {
+            top.add(new HeavyHitter<>(heap[i].key, heap[i].getCount()));
+        }
+        top.sort(Comparator.comparingLong(HeavyHitter<K>::getCount).reversed());
+        return top;
+    }
+
+    private synchronized void offer(K key, long estimate) {
+        var candidate = candidates.get(key);
+        if (candidate != null) {
+            // admitted by another thread since the lock-free check
+            if (candidate.raise(estimate)) {
+                siftDown(candidate.index);
+            }
+        } else if (heapSize < k) {
+            add(key, estimate);
+        } else {
+            restoreHeapOrder();
+            if (estimate > heap[0].getCount()) {
+                candidates.remove(heap[0].key);
+                var added = new Candidate<>(key, estimate);
+                candidates.put(key, added);
+                place(added, 0);
+                siftDown(0);
+            }
+        }
+        updateThreshold();
+    }
+
+    private void slideIfNeeded() {
+        long epoch = clock.millis() / bucketMillis;
+        if (epoch > currentEpoch) {
+            slide(epoch);
+        }
+    }
+
+    /**
+     * Clears the slices that fell out of the window, then re-estimates the candidates
+     * against what is left and drops those that no longer occur.
+     */
+    private synchronized void slide(long epoch) {
+        if (epoch <= currentEpoch) {
+            return;
+        }
+        long expired = Math.min(epoch - currentEpoch, buckets.length);
+        for (long slice = epoch - expired + 1; slice <= epoch; slice++) {
+            buckets[bucketIndex(slice)].clear();
+        }
+        currentEpoch = epoch;
+
+        heapSize = 0;
+        var iterator = candidates.values().iterator();
+        while (iterator.hasNext()) {
+            var candidate = iterator.next();
+            candidate.count.set(windowEstimate(candidate.key.hashCode()));
+            if (candidate.getCount() == 0) {
+                iterator.remove();
+            } else {
+                place(candidate, heapSize++);
+            }
+        }
+        heapStale = true;
+        restoreHeapOrder();
+        updateThreshold();
+    }
+
+    private void add(K key, long estimate) {
+        var candidate = new Candidate<>(key, estimate);
+        candidates.put(key, candidate);
+        place(candidate, heapSize++);
+        siftUp(candidate.index);
+    }
+
+    private void updateThreshold() {
+        admissionThreshold = heapSize < k ? 0 : heap[0].getCount();
+    }
+
+    /**
+     * Re-sifts the heap if counts were raised in place since the last call. The flag is
+     * cleared first, so a raise racing with the sift marks the heap stale again.
+     */
+    private void restoreHeapOrder() {
+        if (!heapStale) {
+            return;
+        }
+        heapStale = false;
+        for (int i = (heapSize >>> 1) - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    private void siftUp(int index) {
+        var candidate = heap[index];
+        long count = candidate.getCount();
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].getCount() <= count) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(candidate, index);
+    }
+
+    private void siftDown(int index) {
+        var candidate = heap[index];
+        long count = candidate.getCount();
+        int half = heapSize >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < heapSize && heap[child + 1].getCount() < heap[child].getCount()) {
+                child++;
+            }
+            if (count <= heap[child].getCount()) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(candidate, index);
+    }
+
+    private void place(Candidate<K> candidate, int index) {
+        heap[index] = candidate;
+        candidate.index = index;
+    }
+
+    private long windowEstimate(int hash) {
+        long estimate = 0;
+        for (CountMinSketch bucket : buckets) {
+            estimate += bucket.estimate(hash);
+        }
+        return estimate;
+    }
+
+    private int bucketIndex(long epoch) {
+        return (int) (epoch % buckets.length);
+    }
+
+    @Value
+    public static class HeavyHitter<K> {
+        K key;
+        long count;
+    }
+
+    private static final class Candidate<K> {
+
+        private final K key;
+        private final AtomicLong count;
+        private int index;
+
+        private Candidate(K key, long count) {
+            this.key = key;
+            this.count = new AtomicLong(count);
+        }
+
+        private long getCount() {
+            return count.get();
+        }
+
+        /**
+         * @return whether {@code estimate} raised the count
+         */
+        private boolean raise(long estimate) {
+            long current;
+            do {
+                current = count.get();
+                if (estimate <= current) {
+                    return false;
+                }
+            } while (!count.compareAndSet(current, estimate));
+            return true;
+        }
+    }
+}
@@ -20,19 +20,33 @@ public class CreateSubscriptionValidator implements Validator<CreateSubscription
 
     @Override
     public ValidationResult validate(CreateSubscriptionDto object) {
-        var validationResult = new ValidationResult();
+        return validate(object, Instant.now());
+    }
+
+    /**
+     * Validates against the given instant instead of reading the clock, so a batch can
+     * share one reading. Returns {@link ValidationResult#VALID} when there are no errors.
+     */
+    public ValidationResult validate(CreateSubscriptionDto object, Instant now) {
+        ValidationResult validationResult = null;
         if (object.getUserId() == null) {
-            validationResult.add(Error.of(100, "userId is invalid"));
+            validationResult = add(validationResult, Error.of(100, "userId is invalid"));
         }
         if (StringUtils.isBlank(object.getName())) {
-            validationResult.add(Error.of(101, "name is invalid"));
+            validationResult = add(validationResult, Error.of(101, "name is invalid"));
         }
-        if (Provider.findByNameOpt(object.getProvider()).isEmpty()) {
-            validationResult.add(Error.of(102, "provider is invalid"));
+        if (Provider.findByNameOrNull(object.getProvider()) == null) {
+            validationResult = add(validationResult, Error.of(102, "provider is invalid"));
         }
-        if (object.getExpirationDate() == null || object.getExpirationDate().isBefore(Instant.now())) {
-            validationResult.add(Error.of(103, "expirationDate is invalid"));
+        if (object.getExpirationDate() == null || object.getExpirationDate().isBefore(now)) {
+            validationResult = add(validationResult, Error.of(103, "expirationDate is invalid"));
         }
-        return validationResult;
+        return validationResult == null ? ValidationResult.VALID : validationResult;
+    }
+
+    private static ValidationResult add(ValidationResult validationResult, Error error) {
+        var result = validationResult == null ? new ValidationResult() : validationResult;
+        result.add(error);
+        return result;
     }
 }
@@ -7,8 +7,21 @@ import java.util.List;
 
 public class ValidationResult {
 
+    /**
+     * Shared result for objects without errors. It is immutable: {@link #add} throws.
+     */
+    public static final ValidationResult VALID = new ValidationResult(List.of());
+
     @Getter
-    private final List<Error> errors = new ArrayList<>();
+    private final List<Error> errors;
+
+    public ValidationResult() {
+        this(new ArrayList<>());
+    }
+
+    private ValidationResult(List<Error> errors) {
+        this.errors = errors;
+    }
 
     public void add(Error error) {
         this.errors.add(error);
@@ -0,0 +1,122 @@
+package com.dmdev.audit;
+
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.service.SubscriptionOperation;
+import com.dmdev.util.MutableClock;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuditLogTest {
+
+    private static final Instant NOW = Instant.parse("2030-01-01T10:15:30.123456789Z");
+
+    @TempDir
+    Path directory;
+
+    private final MutableClock clock = new MutableClock(NOW);
+
+    @Test
+    void append_shouldBeReplayedWithAllFields() {
+        try (var auditLog = new AuditLog(directory, 16, clock, Duration.ofSeconds(1))) {
+            auditLog.onTransition(SubscriptionOperation.UPSERT, null, createSubscription(1, Status.ACTIVE));
+            clock.advance(Duration.ofSeconds(5));
+            auditLog.onTransition(SubscriptionOperation.CANCEL, Status.ACTIVE, createSubscription(1, Status.CANCELED));
+        }
+
+        List<AuditRecord> records = replay();
+
+        assertThat(records).containsExactly(
+                new AuditRecord(SubscriptionOperation.UPSERT, 1, 101, null, Status.ACTIVE, Provider.APPLE, NOW),
+                new AuditRecord(SubscriptionOperation.CANCEL, 1, 101, Status.ACTIVE, Status.CANCELED, Provider.APPLE,
+                        NOW.plusSeconds(5)));
+    }
+
+    @Test
+    void append_shouldRollSegmentsUnderConcurrentWriters() throws InterruptedException {
+        int threads = 4;
+        int recordsPerThread = 250;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (var auditLog = new AuditLog(directory, 64, clock, Duration.ofMillis(10))) {
+            for (int thread = 0; thread < threads; thread++) {
+                int firstId = thread * recordsPerThread;
+                executor.execute(() -> {
+                    for (int id = firstId; id < firstId + recordsPerThread; id++) {
+                        auditLog.append(SubscriptionOperation.EXPIRE, Status.ACTIVE, createSubscription(id, Status.EXPIRED));
+                    }
+                });
+            }
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(auditLog.getAppendedRecords()).isEqualTo(threads * recordsPerThread);
+        }
+
+        List<AuditRecord> records = replay();
+
+        assertThat(records).hasSize(threads * recordsPerThread);
+        assertThat(records).extracting(AuditRecord::getSubscriptionId).doesNotHaveDuplicates();
+        assertThat(directory.toFile().list()).hasSizeGreaterThanOrEqualTo(threads * recordsPerThread / 64);
+    }
+
+    @Test
+    void constructor_shouldStartNewSegmentAfterExistingOnes() {
+        try (var auditLog = new AuditLog(directory, 16, clock, Duration.ofSeconds(1))) {
+            auditLog.append(SubscriptionOperation.UPSERT, null, createSubscription(1, Status.ACTIVE));
+        }
+        try (var auditLog = new AuditLog(directory, 16, clock, Duration.ofSeconds(1))) {
+            auditLog.append(SubscriptionOperation.UPSERT, null, createSubscription(2, Status.ACTIVE));
+        }
+
+        assertThat(replay()).extracting(AuditRecord::getSubscriptionId).containsExactly(1, 2);
+    }
+
+    @Test
+    void append_shouldFailAfterClose() {
+        var auditLog = new AuditLog(directory, 16, clock, Duration.ofSeconds(1));
+        auditLog.close();
+
+        assertThatThrownBy(() -> auditLog.append(SubscriptionOperation.UPSERT, null, createSubscription(1, Status.ACTIVE)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void onTransition_shouldCountRecordDroppedAfterClose() {
+        var auditLog = new AuditLog(directory, 16, clock, Duration.ofSeconds(1));
+        auditLog.close();
+
+        auditLog.onTransition(SubscriptionOperation.UPSERT, null, createSubscription(1, Status.ACTIVE));
+
+        assertThat(auditLog.getDroppedRecords()).isEqualTo(1);
+        assertThat(auditLog.getAppendedRecords()).isZero();
+    }
+
+    private List<AuditRecord> replay() {
+        List<AuditRecord> records = new ArrayList<>();
+        new AuditLogReader(directory).forEach(records::add);
+        return records;
+    }
+
+    private Subscription createSubscription(int id, Status status) {
+        return Subscription.builder()
+                .id(id)
+                .userId(100 + id)
+                .name("Subscription")
+                .provider(Provider.APPLE)
+                .expirationDate(NOW)
+                .status(status)
+                .build();
+    }
+}
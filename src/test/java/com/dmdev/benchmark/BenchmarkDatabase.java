@@ -0,0 +1,63 @@
+package com.dmdev.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Standalone H2 database for benchmarks, independent of {@code application.properties}.
+ */
+final class BenchmarkDatabase {
+
+    static final String SELECT_ALL_SQL = "SELECT id, user_id, name, provider, expiration_date, status FROM subscription";
+    static final String[] NAMES = {"premium", "family", "student", "basic", "duo", "trial"};
+
+    private static final String CREATE_SQL = """
+            CREATE TABLE IF NOT EXISTS subscription
+            (
+                id INT AUTO_INCREMENT PRIMARY KEY ,
+                user_id INT NOT NULL ,
+                name VARCHAR(64) NOT NULL ,
+                provider VARCHAR(16) NOT NULL ,
+                expiration_date DATETIME NOT NULL ,
+                status VARCHAR(16) NOT NULL ,
+                UNIQUE (user_id, name)
+            );
+            """;
+    private static final String INSERT_SQL =
+            "INSERT INTO subscription (user_id, name, provider, expiration_date, status) VALUES (?, ?, ?, ?, ?)";
+    private static final String[] PROVIDERS = {"GOOGLE", "APPLE"};
+    private static final String[] STATUSES = {"ACTIVE", "CANCELED", "EXPIRED"};
+
+    private BenchmarkDatabase() {
+    }
+
+    static Connection open(String name) throws SQLException {
+        var connection = DriverManager.getConnection("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        try (var statement = connection.createStatement()) {
+            statement.execute(CREATE_SQL);
+            statement.execute("DELETE FROM subscription");
+        }
+        return connection;
+    }
+
+    static void fill(Connection connection, int rows) throws SQLException {
+        var now = Instant.now();
+        try (var preparedStatement = connection.prepareStatement(INSERT_SQL)) {
+            for (int i = 0; i < rows; i++) {
+                preparedStatement.setInt(1, i / NAMES.length);
+                preparedStatement.setString(2, NAMES[i % NAMES.length]);
+                preparedStatement.setString(3, PROVIDERS[i % PROVIDERS.length]);
+                preparedStatement.setTimestamp(4, Timestamp.from(now.plusSeconds(i)));
+                preparedStatement.setString(5, STATUSES[i % STATUSES.length]);
+                preparedStatement.addBatch();
+                if (i % 1_000 == 999) {
+                    preparedStatement.executeBatch();
+                }
+            }
+            preparedStatement.executeBatch();
+        }
+    }
+}
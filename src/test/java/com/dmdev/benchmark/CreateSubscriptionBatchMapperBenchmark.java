@@ -0,0 +1,133 @@
+package com.dmdev.benchmark;
+
+import com.dmdev.dto.CreateSubscriptionDto;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.mapper.CreateSubscriptionBatchMapper;
+import com.dmdev.validator.Error;
+import com.dmdev.validator.ValidationResult;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the former per-DTO validate-then-map loop with {@link CreateSubscriptionBatchMapper}.
+ * {@code invalidPercent} controls how many DTOs in the batch fail validation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class CreateSubscriptionBatchMapperBenchmark {
+
+    @Param("10000")
+    private int batchSize;
+
+    @Param({"0", "10"})
+    private int invalidPercent;
+
+    private List<CreateSubscriptionDto> dtos;
+    private final CreateSubscriptionBatchMapper batchMapper = CreateSubscriptionBatchMapper.getInstance();
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CreateSubscriptionBatchMapperBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build())
+                .run();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var expirationDate = Instant.now().plus(365, ChronoUnit.DAYS);
+        dtos = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            boolean invalid = i % 100 < invalidPercent;
+            dtos.add(CreateSubscriptionDto.builder()
+                    .userId(i)
+                    .name(BenchmarkDatabase.NAMES[i % BenchmarkDatabase.NAMES.length])
+                    .provider(invalid ? "NETFLIX" : (i % 2 == 0 ? "google" : "APPLE"))
+                    .expirationDate(expirationDate)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public void perDto(Blackhole blackhole) {
+        List<Subscription> subscriptions = new ArrayList<>();
+        List<List<Error>> errors = new ArrayList<>();
+        for (CreateSubscriptionDto dto : dtos) {
+            var validationResult = legacyValidate(dto);
+            if (validationResult.hasErrors()) {
+                errors.add(validationResult.getErrors());
+            } else {
+                subscriptions.add(legacyMap(dto));
+            }
+        }
+        blackhole.consume(subscriptions);
+        blackhole.consume(errors);
+    }
+
+    @Benchmark
+    public void batch(Blackhole blackhole) {
+        blackhole.consume(batchMapper.map(dtos));
+    }
+
+    private static ValidationResult legacyValidate(CreateSubscriptionDto object) {
+        var validationResult = new ValidationResult();
+        if (object.getUserId() == null) {
+            validationResult.add(Error.of(100, "userId is invalid"));
+        }
+        if (StringUtils.isBlank(object.getName())) {
+            validationResult.add(Error.of(101, "name is invalid"));
+        }
+        if (legacyFindByNameOpt(object.getProvider()).isEmpty()) {
+            validationResult.add(Error.of(102, "provider is invalid"));
+        }
+        if (object.getExpirationDate() == null || object.getExpirationDate().isBefore(Instant.now())) {
+            validationResult.add(Error.of(103, "expirationDate is invalid"));
+        }
+        return validationResult;
+    }
+
+    private static Subscription legacyMap(CreateSubscriptionDto object) {
+        return Subscription.builder()
+                .userId(object.getUserId())
+                .name(object.getName())
+                .provider(legacyFindByNameOpt(object.getProvider()).orElse(null))
+                .expirationDate(object.getExpirationDate())
+                .status(Status.ACTIVE)
+                .build();
+    }
+
+    private static Optional<Provider> legacyFindByNameOpt(String name) {
+        return Arrays.stream(Provider.values())
+                .filter(provider -> provider.name().equalsIgnoreCase(name))
+                .findFirst();
+    }
+}
@@ -0,0 +1,76 @@
+package com.dmdev.benchmark;
+
+import com.dmdev.dao.RowMapper;
+import com.dmdev.dao.SubscriptionRowMapper;
+import com.dmdev.entity.Subscription;
+import com.dmdev.util.StringInterner;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Retained heap of a {@code findAll}-sized result with and without name interning.
+ * <p>
+ * H2 in-memory hands out its own cached {@code String} instances, so the result set is
+ * wrapped to return a fresh copy from {@code getString}, as wire-protocol drivers such as
+ * PgJDBC do. Run with a fixed heap, e.g. {@code -Xmx2g}.
+ */
+public class NameInterningMemoryBenchmark {
+
+    private static final int ROWS = 500_000;
+
+    public static void main(String[] args) throws SQLException {
+        try (var connection = BenchmarkDatabase.open("name-interning-benchmark")) {
+            BenchmarkDatabase.fill(connection, ROWS);
+
+            var interner = new StringInterner(1_000);
+            long withoutInterning = retainedBytes(connection, new SubscriptionRowMapper(null));
+            long withInterning = retainedBytes(connection, new SubscriptionRowMapper(interner));
+
+            System.out.printf("rows: %,d%n", ROWS);
+            System.out.printf("without interning: %,d bytes retained%n", withoutInterning);
+            System.out.printf("with interning:    %,d bytes retained (pool size %d, hit rate %.4f)%n",
+                    withInterning, interner.size(), interner.getHitRate());
+        }
+    }
+
+    private static long retainedBytes(Connection connection, RowMapper<Subscription> rowMapper)
+            throws SQLException {
+        long before = usedHeapAfterGc();
+        List<Subscription> subscriptions = new ArrayList<>();
+        try (var statement = connection.createStatement()) {
+            var resultSet = copyingStrings(statement.executeQuery(BenchmarkDatabase.SELECT_ALL_SQL));
+            var reader = rowMapper.bind(resultSet);
+            while (resultSet.next()) {
+                subscriptions.add(reader.read(resultSet));
+            }
+        }
+        long after = usedHeapAfterGc();
+        if (subscriptions.size() != ROWS) {
+            throw new IllegalStateException("Unexpected row count " + subscriptions.size());
+        }
+        return after - before;
+    }
+
+    private static ResultSet copyingStrings(ResultSet resultSet) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    var result = method.invoke(resultSet, args);
+                    return result instanceof String value && method.getName().equals("getString")
+                            ? new String(value.toCharArray())
+                            : result;
+                });
+    }
+
+    private static long usedHeapAfterGc() {
+        var runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
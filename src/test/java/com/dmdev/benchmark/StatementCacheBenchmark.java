@@ -0,0 +1,96 @@
+package com.dmdev.benchmark;
+
+import com.dmdev.util.ConnectionPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a {@code findById}-shaped lookup and a 100-row range read through
+ * {@link ConnectionPool} with the statement cache off ({@code statementCacheSize = 0}) and
+ * on. The range read walks the pooled result set row by row, as the row mapper does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementCacheBenchmark {
+
+    private static final String DATABASE = "statement-cache-benchmark";
+    private static final String GET_BY_ID_SQL = BenchmarkDatabase.SELECT_ALL_SQL + " WHERE id = ?";
+    private static final String RANGE_SQL = BenchmarkDatabase.SELECT_ALL_SQL + " WHERE id BETWEEN ? AND ?";
+    private static final int RANGE_ROWS = 100;
+    private static final int ROWS = 10_000;
+
+    @Param({"0", "64"})
+    private int statementCacheSize;
+
+    private Connection keepAlive;
+    private ConnectionPool pool;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StatementCacheBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        keepAlive = BenchmarkDatabase.open(DATABASE);
+        BenchmarkDatabase.fill(keepAlive, ROWS);
+        pool = new ConnectionPool("jdbc:h2:mem:" + DATABASE + ";DB_CLOSE_DELAY=-1", "sa", "", 4, statementCacheSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        pool.close();
+        keepAlive.close();
+    }
+
+    @Benchmark
+    public String findById() throws SQLException {
+        try (var connection = pool.getConnection();
+             var preparedStatement = connection.prepareStatement(GET_BY_ID_SQL)) {
+            preparedStatement.setInt(1, ThreadLocalRandom.current().nextInt(1, ROWS + 1));
+            var resultSet = preparedStatement.executeQuery();
+            return resultSet.next() ? resultSet.getString(3) : null;
+        }
+    }
+
+    @Benchmark
+    public long readRange() throws SQLException {
+        int from = ThreadLocalRandom.current().nextInt(1, ROWS - RANGE_ROWS + 2);
+        try (var connection = pool.getConnection();
+             var preparedStatement = connection.prepareStatement(RANGE_SQL)) {
+            preparedStatement.setInt(1, from);
+            preparedStatement.setInt(2, from + RANGE_ROWS - 1);
+            var resultSet = preparedStatement.executeQuery();
+            long sum = 0;
+            while (resultSet.next()) {
+                sum += resultSet.getInt(1) + resultSet.getInt(2) + resultSet.getString(3).length();
+            }
+            return sum;
+        }
+    }
+}
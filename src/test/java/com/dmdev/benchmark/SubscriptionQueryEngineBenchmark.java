@@ -0,0 +1,129 @@
+package com.dmdev.benchmark;
+
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.query.SubscriptionFilter;
+import com.dmdev.query.SubscriptionQueryEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.dmdev.query.SubscriptionFilter.expiringBetween;
+import static com.dmdev.query.SubscriptionFilter.provider;
+import static com.dmdev.query.SubscriptionFilter.status;
+import static com.dmdev.query.SubscriptionFilter.userIdIn;
+
+/**
+ * Compares {@link SubscriptionQueryEngine} with a stream over the same subscriptions for a
+ * combined status/provider/expiration count, a top-N soonest-expiring query and a user id
+ * set lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class SubscriptionQueryEngineBenchmark {
+
+    private static final int ROWS = 1_000_000;
+    private static final int USERS = 200_000;
+    private static final int TOP_N = 100;
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+    private static final Instant FROM = NOW.plus(Duration.ofDays(30));
+    private static final Instant TO = NOW.plus(Duration.ofDays(37));
+    private static final Set<Integer> USER_IDS = Set.of(17, 4_242, 50_000, 123_456, 199_999);
+
+    private final SubscriptionQueryEngine engine = new SubscriptionQueryEngine();
+    private final List<Subscription> subscriptions = new ArrayList<>(ROWS);
+    private final SubscriptionFilter activeAppleThisWeek = status(Status.ACTIVE)
+            .and(provider(Provider.APPLE))
+            .and(expiringBetween(FROM, TO));
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SubscriptionQueryEngineBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var random = new Random(42);
+        for (int id = 1; id <= ROWS; id++) {
+            var subscription = Subscription.builder()
+                    .id(id)
+                    .userId(random.nextInt(USERS))
+                    .name("Subscription " + id % 100)
+                    .provider(Provider.values()[random.nextInt(Provider.values().length)])
+                    .expirationDate(NOW.plusSeconds(random.nextInt(365 * 24 * 60 * 60)))
+                    .status(Status.values()[random.nextInt(Status.values().length)])
+                    .build();
+            subscriptions.add(subscription);
+            engine.put(subscription);
+        }
+    }
+
+    @Benchmark
+    public int countEngine() {
+        return engine.count(activeAppleThisWeek);
+    }
+
+    @Benchmark
+    public long countScan() {
+        return subscriptions.stream()
+                .filter(subscription -> subscription.getStatus() == Status.ACTIVE
+                        && subscription.getProvider() == Provider.APPLE
+                        && !subscription.getExpirationDate().isBefore(FROM)
+                        && subscription.getExpirationDate().isBefore(TO))
+                .count();
+    }
+
+    @Benchmark
+    public List<Subscription> soonestExpiringEngine() {
+        return engine.findSoonestExpiring(status(Status.ACTIVE), TOP_N);
+    }
+
+    @Benchmark
+    public List<Subscription> soonestExpiringScan() {
+        return subscriptions.stream()
+                .filter(subscription -> subscription.getStatus() == Status.ACTIVE)
+                .sorted(Comparator.comparing(Subscription::getExpirationDate))
+                .limit(TOP_N)
+                .toList();
+    }
+
+    @Benchmark
+    public int[] userIdInEngine() {
+        return engine.findIds(userIdIn(USER_IDS));
+    }
+
+    @Benchmark
+    public int[] userIdInScan() {
+        return subscriptions.stream()
+                .filter(subscription -> USER_IDS.contains(subscription.getUserId()))
+                .mapToInt(Subscription::getId)
+                .toArray();
+    }
+}
@@ -0,0 +1,95 @@
+package com.dmdev.benchmark;
+
+import com.dmdev.dao.RowMapper;
+import com.dmdev.dao.SubscriptionRowMapper;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the former name-based {@code buildEntity} with {@link SubscriptionRowMapper}.
+ * The query runs once per trial into a scrollable result set, so only row mapping is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubscriptionRowMapperBenchmark {
+
+    @Param("10000")
+    private int rows;
+
+    private Connection connection;
+    private ResultSet resultSet;
+    private final RowMapper<Subscription> rowMapper = SubscriptionRowMapper.getInstance();
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SubscriptionRowMapperBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = BenchmarkDatabase.open("row-mapper-benchmark");
+        BenchmarkDatabase.fill(connection, rows);
+        resultSet = connection
+                .createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)
+                .executeQuery(BenchmarkDatabase.SELECT_ALL_SQL);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void buildEntityByName(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        while (resultSet.next()) {
+            blackhole.consume(Subscription.builder()
+                    .id(resultSet.getObject("id", Integer.class))
+                    .userId(resultSet.getObject("user_id", Integer.class))
+                    .name(resultSet.getObject("name", String.class))
+                    .provider(Provider.valueOf(resultSet.getObject("provider", String.class)))
+                    .expirationDate(resultSet.getObject("expiration_date", Timestamp.class).toInstant())
+                    .status(Status.valueOf(resultSet.getObject("status", String.class)))
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public void rowMapper(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        var reader = rowMapper.bind(resultSet);
+        while (resultSet.next()) {
+            blackhole.consume(reader.read(resultSet));
+        }
+    }
+}
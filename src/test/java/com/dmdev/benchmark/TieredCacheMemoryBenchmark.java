@@ -0,0 +1,116 @@
+package com.dmdev.benchmark;
+
+import com.dmdev.cache.TieredSubscriptionCache;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.SplittableRandom;
+
+/**
+ * Heap footprint and GC cost of caching {@code ENTRIES} subscriptions all on the heap versus
+ * in a 10,000-entry heap tier in front of an off-heap tier. For each layout it reports the
+ * heap retained after filling, the duration of a full collection with the cache live, and
+ * the collector time spent during a workload of reads and refreshes in which 90% of the
+ * operations go to {@code HOT_ENTRIES} ids.
+ * <p>
+ * Run each layout in its own JVM with a fixed heap, e.g.
+ * {@code -Xmx4g -XX:MaxDirectMemorySize=2g ... TieredCacheMemoryBenchmark heap 2000000}
+ * and the same with {@code tiered}.
+ */
+public class TieredCacheMemoryBenchmark {
+
+    private static final int HEAP_TIER = 10_000;
+    private static final int HOT_ENTRIES = 5_000;
+    private static final int OPERATIONS = 5_000_000;
+    private static final Instant EXPIRATION_DATE = Instant.parse("2030-01-01T00:00:00Z");
+
+    public static void main(String[] args) {
+        var layout = args.length > 0 ? args[0] : "tiered";
+        int entries = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        var cache = layout.equals("heap")
+                ? new TieredSubscriptionCache(entries, 0)
+                : new TieredSubscriptionCache(HEAP_TIER, entries);
+
+        long before = usedHeapAfterGc();
+        for (int id = 0; id < entries; id++) {
+            cache.put(createSubscription(id, 0), cache.getGeneration());
+        }
+        long retained = usedHeapAfterGc() - before;
+
+        long fullGcStarted = System.nanoTime();
+        System.gc();
+        long fullGcMillis = (System.nanoTime() - fullGcStarted) / 1_000_000;
+
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        long started = System.nanoTime();
+        var random = new SplittableRandom(42);
+        long hits = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            int id = random.nextInt(10) < 9 ? random.nextInt(HOT_ENTRIES) : random.nextInt(entries);
+            if (i % 10 == 0) {
+                cache.put(createSubscription(id, i), cache.getGeneration());
+            } else if (cache.get(id) != null) {
+                hits++;
+            }
+        }
+        long workloadMillis = (System.nanoTime() - started) / 1_000_000;
+
+        System.out.printf("layout: %s, entries: %,d%n", layout, entries);
+        System.out.printf("heap retained:    %,d bytes%n", retained);
+        System.out.printf("direct memory:    %,d bytes%n", directMemoryUsed());
+        System.out.printf("full GC:          %,d ms%n", fullGcMillis);
+        System.out.printf("workload:         %,d ms, %,d hits, %,d collections, %,d ms in GC%n",
+                workloadMillis, hits, gcCount() - gcCountBefore, gcMillis() - gcMillisBefore);
+    }
+
+    private static Subscription createSubscription(int id, int version) {
+        return Subscription.builder()
+                .id(id)
+                .userId(id / 3)
+                .name("Subscription " + (version % 100))
+                .provider(id % 2 == 0 ? Provider.GOOGLE : Provider.APPLE)
+                .expirationDate(EXPIRATION_DATE.plusSeconds(id))
+                .status(Status.ACTIVE)
+                .build();
+    }
+
+    private static long usedHeapAfterGc() {
+        var runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long directMemoryUsed() {
+        long used = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                used += pool.getMemoryUsed();
+            }
+        }
+        return used;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += collector.getCollectionCount();
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += collector.getCollectionTime();
+        }
+        return millis;
+    }
+}
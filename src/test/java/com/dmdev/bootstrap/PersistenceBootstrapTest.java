@@ -0,0 +1,93 @@
+package com.dmdev.bootstrap;
+
+import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.dto.CreateSubscriptionDto;
+import com.dmdev.integration.IntegrationTestBase;
+import com.dmdev.mapper.CreateSubscriptionBatchMapper;
+import com.dmdev.mapper.CreateSubscriptionMapper;
+import com.dmdev.util.ConnectionManager;
+import com.dmdev.util.PropertiesUtil;
+import com.dmdev.validator.CreateSubscriptionValidator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mockStatic;
+
+class PersistenceBootstrapTest extends IntegrationTestBase {
+
+    private final PersistenceBootstrap bootstrap = PersistenceBootstrap.getDefault();
+
+    @Test
+    void run_shouldFillPoolAndPrepareStatementsOnEveryConnection() {
+        var pool = ConnectionManager.getPool();
+
+        var report = bootstrap.run();
+
+        assertThat(pool.getIdleConnections()).isEqualTo(pool.getMaxSize());
+        assertThat(report.getConnectionsOpened()).isBetween(0, pool.getMaxSize());
+        assertThat(pool.getConnectionsOpened()).isGreaterThanOrEqualTo(pool.getMaxSize());
+        assertThat(report.getStatementsPrepared()).isEqualTo(pool.getMaxSize() * 8);
+        assertThat(report.getWarmUpIterations()).isPositive();
+        assertThat(report.getWarmUpRowsMapped()).isEqualTo(20_000);
+        assertThat(report.getTotal()).isEqualTo(report.getConfiguration().plus(report.getPoolPrefill())
+                .plus(report.getStatementPreparation()).plus(report.getWarmUp()));
+    }
+
+    @Test
+    void run_shouldWarmUpWithExpirationDatesValidOnTheMappersClock() {
+        var clock = Clock.fixed(Instant.parse("2100-01-01T00:00:00Z"), ZoneOffset.UTC);
+        var expirationErrors = new LongAdder();
+        var batchMapper = new CreateSubscriptionBatchMapper(CreateSubscriptionValidator.getInstance(),
+                CreateSubscriptionMapper.getInstance(), clock) {
+            @Override
+            public BatchResult map(List<CreateSubscriptionDto> dtos) {
+                var result = super.map(dtos);
+                result.getErrors().stream()
+                        .flatMap(error -> error.getErrors().stream())
+                        .filter(error -> error.getCode() == 103)
+                        .forEach(error -> expirationErrors.increment());
+                return result;
+            }
+        };
+
+        new PersistenceBootstrap(SubscriptionDao.getInstance(), batchMapper).run();
+
+        assertThat(expirationErrors.sum()).isZero();
+    }
+
+    @Test
+    void run_shouldLeavePreparedStatementsInCache() {
+        var pool = ConnectionManager.getPool();
+        bootstrap.run();
+        long misses = pool.getStatementMisses();
+
+        SubscriptionDao.getInstance().findAll();
+
+        assertThat(pool.getStatementMisses()).isEqualTo(misses);
+    }
+
+    @Test
+    void run_shouldReportEveryConfigurationProblem() {
+        try (var propertiesUtilMock = mockStatic(PropertiesUtil.class)) {
+            propertiesUtilMock.when(() -> PropertiesUtil.get("db.user")).thenReturn("sa");
+            propertiesUtilMock.when(() -> PropertiesUtil.get("db.password")).thenReturn("");
+            propertiesUtilMock.when(() -> PropertiesUtil.get("db.driver")).thenReturn("org.example.MissingDriver");
+            propertiesUtilMock.when(() -> PropertiesUtil.get("db.pool.size")).thenReturn("0");
+            propertiesUtilMock.when(() -> PropertiesUtil.get("bootstrap.warm-up.queries")).thenReturn("many");
+
+            assertThatThrownBy(bootstrap::run)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("db.url is missing")
+                    .hasMessageContaining("db.pool.size must be at least 1")
+                    .hasMessageContaining("bootstrap.warm-up.queries is not a number")
+                    .hasMessageContaining("org.example.MissingDriver");
+        }
+    }
+}
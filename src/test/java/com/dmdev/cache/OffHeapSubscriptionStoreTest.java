@@ -0,0 +1,103 @@
+package com.dmdev.cache;
+
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapSubscriptionStoreTest {
+
+    @Test
+    void get_shouldDecodeEveryField() {
+        var store = new OffHeapSubscriptionStore(10);
+        var subscription = createSubscription(7, "Название подписки");
+
+        store.put(subscription);
+
+        assertThat(store.get(7)).isEqualTo(subscription).isNotSameAs(subscription);
+    }
+
+    @Test
+    void get_shouldKeepNullFieldsNull() {
+        var store = new OffHeapSubscriptionStore(10);
+        var subscription = Subscription.builder().id(-3).build();
+
+        store.put(subscription);
+
+        assertThat(store.get(-3)).isEqualTo(subscription);
+    }
+
+    @Test
+    void put_shouldRejectNameLongerThanColumn_andDropPreviousEntry() {
+        var store = new OffHeapSubscriptionStore(10);
+        store.put(createSubscription(1, "short"));
+
+        boolean stored = store.put(createSubscription(1, "x".repeat(65)));
+
+        assertThat(stored).isFalse();
+        assertThat(store.get(1)).isNull();
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    void put_shouldEvictEntryWithoutReferenceBit() {
+        var store = new OffHeapSubscriptionStore(3);
+        store.put(createSubscription(1, "first"));
+        store.put(createSubscription(2, "second"));
+        store.put(createSubscription(3, "third"));
+        store.put(createSubscription(4, "fourth"));
+        store.get(2);
+        store.get(4);
+
+        store.put(createSubscription(5, "fifth"));
+
+        assertThat(store.get(3)).isNull();
+        assertThat(store.get(2)).isNotNull();
+        assertThat(store.get(4)).isNotNull();
+        assertThat(store.get(5)).isNotNull();
+        assertThat(store.getEvictions()).isEqualTo(2);
+        assertThat(store.size()).isEqualTo(3);
+    }
+
+    @Test
+    void operations_shouldMatchHashMap_whenEntriesChurn() {
+        var store = new OffHeapSubscriptionStore(20_000);
+        Map<Integer, Subscription> expected = new HashMap<>();
+        var random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            int id = random.nextInt(15_000) - 5_000;
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    var subscription = createSubscription(id, "name-" + i);
+                    store.put(subscription);
+                    expected.put(id, subscription);
+                }
+                case 1 -> assertThat(store.remove(id)).isEqualTo(expected.remove(id));
+                default -> assertThat(store.get(id)).isEqualTo(expected.get(id));
+            }
+        }
+
+        assertThat(store.size()).isEqualTo(expected.size());
+        expected.forEach((id, subscription) -> assertThat(store.get(id)).isEqualTo(subscription));
+        assertThat(store.getEvictions()).isZero();
+    }
+
+    private Subscription createSubscription(int id, String name) {
+        return Subscription.builder()
+                .id(id)
+                .userId(id * 10)
+                .name(name)
+                .provider(Provider.GOOGLE)
+                .expirationDate(Instant.parse("2030-01-01T10:15:30.123456789Z"))
+                .status(Status.ACTIVE)
+                .build();
+    }
+}
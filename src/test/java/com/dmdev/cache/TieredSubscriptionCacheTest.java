@@ -0,0 +1,170 @@
+package com.dmdev.cache;
+
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.util.MutableClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TieredSubscriptionCacheTest {
+
+    private final TieredSubscriptionCache cache = new TieredSubscriptionCache(2, 10);
+
+    @Test
+    void put_shouldDemoteLeastRecentlyUsedEntryOffHeap() {
+        put(1);
+        put(2);
+        cache.get(1);
+
+        put(3);
+
+        assertThat(cache.getHeapSize()).isEqualTo(2);
+        assertThat(cache.getOffHeapSize()).isEqualTo(1);
+        assertThat(cache.getDemotions()).isEqualTo(1);
+        assertThat(cache.get(2)).isEqualTo(createSubscription(2));
+        assertThat(cache.getOffHeapHits()).isEqualTo(1);
+    }
+
+    @Test
+    void get_shouldPromoteOffHeapHit_andDemoteHeapEldest() {
+        put(1);
+        put(2);
+        put(3);
+
+        cache.get(1);
+
+        assertThat(cache.getPromotions()).isEqualTo(1);
+        assertThat(cache.getDemotions()).isEqualTo(2);
+        assertThat(cache.getHeapSize()).isEqualTo(2);
+        assertThat(cache.getOffHeapSize()).isEqualTo(1);
+        cache.get(1);
+        assertThat(cache.getHeapHits()).isEqualTo(1);
+    }
+
+    @Test
+    void get_shouldReturnCopies() {
+        put(1);
+
+        cache.get(1).setStatus(Status.CANCELED);
+
+        assertThat(cache.get(1).getStatus()).isEqualTo(Status.ACTIVE);
+    }
+
+    @Test
+    void put_shouldIgnoreValueLoadedBeforeInvalidation() {
+        long generation = cache.getGeneration();
+        cache.invalidate(1);
+
+        cache.put(createSubscription(1), generation);
+
+        assertThat(cache.get(1)).isNull();
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidate_shouldRemoveEntryFromBothTiers() {
+        put(1);
+        put(2);
+        put(3);
+
+        cache.invalidate(1);
+        cache.invalidate(3);
+
+        assertThat(cache.get(1)).isNull();
+        assertThat(cache.get(3)).isNull();
+        assertThat(cache.get(2)).isNotNull();
+    }
+
+    @Test
+    void get_shouldServeFromOffHeapOnly_whenHeapCapacityIsZero() {
+        var offHeapOnly = new TieredSubscriptionCache(0, 10);
+        offHeapOnly.put(createSubscription(1), offHeapOnly.getGeneration());
+
+        assertThat(offHeapOnly.get(1)).isEqualTo(createSubscription(1));
+        assertThat(offHeapOnly.getOffHeapHits()).isEqualTo(1);
+        assertThat(offHeapOnly.getHeapSize()).isZero();
+    }
+
+    @Test
+    void get_shouldExpireEntriesInBothTiers_afterTtl() {
+        var clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        var ttlCache = new TieredSubscriptionCache(1, 10, Duration.ofSeconds(30), clock);
+        ttlCache.put(createSubscription(1), ttlCache.getGeneration());
+        ttlCache.put(createSubscription(2), ttlCache.getGeneration());
+        clock.advance(Duration.ofSeconds(29));
+        assertThat(ttlCache.get(1)).isNotNull();
+
+        clock.advance(Duration.ofSeconds(1));
+
+        assertThat(ttlCache.get(1)).isNull();
+        assertThat(ttlCache.get(2)).isNull();
+        assertThat(ttlCache.getExpirations()).isEqualTo(2);
+        assertThat(ttlCache.getHeapSize()).isZero();
+        assertThat(ttlCache.getOffHeapSize()).isZero();
+    }
+
+    @Test
+    void get_shouldKeepExpiryWhenPromoting() {
+        var clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        var ttlCache = new TieredSubscriptionCache(1, 10, Duration.ofSeconds(30), clock);
+        ttlCache.put(createSubscription(1), ttlCache.getGeneration());
+        ttlCache.put(createSubscription(2), ttlCache.getGeneration());
+        clock.advance(Duration.ofSeconds(20));
+        ttlCache.get(1);
+
+        clock.advance(Duration.ofSeconds(10));
+
+        assertThat(ttlCache.get(1)).isNull();
+        assertThat(ttlCache.getPromotions()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidateAll_shouldClearEveryStripe_andRejectLoadsStartedBeforeIt() throws InterruptedException {
+        var striped = new TieredSubscriptionCache(1_024, 4_096);
+        long before = striped.getGeneration();
+        var writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            int first = t * 500;
+            writers[t] = new Thread(() -> {
+                for (int id = first; id < first + 500; id++) {
+                    striped.put(createSubscription(id), striped.getGeneration());
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertThat(striped.getHeapSize()).isBetween(1, 1_024);
+        assertThat(striped.getHeapSize() + striped.getOffHeapSize()).isEqualTo(2_000);
+        assertThat(striped.get(1_999)).isEqualTo(createSubscription(1_999));
+
+        striped.invalidateAll();
+        striped.put(createSubscription(7), before);
+
+        assertThat(striped.getHeapSize()).isZero();
+        assertThat(striped.getOffHeapSize()).isZero();
+        assertThat(striped.get(7)).isNull();
+    }
+
+    private void put(int id) {
+        cache.put(createSubscription(id), cache.getGeneration());
+    }
+
+    private Subscription createSubscription(int id) {
+        return Subscription.builder()
+                .id(id)
+                .userId(id)
+                .name("Subscription " + id)
+                .provider(Provider.APPLE)
+                .expirationDate(Instant.parse("2030-01-01T00:00:00Z"))
+                .status(Status.ACTIVE)
+                .build();
+    }
+}
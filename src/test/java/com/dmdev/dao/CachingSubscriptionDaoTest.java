@@ -0,0 +1,83 @@
+package com.dmdev.dao;
+
+import com.dmdev.cache.TieredSubscriptionCache;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingSubscriptionDaoTest {
+
+    private final SubscriptionDao delegate = mock(SubscriptionDao.class);
+    private final CachingSubscriptionDao subscriptionDao =
+            new CachingSubscriptionDao(delegate, new TieredSubscriptionCache(1, 10));
+
+    @Test
+    void findById_shouldQueryDelegateOnce_whenEntryMovesBetweenTiers() {
+        when(delegate.findById(1)).thenReturn(Optional.of(createSubscription(1)));
+        when(delegate.findById(2)).thenReturn(Optional.of(createSubscription(2)));
+
+        subscriptionDao.findById(1);
+        subscriptionDao.findById(2);
+        var actualResult = subscriptionDao.findById(1);
+
+        assertThat(actualResult).contains(createSubscription(1));
+        verify(delegate, times(1)).findById(1);
+        assertThat(subscriptionDao.getCache().getOffHeapHits()).isEqualTo(1);
+    }
+
+    @Test
+    void findById_shouldNotCacheMissingSubscription() {
+        when(delegate.findById(1)).thenReturn(Optional.empty());
+
+        subscriptionDao.findById(1);
+        subscriptionDao.findById(1);
+
+        verify(delegate, times(2)).findById(1);
+    }
+
+    @Test
+    void update_shouldInvalidateCachedEntry() {
+        var subscription = createSubscription(1);
+        when(delegate.findById(1)).thenReturn(Optional.of(subscription));
+        subscriptionDao.findById(1);
+        var canceled = subscription.toBuilder().status(Status.CANCELED).build();
+        when(delegate.update(canceled)).thenReturn(canceled);
+        when(delegate.findById(1)).thenReturn(Optional.of(canceled));
+
+        subscriptionDao.update(canceled);
+
+        assertThat(subscriptionDao.findById(1)).get().extracting(Subscription::getStatus).isEqualTo(Status.CANCELED);
+    }
+
+    @Test
+    void delete_shouldInvalidateCachedEntry() {
+        when(delegate.findById(1)).thenReturn(Optional.of(createSubscription(1)));
+        subscriptionDao.findById(1);
+        when(delegate.findById(1)).thenReturn(Optional.empty());
+
+        subscriptionDao.delete(1);
+
+        assertThat(subscriptionDao.findById(1)).isEmpty();
+    }
+
+    private Subscription createSubscription(int id) {
+        return Subscription.builder()
+                .id(id)
+                .userId(id)
+                .name("Subscription")
+                .provider(Provider.APPLE)
+                .expirationDate(Instant.parse("2030-01-01T00:00:00Z"))
+                .status(Status.ACTIVE)
+                .build();
+    }
+}
@@ -0,0 +1,101 @@
+package com.dmdev.dao;
+
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CoalescingSubscriptionDaoTest {
+
+    private static final int CALLERS = 8;
+
+    private final SubscriptionDao delegate = mock(SubscriptionDao.class);
+    private final CoalescingSubscriptionDao subscriptionDao = new CoalescingSubscriptionDao(delegate);
+
+    @Test
+    void findByUserId_shouldShareOneQuery_whenCallsAreConcurrent() throws Exception {
+        var queryStarted = new CountDownLatch(1);
+        var releaseQuery = new CountDownLatch(1);
+        when(delegate.findByUserId(1)).thenAnswer(invocation -> {
+            queryStarted.countDown();
+            releaseQuery.await(5, TimeUnit.SECONDS);
+            return List.of(createSubscription());
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<List<Subscription>>> results = new ArrayList<>();
+            results.add(executor.submit(() -> subscriptionDao.findByUserId(1)));
+            assertThat(queryStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 1; i < CALLERS; i++) {
+                results.add(executor.submit(() -> subscriptionDao.findByUserId(1)));
+            }
+            while (subscriptionDao.getCoalescedCalls() < CALLERS - 1) {
+                Thread.onSpinWait();
+            }
+            releaseQuery.countDown();
+
+            List<Subscription> first = results.get(0).get(5, TimeUnit.SECONDS);
+            List<Subscription> second = results.get(1).get(5, TimeUnit.SECONDS);
+            assertThat(first).isEqualTo(second);
+            assertThat(first.get(0)).isNotSameAs(second.get(0));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(delegate, times(1)).findByUserId(1);
+        assertThat(subscriptionDao.getExecutedCalls()).isEqualTo(1);
+        assertThat(subscriptionDao.getCoalescedCalls()).isEqualTo(CALLERS - 1);
+    }
+
+    @Test
+    void findById_shouldReturnIndependentCopies() {
+        var subscription = createSubscription();
+        when(delegate.findById(1)).thenReturn(Optional.of(subscription));
+
+        var actualResult = subscriptionDao.findById(1);
+        actualResult.orElseThrow().setStatus(Status.CANCELED);
+
+        assertThat(subscription.getStatus()).isEqualTo(Status.ACTIVE);
+        assertThat(subscriptionDao.findById(1)).get().extracting(Subscription::getStatus).isEqualTo(Status.ACTIVE);
+        verify(delegate, times(2)).findById(1);
+    }
+
+    @Test
+    void findById_shouldPropagateFailure_andForgetKey() {
+        when(delegate.findById(1))
+                .thenThrow(new IllegalStateException("db is down"))
+                .thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> subscriptionDao.findById(1)).isInstanceOf(IllegalStateException.class);
+        assertThat(subscriptionDao.findById(1)).isEmpty();
+    }
+
+    private Subscription createSubscription() {
+        return Subscription.builder()
+                .id(1)
+                .userId(1)
+                .name("Subscription")
+                .provider(Provider.APPLE)
+                .expirationDate(Instant.now().plusSeconds(3600))
+                .status(Status.ACTIVE)
+                .build();
+    }
+}
@@ -0,0 +1,55 @@
+package com.dmdev.dao;
+
+import com.dmdev.cache.TieredSubscriptionCache;
+import com.dmdev.entity.Status;
+import com.dmdev.query.SubscriptionQueryEngine;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class ForwardingSubscriptionDaoTest {
+
+    @Test
+    void shouldOverrideEveryPublicMethodOfSubscriptionDao() {
+        var notForwarded = Arrays.stream(SubscriptionDao.class.getDeclaredMethods())
+                .filter(method -> Modifier.isPublic(method.getModifiers()) && !Modifier.isStatic(method.getModifiers()))
+                .filter(method -> !isDeclaredBy(ForwardingSubscriptionDao.class, method))
+                .map(Method::toGenericString)
+                .toList();
+
+        assertThat(notForwarded).isEmpty();
+    }
+
+    @Test
+    void decorators_shouldForwardCallsTheyDoNotChange() {
+        var delegate = mock(SubscriptionDao.class);
+        var from = Instant.parse("2030-01-01T00:00:00Z");
+        var to = from.plusSeconds(60);
+
+        new CoalescingSubscriptionDao(delegate).findByIds(List.of(1));
+        new CachingSubscriptionDao(delegate, new TieredSubscriptionCache(1, 0)).publishAll();
+        new IndexedSubscriptionDao(delegate, new SubscriptionQueryEngine())
+                .findByStatusAndExpirationBetween(Status.ACTIVE, from, to);
+
+        verify(delegate).findByIds(List.of(1));
+        verify(delegate).publishAll();
+        verify(delegate).findByStatusAndExpirationBetween(Status.ACTIVE, from, to);
+    }
+
+    private static boolean isDeclaredBy(Class<?> type, Method method) {
+        try {
+            type.getDeclaredMethod(method.getName(), method.getParameterTypes());
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.dmdev.dao;
+
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.integration.IntegrationTestBase;
+import com.dmdev.query.SubscriptionFilter;
+import com.dmdev.query.SubscriptionQueryEngine;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndexedSubscriptionDaoTest extends IntegrationTestBase {
+
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+    private final SubscriptionDao delegate = SubscriptionDao.getInstance();
+    private final IndexedSubscriptionDao subscriptionDao =
+            new IndexedSubscriptionDao(delegate, new SubscriptionQueryEngine());
+
+    @Test
+    void reload_shouldCopyExistingRows() {
+        delegate.insert(createSubscription(1, "Music", Status.ACTIVE, NOW));
+        delegate.insert(createSubscription(2, "Video", Status.CANCELED, NOW));
+
+        subscriptionDao.reload();
+
+        var engine = subscriptionDao.getEngine();
+        assertThat(engine.size()).isEqualTo(2);
+        assertThat(engine.find(SubscriptionFilter.status(Status.CANCELED)))
+                .extracting(Subscription::getName)
+                .containsExactly("Video");
+    }
+
+    @Test
+    void writes_shouldKeepEngineInStep() {
+        var music = subscriptionDao.insert(createSubscription(1, "Music", Status.ACTIVE, NOW));
+        var video = subscriptionDao.insert(createSubscription(2, "Video", Status.ACTIVE, NOW));
+
+        subscriptionDao.update(music.setStatus(Status.CANCELED));
+        subscriptionDao.delete(video.getId());
+
+        var engine = subscriptionDao.getEngine();
+        assertThat(engine.findIds(SubscriptionFilter.all())).containsExactly(music.getId());
+        assertThat(engine.count(SubscriptionFilter.status(Status.CANCELED))).isEqualTo(1);
+        assertThat(engine.count(SubscriptionFilter.status(Status.ACTIVE))).isZero();
+    }
+
+    @Test
+    void archiveTerminal_shouldDropArchivedRowsOnly() {
+        subscriptionDao.insert(createSubscription(1, "Old", Status.EXPIRED, NOW.minus(Duration.ofDays(60))));
+        var older = subscriptionDao.insert(createSubscription(2, "Older", Status.CANCELED, NOW.minus(Duration.ofDays(90))));
+        var recent = subscriptionDao.insert(createSubscription(3, "Recent", Status.EXPIRED, NOW.minus(Duration.ofDays(1))));
+
+        int moved = subscriptionDao.archiveTerminal(NOW.minus(Duration.ofDays(30)), 1, NOW);
+
+        assertThat(moved).isEqualTo(1);
+        assertThat(subscriptionDao.getEngine().findIds(SubscriptionFilter.all()))
+                .containsExactly(older.getId(), recent.getId());
+    }
+
+    private static Subscription createSubscription(int userId, String name, Status status, Instant expiration) {
+        return Subscription.builder()
+                .userId(userId)
+                .name(name)
+                .provider(Provider.APPLE)
+                .expirationDate(expiration)
+                .status(status)
+                .build();
+    }
+}
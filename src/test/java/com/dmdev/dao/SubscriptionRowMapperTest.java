@@ -0,0 +1,78 @@
+package com.dmdev.dao;
+
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SubscriptionRowMapperTest {
+
+    private static final String[] COLUMNS = {"STATUS", "ID", "USER_ID", "NAME", "PROVIDER", "EXPIRATION_DATE"};
+
+    private final SubscriptionRowMapper rowMapper = SubscriptionRowMapper.getInstance();
+    private final ResultSet resultSet = mock(ResultSet.class);
+
+    @Test
+    void read_shouldResolveColumnsByPositionOnce() throws SQLException {
+        var expirationDate = Instant.parse("2030-01-01T00:00:00Z");
+        mockMetaData(COLUMNS);
+        when(resultSet.getString(1)).thenReturn("CANCELED");
+        when(resultSet.getInt(2)).thenReturn(7);
+        when(resultSet.getInt(3)).thenReturn(42);
+        when(resultSet.getString(4)).thenReturn("premium");
+        when(resultSet.getString(5)).thenReturn("APPLE");
+        when(resultSet.getTimestamp(6)).thenReturn(Timestamp.from(expirationDate));
+
+        var reader = rowMapper.bind(resultSet);
+        var first = reader.read(resultSet);
+        var second = reader.read(resultSet);
+
+        assertThat(first).isEqualTo(new Subscription(7, 42, "premium", Provider.APPLE, expirationDate, Status.CANCELED));
+        assertThat(second).isEqualTo(first).isNotSameAs(first);
+        verify(resultSet, never()).getObject(anyString(), any(Class.class));
+    }
+
+    @Test
+    void bind_shouldFailWhenColumnIsMissing() throws SQLException {
+        mockMetaData("ID", "USER_ID");
+
+        assertThatThrownBy(() -> rowMapper.bind(resultSet))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("name");
+    }
+
+    @Test
+    void read_shouldRejectUnknownEnumName() throws SQLException {
+        mockMetaData(COLUMNS);
+        when(resultSet.getString(1)).thenReturn("PAUSED");
+        when(resultSet.getString(5)).thenReturn("GOOGLE");
+
+        var reader = rowMapper.bind(resultSet);
+
+        assertThatThrownBy(() -> reader.read(resultSet)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void mockMetaData(String... columns) throws SQLException {
+        var metaData = mock(ResultSetMetaData.class);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            when(metaData.getColumnLabel(i + 1)).thenReturn(columns[i]);
+        }
+    }
+}
@@ -1,14 +1,41 @@
 package com.dmdev.integration;
 
 import com.dmdev.util.ConnectionManager;
-import org.junit.jupiter.api.BeforeAll;
+import com.dmdev.util.ConnectionManagerTestSupport;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
 
 import java.sql.SQLException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Gives every running test exclusive use of an in-memory H2 database, bound to the test
+ * thread through a {@link ConnectionManagerTestSupport#setUrlSupplier URL supplier} that consults a
+ * thread-local before falling back to {@code db.url}, so integration tests can run
+ * concurrently. Databases are pooled and emptied between tests rather than shut down,
+ * since shutting down an H2 database costs about 200 ms. Work the test hands to other
+ * threads must go through {@link #isolatedExecutor} or {@link #newIsolatedPool}; a thread
+ * that is not bound falls back to {@code db.url}, which has no schema, and fails loudly.
+ * The connection pools of all these databases are closed when the test run ends.
+ */
+@Execution(ExecutionMode.CONCURRENT)
+@ExtendWith(ConnectionManagerTestSupport.ClosePoolsAfterRun.class)
 public abstract class IntegrationTestBase {
 
-    private static final String CLEAN_SQL = "DELETE FROM subscription;";
+    private static final ThreadLocal<String> THREAD_URL = new ThreadLocal<>();
+    private static final Queue<String> FREE_DATABASES = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger DATABASE_SEQUENCE = new AtomicInteger();
+    private static final String URL_TEMPLATE = "jdbc:h2:mem:integration_%d;DB_CLOSE_DELAY=-1";
+    private static final String CLEAN_SQL = "DELETE FROM subscription; DELETE FROM subscription_archive;"
+            + " DELETE FROM idempotency_key;";
     private static final String CREATE_SQL = """
             CREATE TABLE IF NOT EXISTS subscription
             (
@@ -20,21 +47,94 @@ public abstract class IntegrationTestBase {
                 status VARCHAR(16) NOT NULL ,
                 UNIQUE (user_id, name)
             );
+            CREATE TABLE IF NOT EXISTS subscription_archive
+            (
+                id INT PRIMARY KEY ,
+                user_id INT NOT NULL ,
+                name VARCHAR(64) NOT NULL ,
+                provider VARCHAR(16) NOT NULL ,
+                expiration_date DATETIME NOT NULL ,
+                status VARCHAR(16) NOT NULL ,
+                archived_at DATETIME NOT NULL
+            );
+            CREATE TABLE IF NOT EXISTS idempotency_key
+            (
+                idempotency_key VARCHAR(128) PRIMARY KEY ,
+                subscription_id INT NOT NULL ,
+                request_hash VARCHAR(64) NOT NULL ,
+                expires_at DATETIME NOT NULL
+            );
+            CREATE INDEX IF NOT EXISTS subscription_status_expiration_idx
+                ON subscription (status, expiration_date, id);
+            CREATE INDEX IF NOT EXISTS subscription_archive_user_id_idx ON subscription_archive (user_id);
             """;
 
-    @BeforeAll
-    static void prepareDatabase() throws SQLException {
-        try (var connection = ConnectionManager.get();
-             var statement = connection.createStatement()) {
-            statement.execute(CREATE_SQL);
-        }
+    static {
+        var fallback = ConnectionManagerTestSupport.getUrlSupplier();
+        ConnectionManagerTestSupport.setUrlSupplier(() -> {
+            var url = THREAD_URL.get();
+            return url != null ? url : fallback.get();
+        });
     }
 
+    private String databaseUrl;
+    private String previousThreadUrl;
+
     @BeforeEach
-    protected void cleanData() throws SQLException {
+    protected void acquireDatabase() throws SQLException {
+        var freeDatabase = FREE_DATABASES.poll();
+        databaseUrl = freeDatabase != null
+                ? freeDatabase
+                : URL_TEMPLATE.formatted(DATABASE_SEQUENCE.incrementAndGet());
+        previousThreadUrl = THREAD_URL.get();
+        setThreadUrl(databaseUrl);
         try (var connection = ConnectionManager.get();
              var statement = connection.createStatement()) {
-            statement.execute(CLEAN_SQL);
+            statement.execute(freeDatabase != null ? CLEAN_SQL : CREATE_SQL);
+        }
+    }
+
+    @AfterEach
+    protected void releaseDatabase() {
+        setThreadUrl(previousThreadUrl);
+        FREE_DATABASES.add(databaseUrl);
+    }
+
+    /**
+     * Runs tasks on {@code delegate} with this test's database bound to the worker thread.
+     */
+    protected Executor isolatedExecutor(Executor delegate) {
+        var url = databaseUrl;
+        return task -> delegate.execute(() -> {
+            setThreadUrl(url);
+            try {
+                task.run();
+            } finally {
+                setThreadUrl(null);
+            }
+        });
+    }
+
+    /**
+     * Creates a pool whose workers are bound to this test's database. Parallel streams
+     * started from a task running in the pool split their work onto the same workers.
+     */
+    protected ForkJoinPool newIsolatedPool(int parallelism) {
+        var url = databaseUrl;
+        return new ForkJoinPool(parallelism, pool -> new ForkJoinWorkerThread(pool) {
+            @Override
+            protected void onStart() {
+                super.onStart();
+                setThreadUrl(url);
+            }
+        }, null, false);
+    }
+
+    private static void setThreadUrl(String url) {
+        if (url == null) {
+            THREAD_URL.remove();
+        } else {
+            THREAD_URL.set(url);
         }
     }
 }
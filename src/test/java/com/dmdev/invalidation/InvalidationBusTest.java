@@ -0,0 +1,302 @@
+package com.dmdev.invalidation;
+
+import com.dmdev.cache.TieredSubscriptionCache;
+import com.dmdev.dao.CachingSubscriptionDao;
+import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InvalidationBusTest {
+
+    private static final Duration FLUSH_INTERVAL = Duration.ofMillis(5);
+    private static final long TIMEOUT_MS = 5_000;
+
+    private final List<Node> nodes = new ArrayList<>();
+
+    @AfterEach
+    void closeNodes() {
+        nodes.forEach(node -> node.bus.close());
+    }
+
+    @Test
+    void publish_shouldReachEveryOtherNode_butNotItself() throws InterruptedException {
+        var first = startNode(FLUSH_INTERVAL, 512);
+        var second = startNode(FLUSH_INTERVAL, 512);
+        var third = startNode(FLUSH_INTERVAL, 512);
+        connectAll();
+
+        first.bus.publish(1, 10);
+
+        assertThat(second.events.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isEqualTo("1:10");
+        assertThat(third.events.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isEqualTo("1:10");
+        assertThat(first.events.poll(100, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void flush_shouldSendDeduplicatedBatchInOneFrame() throws InterruptedException {
+        var sender = startNode(Duration.ofHours(1), 10);
+        var receiver = startNode(Duration.ofHours(1), 10);
+        connectAll();
+        for (int id = 1; id <= 5; id++) {
+            sender.bus.publish(id, null);
+        }
+        sender.bus.publish(1, null);
+        sender.bus.publish(2, null);
+
+        sender.bus.flush();
+
+        assertThat(sender.bus.getPublished()).isEqualTo(7);
+        assertThat(sender.bus.getFramesSent()).isEqualTo(1);
+        List<String> received = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            received.add(receiver.events.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        }
+        assertThat(received).containsExactly("1:null", "2:null", "3:null", "4:null", "5:null");
+        assertThat(receiver.events.poll(100, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void publish_shouldFlushWithoutWaiting_whenMaxBatchIsPending() throws InterruptedException {
+        var sender = startNode(Duration.ofHours(1), 3);
+        var receiver = startNode(Duration.ofHours(1), 3);
+        connectAll();
+
+        for (int id = 1; id <= 3; id++) {
+            sender.bus.publish(id, 1);
+        }
+
+        for (int id = 1; id <= 3; id++) {
+            assertThat(receiver.events.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isEqualTo(id + ":1");
+        }
+        awaitTrue(() -> sender.bus.getFramesSent() == 1);
+    }
+
+    @Test
+    void publish_shouldResetPeer_afterItReconnects() throws InterruptedException {
+        var sender = startNode(FLUSH_INTERVAL, 512);
+        var receiver = startNode(FLUSH_INTERVAL, 512);
+        connectAll();
+        sender.bus.publish(1, null);
+        assertThat(receiver.events.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isEqualTo("1:null");
+        var receiverAddress = receiver.transport.getLocalAddress();
+        receiver.bus.close();
+        nodes.remove(receiver);
+
+        sender.bus.publish(2, null);
+        var restarted = startNode(new TcpInvalidationTransport(receiverAddress)
+                .addPeer(sender.transport.getLocalAddress()), FLUSH_INTERVAL, 512);
+        awaitTrue(() -> {
+            sender.bus.publish(3, null);
+            return restarted.events.contains("3:null");
+        });
+
+        assertThat(restarted.events).contains("reset");
+        assertThat(restarted.bus.getResets()).isPositive();
+        assertThat(sender.transport.getConnects()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void send_shouldNotWaitForPeerThatStopsReading() throws Exception {
+        try (var stalled = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            var accepted = new ArrayList<Socket>();
+            var acceptor = new Thread(() -> {
+                try {
+                    accepted.add(stalled.accept());
+                } catch (IOException e) {
+                    // the test is over
+                }
+            });
+            acceptor.start();
+            var receiver = startNode(FLUSH_INTERVAL, 512);
+            var sender = new TcpInvalidationTransport(new InetSocketAddress("127.0.0.1", 0))
+                    .addPeer((InetSocketAddress) stalled.getLocalSocketAddress())
+                    .addPeer(receiver.transport.getLocalAddress());
+            sender.start(mock(InvalidationTransport.Receiver.class));
+            receiver.transport.addPeer(sender.getLocalAddress());
+            var frame = InvalidationCodec.encode(Collections.nCopies(8_192, InvalidationCodec.pack(1, null)));
+
+            long started = System.nanoTime();
+            for (int i = 0; i < 200; i++) {
+                sender.send(frame);
+            }
+            long sendMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            awaitTrue(() -> receiver.bus.getReceived() == 200L * 8_192);
+
+            assertThat(sendMillis).isLessThan(1_000);
+            sender.close();
+            acceptor.join(TIMEOUT_MS);
+            for (Socket socket : accepted) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    void start_shouldRejectConnectionsFromAddressesThatAreNotPeers() throws IOException {
+        var node = startNode(FLUSH_INTERVAL, 512);
+
+        try (var intruder = new Socket(InetAddress.getLoopbackAddress(), node.transport.getLocalAddress().getPort());
+             var output = new DataOutputStream(intruder.getOutputStream())) {
+            output.writeInt(0);
+            output.flush();
+            awaitTrue(() -> node.transport.getRejectedConnections() == 1);
+        }
+
+        assertThat(node.bus.getResets()).isZero();
+        assertThat(node.events).isEmpty();
+    }
+
+    @Test
+    void update_shouldEvictEntryCachedOnOtherNode() {
+        var first = startNode(FLUSH_INTERVAL, 512);
+        var second = startNode(FLUSH_INTERVAL, 512);
+        connectAll();
+        var firstDelegate = mock(SubscriptionDao.class);
+        var secondDelegate = mock(SubscriptionDao.class);
+        var firstDao = new CachingSubscriptionDao(firstDelegate, createCache())
+                .setInvalidationBus(first.bus);
+        var secondDao = new CachingSubscriptionDao(secondDelegate, createCache())
+                .setInvalidationBus(second.bus);
+        var subscription = createSubscription();
+        var canceled = subscription.toBuilder().status(Status.CANCELED).build();
+        when(secondDelegate.findById(1)).thenReturn(Optional.of(subscription));
+        secondDao.findById(1);
+        when(secondDelegate.findById(1)).thenReturn(Optional.of(canceled));
+        when(firstDelegate.update(canceled)).thenReturn(canceled);
+
+        firstDao.update(canceled);
+
+        awaitTrue(() -> secondDao.getCache().getHeapSize() == 0);
+        assertThat(secondDao.findById(1)).get().extracting(Subscription::getStatus).isEqualTo(Status.CANCELED);
+    }
+
+    @Test
+    void archiveTerminal_shouldResetCachesOnOtherNodes() {
+        var first = startNode(FLUSH_INTERVAL, 512);
+        var second = startNode(FLUSH_INTERVAL, 512);
+        connectAll();
+        var firstDelegate = mock(SubscriptionDao.class);
+        var secondDelegate = mock(SubscriptionDao.class);
+        var firstDao = new CachingSubscriptionDao(firstDelegate, createCache())
+                .setInvalidationBus(first.bus);
+        var secondDao = new CachingSubscriptionDao(secondDelegate, createCache())
+                .setInvalidationBus(second.bus);
+        when(secondDelegate.findById(1)).thenReturn(Optional.of(createSubscription()));
+        secondDao.findById(1);
+        var now = Instant.parse("2030-01-01T00:00:00Z");
+        when(firstDelegate.archiveTerminal(now, 100, now)).thenReturn(1);
+
+        firstDao.archiveTerminal(now, 100, now);
+
+        awaitTrue(() -> secondDao.getCache().getHeapSize() == 0);
+        assertThat(second.events).contains("reset");
+        assertThat(second.bus.getResets()).isPositive();
+        assertThat(second.bus.getReceived()).isZero();
+    }
+
+    @Test
+    void setInvalidationBus_shouldRejectCacheWithoutTtl() {
+        var node = startNode(FLUSH_INTERVAL, 512);
+        var dao = new CachingSubscriptionDao(mock(SubscriptionDao.class), new TieredSubscriptionCache(10, 10));
+
+        assertThatThrownBy(() -> dao.setInvalidationBus(node.bus)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static TieredSubscriptionCache createCache() {
+        return new TieredSubscriptionCache(10, 10, Duration.ofMinutes(5), Clock.systemUTC());
+    }
+
+    private Node startNode(Duration flushInterval, int maxBatch) {
+        return startNode(new TcpInvalidationTransport(new InetSocketAddress("127.0.0.1", 0)), flushInterval, maxBatch);
+    }
+
+    private Node startNode(TcpInvalidationTransport transport, Duration flushInterval, int maxBatch) {
+        var node = new Node(transport, new InvalidationBus(transport, flushInterval, maxBatch));
+        node.bus.addListener(new InvalidationListener() {
+            @Override
+            public void onInvalidation(int subscriptionId, Integer userId) {
+                node.events.add(subscriptionId + ":" + userId);
+            }
+
+            @Override
+            public void onReset() {
+                node.events.add("reset");
+            }
+        });
+        node.bus.start();
+        nodes.add(node);
+        return node;
+    }
+
+    private void connectAll() {
+        for (Node node : nodes) {
+            for (Node peer : nodes) {
+                if (peer != node) {
+                    node.transport.addPeer(peer.transport.getLocalAddress());
+                }
+            }
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static Subscription createSubscription() {
+        return Subscription.builder()
+                .id(1)
+                .userId(1)
+                .name("Subscription 1")
+                .provider(Provider.APPLE)
+                .expirationDate(Instant.parse("2030-01-01T00:00:00Z"))
+                .status(Status.ACTIVE)
+                .build();
+    }
+
+    private static final class Node {
+
+        private final TcpInvalidationTransport transport;
+        private final InvalidationBus bus;
+        private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+        private Node(TcpInvalidationTransport transport, InvalidationBus bus) {
+            this.transport = transport;
+            this.bus = bus;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.dmdev.jfr;
+
+import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.dto.CreateSubscriptionDto;
+import com.dmdev.entity.Provider;
+import com.dmdev.integration.IntegrationTestBase;
+import com.dmdev.mapper.CreateSubscriptionMapper;
+import com.dmdev.service.SubscriptionService;
+import com.dmdev.validator.CreateSubscriptionValidator;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.api.parallel.Isolated;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Recordings capture events from every thread, so nothing else may run alongside.
+ */
+@Isolated
+@Execution(ExecutionMode.SAME_THREAD)
+class JfrEventsTest extends IntegrationTestBase {
+
+    private static final String DAO_STATEMENT = "com.dmdev.DaoStatement";
+    private static final String CONNECTION_ACQUIRE = "com.dmdev.ConnectionAcquire";
+    private static final String SERVICE_OPERATION = "com.dmdev.ServiceOperation";
+
+    private final SubscriptionDao subscriptionDao = SubscriptionDao.getInstance();
+    private final SubscriptionService subscriptionService = new SubscriptionService(subscriptionDao,
+            CreateSubscriptionMapper.getInstance(), CreateSubscriptionValidator.getInstance(), Clock.systemUTC());
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void recording_shouldContainDaoConnectionAndServiceEvents() throws Exception {
+        var file = tempDir.resolve("subscriptions.jfr");
+        try (var recording = new Recording()) {
+            recording.enable(DAO_STATEMENT).withThreshold(Duration.ZERO);
+            recording.enable(CONNECTION_ACQUIRE).withThreshold(Duration.ZERO);
+            recording.enable(SERVICE_OPERATION).withThreshold(Duration.ZERO);
+            recording.start();
+
+            var subscription = subscriptionService.upsert(createDto(7));
+            subscriptionService.cancel(subscription.getId());
+            assertThatThrownBy(() -> subscriptionService.cancel(subscription.getId()));
+            subscriptionDao.findAll();
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+        assertThat(eventsOf(events, SERVICE_OPERATION))
+                .extracting(event -> event.getString("operation"), event -> event.getString("outcome"),
+                        event -> event.getInt("userId"))
+                .containsExactly(
+                        tuple("upsert", ServiceOperationEvent.SUCCESS, 7),
+                        tuple("cancel", ServiceOperationEvent.SUCCESS, 7),
+                        tuple("cancel", "SubscriptionException", 7));
+        assertThat(eventsOf(events, DAO_STATEMENT))
+                .extracting(event -> event.getString("sqlId"), event -> event.getLong("rows"))
+                .containsExactly(
+                        tuple("findByUserId", 0L),
+                        tuple("insert", 1L),
+                        tuple("findById", 1L),
+                        tuple("update", 1L),
+                        tuple("findById", 1L),
+                        tuple("findAll", 1L));
+        assertThat(eventsOf(events, CONNECTION_ACQUIRE)).hasSize(6);
+    }
+
+    @Test
+    void recording_shouldNotContainDisabledEvents() throws Exception {
+        var file = tempDir.resolve("disabled.jfr");
+        try (var recording = new Recording()) {
+            recording.enable(SERVICE_OPERATION).withThreshold(Duration.ZERO);
+            recording.disable(DAO_STATEMENT);
+            recording.disable(CONNECTION_ACQUIRE);
+            recording.start();
+
+            subscriptionService.upsert(createDto(1));
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+        assertThat(eventsOf(events, SERVICE_OPERATION)).hasSize(1);
+        assertThat(eventsOf(events, DAO_STATEMENT)).isEmpty();
+        assertThat(eventsOf(events, CONNECTION_ACQUIRE)).isEmpty();
+    }
+
+    private List<RecordedEvent> eventsOf(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .toList();
+    }
+
+    private CreateSubscriptionDto createDto(int userId) {
+        return CreateSubscriptionDto.builder()
+                .userId(userId)
+                .name("Subscription")
+                .provider(Provider.GOOGLE.name())
+                .expirationDate(Instant.now().plus(30, ChronoUnit.DAYS))
+                .build();
+    }
+}
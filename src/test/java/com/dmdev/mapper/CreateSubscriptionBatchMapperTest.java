@@ -0,0 +1,80 @@
+package com.dmdev.mapper;
+
+import com.dmdev.dto.CreateSubscriptionDto;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.mapper.CreateSubscriptionBatchMapper.BatchError;
+import com.dmdev.validator.CreateSubscriptionValidator;
+import com.dmdev.validator.Error;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class CreateSubscriptionBatchMapperTest {
+
+    private static final Instant NOW = Instant.parse("2030-01-01T00:00:00Z");
+
+    private final CreateSubscriptionBatchMapper batchMapper = new CreateSubscriptionBatchMapper(
+            CreateSubscriptionValidator.getInstance(), CreateSubscriptionMapper.getInstance(),
+            Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void map_shouldReturnValidSubscriptionsAndIndexedErrors() {
+        var batch = List.of(
+                createDto(1, "google", NOW.plusSeconds(60)),
+                createDto(2, "NETFLIX", NOW.plusSeconds(60)),
+                createDto(3, "Apple", NOW.plusSeconds(60)),
+                createDto(null, "APPLE", NOW.minusSeconds(60)));
+
+        var result = batchMapper.map(batch);
+
+        assertThat(result.getSubscriptions())
+                .extracting("userId", "provider", "status")
+                .containsExactly(
+                        tuple(1, Provider.GOOGLE, Status.ACTIVE),
+                        tuple(3, Provider.APPLE, Status.ACTIVE));
+        assertThat(result.getErrors()).containsExactly(
+                new BatchError(1, List.of(Error.of(102, "provider is invalid"))),
+                new BatchError(3, List.of(Error.of(100, "userId is invalid"), Error.of(103, "expirationDate is invalid"))));
+        assertThat(result.getProcessed()).isEqualTo(4);
+    }
+
+    @Test
+    void map_shouldStopAtFirstError_whenFailFast() {
+        var batch = List.of(
+                createDto(1, "GOOGLE", NOW.plusSeconds(60)),
+                createDto(2, "GOOGLE", NOW),
+                createDto(3, "GOOGLE", NOW.minusSeconds(1)),
+                createDto(4, "GOOGLE", NOW.plusSeconds(60)));
+
+        var result = batchMapper.map(batch, true);
+
+        assertThat(result.getSubscriptions()).extracting("userId").containsExactly(1, 2);
+        assertThat(result.getErrors()).extracting(BatchError::getIndex).containsExactly(2);
+        assertThat(result.getProcessed()).isEqualTo(3);
+    }
+
+    @Test
+    void map_shouldReturnEmptyResult_whenBatchIsEmpty() {
+        var result = batchMapper.map(List.of());
+
+        assertThat(result.getSubscriptions()).isEmpty();
+        assertThat(result.hasErrors()).isFalse();
+        assertThat(result.getProcessed()).isZero();
+    }
+
+    private CreateSubscriptionDto createDto(Integer userId, String provider, Instant expirationDate) {
+        return CreateSubscriptionDto.builder()
+                .userId(userId)
+                .name("Subscription")
+                .provider(provider)
+                .expirationDate(expirationDate)
+                .build();
+    }
+}
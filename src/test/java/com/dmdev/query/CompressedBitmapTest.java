@@ -0,0 +1,120 @@
+package com.dmdev.query;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompressedBitmapTest {
+
+    private static final int UNIVERSE = 4 * 65_536;
+
+    @Test
+    void setOperations_shouldMatchBitSet_acrossSparseAndDenseContainers() {
+        var random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            var leftExpected = randomSet(random);
+            var rightExpected = randomSet(random);
+            var left = toBitmap(leftExpected);
+            var right = toBitmap(rightExpected);
+
+            assertMatches(CompressedBitmap.and(left, right), and(leftExpected, rightExpected));
+            assertMatches(CompressedBitmap.or(left, right), or(leftExpected, rightExpected));
+            assertMatches(CompressedBitmap.andNot(left, right), andNot(leftExpected, rightExpected));
+            assertMatches(left, leftExpected);
+        }
+    }
+
+    @Test
+    void remove_shouldSwitchBackToArrayContainer_andDropEmptyContainers() {
+        var bitmap = new CompressedBitmap();
+        var expected = new BitSet();
+        for (int value = 0; value < 10_000; value++) {
+            bitmap.add(value);
+            expected.set(value);
+        }
+
+        for (int value = 0; value < 9_000; value++) {
+            bitmap.remove(value);
+            expected.clear(value);
+        }
+        assertMatches(bitmap, expected);
+
+        for (int value = 9_000; value < 10_000; value++) {
+            bitmap.remove(value);
+        }
+        assertThat(bitmap.isEmpty()).isTrue();
+        assertThat(bitmap.cardinality()).isZero();
+    }
+
+    @Test
+    void of_shouldBuildFromSortedValues() {
+        var values = new int[]{1, 5, 65_536, 65_537, 200_000, 0, 0};
+
+        var bitmap = CompressedBitmap.of(values, 5);
+
+        assertThat(bitmap.toArray()).containsExactly(1, 5, 65_536, 65_537, 200_000);
+        assertThat(bitmap.contains(65_537)).isTrue();
+        assertThat(bitmap.contains(0)).isFalse();
+    }
+
+    @Test
+    void ofWords_shouldMatchBitSet_acrossSparseAndDenseContainers() {
+        var expected = randomSet(new Random(7));
+        expected.set(UNIVERSE + 3);
+
+        assertMatches(CompressedBitmap.ofWords(expected.toLongArray()), expected);
+    }
+
+    private static BitSet randomSet(Random random) {
+        var set = new BitSet();
+        for (int block = 0; block < UNIVERSE / 65_536; block++) {
+            double density = switch (random.nextInt(4)) {
+                case 0 -> 0;
+                case 1 -> 0.01;
+                case 2 -> 0.06;
+                default -> 0.5;
+            };
+            for (int low = 0; low < 65_536; low++) {
+                if (random.nextDouble() < density) {
+                    set.set(block * 65_536 + low);
+                }
+            }
+        }
+        return set;
+    }
+
+    private static CompressedBitmap toBitmap(BitSet set) {
+        var bitmap = new CompressedBitmap();
+        set.stream().forEach(bitmap::add);
+        return bitmap;
+    }
+
+    private static void assertMatches(CompressedBitmap actual, BitSet expected) {
+        assertThat(actual.cardinality()).isEqualTo(expected.cardinality());
+        assertThat(actual.toArray()).isEqualTo(expected.stream().toArray());
+        var visited = new BitSet();
+        actual.forEach(visited::set);
+        assertThat(visited).isEqualTo(expected);
+    }
+
+    private static BitSet and(BitSet left, BitSet right) {
+        var result = (BitSet) left.clone();
+        result.and(right);
+        return result;
+    }
+
+    private static BitSet or(BitSet left, BitSet right) {
+        var result = (BitSet) left.clone();
+        result.or(right);
+        return result;
+    }
+
+    private static BitSet andNot(BitSet left, BitSet right) {
+        var result = (BitSet) left.clone();
+        result.andNot(right);
+        return result;
+    }
+}
@@ -0,0 +1,173 @@
+package com.dmdev.query;
+
+import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static com.dmdev.query.SubscriptionFilter.expiringBetween;
+import static com.dmdev.query.SubscriptionFilter.not;
+import static com.dmdev.query.SubscriptionFilter.provider;
+import static com.dmdev.query.SubscriptionFilter.status;
+import static com.dmdev.query.SubscriptionFilter.userIdIn;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class SubscriptionQueryEngineTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final SubscriptionQueryEngine engine = new SubscriptionQueryEngine();
+
+    @Test
+    void count_shouldCombineStatusProviderAndExpirationFilters() {
+        engine.put(createSubscription(1, 10, Provider.APPLE, Status.ACTIVE, NOW.plus(Duration.ofDays(2))));
+        engine.put(createSubscription(2, 10, Provider.GOOGLE, Status.ACTIVE, NOW.plus(Duration.ofDays(2))));
+        engine.put(createSubscription(3, 11, Provider.APPLE, Status.CANCELED, NOW.plus(Duration.ofDays(2))));
+        engine.put(createSubscription(4, 12, Provider.APPLE, Status.ACTIVE, NOW.plus(Duration.ofDays(9))));
+        var activeAppleThisWeek = status(Status.ACTIVE)
+                .and(provider(Provider.APPLE))
+                .and(expiringBetween(NOW, NOW.plus(Duration.ofDays(7))));
+
+        assertThat(engine.count(activeAppleThisWeek)).isEqualTo(1);
+        assertThat(engine.findIds(activeAppleThisWeek.or(status(Status.CANCELED)))).containsExactly(1, 3);
+        assertThat(engine.findIds(not(provider(Provider.APPLE)))).containsExactly(2);
+        assertThat(engine.findIds(userIdIn(List.of(10, 12)).and(provider(Provider.APPLE)))).containsExactly(1, 4);
+    }
+
+    @Test
+    void put_shouldMoveRowBetweenIndexes_andRemoveShouldDropIt() {
+        engine.put(createSubscription(1, 10, Provider.APPLE, Status.ACTIVE, NOW));
+        engine.put(createSubscription(1, 10, Provider.GOOGLE, Status.EXPIRED, NOW.plus(Duration.ofDays(1))));
+
+        assertThat(engine.count(status(Status.ACTIVE))).isZero();
+        assertThat(engine.find(provider(Provider.GOOGLE)))
+                .containsExactly(createSubscription(1, 10, Provider.GOOGLE, Status.EXPIRED, NOW.plus(Duration.ofDays(1))));
+        assertThat(engine.count(expiringBetween(NOW, NOW.plusMillis(1)))).isZero();
+
+        engine.remove(1);
+        engine.put(createSubscription(2, 20, Provider.APPLE, Status.ACTIVE, NOW));
+
+        assertThat(engine.size()).isEqualTo(1);
+        assertThat(engine.findIds(SubscriptionFilter.all())).containsExactly(2);
+        assertThat(engine.findIds(expiringBetween(NOW, NOW.plus(Duration.ofDays(2))))).containsExactly(2);
+    }
+
+    @Test
+    void findSoonestExpiring_shouldReturnTopNInExpirationOrder() {
+        for (int id = 1; id <= 10; id++) {
+            engine.put(createSubscription(id, id, Provider.APPLE, id % 2 == 0 ? Status.ACTIVE : Status.CANCELED,
+                    NOW.plus(Duration.ofHours(20 - id))));
+        }
+
+        var soonest = engine.findSoonestExpiring(status(Status.ACTIVE), 3);
+
+        assertThat(soonest).extracting(Subscription::getId).containsExactly(10, 8, 6);
+    }
+
+    @Test
+    void reload_shouldSwapInScannedRows_andKeepWritesMadeDuringScan() {
+        engine.put(createSubscription(1, 10, Provider.APPLE, Status.ACTIVE, NOW));
+        var subscriptionDao = mock(SubscriptionDao.class);
+        doAnswer(invocation -> {
+            Consumer<Subscription> action = invocation.getArgument(0);
+            action.accept(createSubscription(1, 10, Provider.APPLE, Status.ACTIVE, NOW));
+            action.accept(createSubscription(2, 20, Provider.APPLE, Status.ACTIVE, NOW));
+            assertThat(engine.size()).isEqualTo(1);
+            engine.put(createSubscription(1, 10, Provider.APPLE, Status.CANCELED, NOW));
+            engine.put(createSubscription(3, 30, Provider.GOOGLE, Status.ACTIVE, NOW));
+            engine.remove(2);
+            return null;
+        }).when(subscriptionDao).scanAll(any());
+
+        engine.reload(subscriptionDao);
+
+        assertThat(engine.findIds(SubscriptionFilter.all())).containsExactly(1, 3);
+        assertThat(engine.findIds(status(Status.CANCELED))).containsExactly(1);
+        assertThat(engine.findIds(userIdIn(List.of(20, 30)))).containsExactly(3);
+    }
+
+    @Test
+    void queries_shouldMatchBruteForce_acrossBucketsAndParallelBlocks() {
+        var random = new Random(7);
+        Map<Integer, Subscription> expected = new HashMap<>();
+        for (int id = 1; id <= 100_000; id++) {
+            var subscription = randomSubscription(random, id);
+            engine.put(subscription);
+            expected.put(id, subscription);
+        }
+        for (int i = 0; i < 20_000; i++) {
+            int id = 1 + random.nextInt(100_000);
+            if (random.nextInt(4) == 0) {
+                engine.remove(id);
+                expected.remove(id);
+            } else {
+                var subscription = randomSubscription(random, id);
+                engine.put(subscription);
+                expected.put(id, subscription);
+            }
+        }
+        var from = NOW.plus(Duration.ofDays(30));
+        var to = NOW.plus(Duration.ofDays(37));
+        Set<Integer> users = Set.of(3, 77, 500, 999);
+        var filter = status(Status.ACTIVE)
+                .and(provider(Provider.APPLE).or(userIdIn(users)))
+                .and(expiringBetween(from, to));
+        Predicate<Subscription> predicate = subscription -> subscription.getStatus() == Status.ACTIVE
+                && (subscription.getProvider() == Provider.APPLE || users.contains(subscription.getUserId()))
+                && !subscription.getExpirationDate().isBefore(from)
+                && subscription.getExpirationDate().isBefore(to);
+
+        var matching = expected.values().stream().filter(predicate).toList();
+
+        assertThat(engine.size()).isEqualTo(expected.size());
+        assertThat(engine.count(filter)).isEqualTo(matching.size());
+        assertThat(engine.find(filter)).containsExactlyInAnyOrderElementsOf(matching);
+        assertThat(engine.findIds(userIdIn(users)))
+                .containsExactly(expected.values().stream()
+                        .filter(subscription -> users.contains(subscription.getUserId()))
+                        .mapToInt(Subscription::getId)
+                        .sorted()
+                        .toArray());
+        assertThat(engine.findSoonestExpiring(status(Status.EXPIRED), 50))
+                .extracting(Subscription::getId)
+                .containsExactlyElementsOf(expected.values().stream()
+                        .filter(subscription -> subscription.getStatus() == Status.EXPIRED)
+                        .sorted(Comparator.comparing(Subscription::getExpirationDate))
+                        .limit(50)
+                        .map(Subscription::getId)
+                        .toList());
+    }
+
+    private static Subscription randomSubscription(Random random, int id) {
+        return createSubscription(id, random.nextInt(1_000),
+                Provider.values()[random.nextInt(Provider.values().length)],
+                Status.values()[random.nextInt(Status.values().length)],
+                NOW.plusSeconds(random.nextInt(365 * 24 * 60 * 60)));
+    }
+
+    private static Subscription createSubscription(int id, int userId, Provider provider, Status status, Instant expiration) {
+        return Subscription.builder()
+                .id(id)
+                .userId(userId)
+                .name("Subscription " + id)
+                .provider(provider)
+                .expirationDate(expiration)
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,166 @@
+package com.dmdev.scheduler;
+
+import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.mapper.CreateSubscriptionMapper;
+import com.dmdev.service.SubscriptionOperation;
+import com.dmdev.service.SubscriptionService;
+import com.dmdev.util.MutableClock;
+import com.dmdev.validator.CreateSubscriptionValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExpirySchedulerTest {
+
+    private static final Instant START = Instant.parse("2030-01-01T00:00:00Z");
+
+    private final SubscriptionDao subscriptionDao = mock(SubscriptionDao.class);
+    private final MutableClock clock = new MutableClock(START);
+    private ExpiryScheduler expiryScheduler;
+
+    @BeforeEach
+    void setUp() {
+        var subscriptionService = new SubscriptionService(subscriptionDao, CreateSubscriptionMapper.getInstance(),
+                CreateSubscriptionValidator.getInstance(), clock);
+        expiryScheduler = new ExpiryScheduler(subscriptionService, subscriptionDao,
+                Duration.ofSeconds(1), Duration.ofHours(1));
+        subscriptionService.addListener(expiryScheduler);
+    }
+
+    @Test
+    void tick_shouldExpireSubscriptionAtExpirationDate() {
+        var subscription = createSubscription(1, START.plusSeconds(90));
+        when(subscriptionDao.findByStatusAndExpirationBetween(eq(Status.ACTIVE), any(), any()))
+                .thenReturn(List.of(subscription))
+                .thenReturn(List.of());
+        when(subscriptionDao.findById(1)).thenReturn(Optional.of(subscription));
+        when(subscriptionDao.expireIfDue(1, START.plusSeconds(90))).thenReturn(true);
+        expiryScheduler.load();
+
+        clock.advance(Duration.ofSeconds(89));
+        assertThat(expiryScheduler.tick()).isZero();
+        verify(subscriptionDao, never()).expireIfDue(any(), any());
+
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(expiryScheduler.tick()).isEqualTo(1);
+        assertThat(subscription.getStatus()).isEqualTo(Status.EXPIRED);
+        assertThat(subscription.getExpirationDate()).isEqualTo(START.plusSeconds(90));
+        assertThat(expiryScheduler.getFiredExpirations()).isEqualTo(1);
+    }
+
+    @Test
+    void onTransition_shouldRescheduleRenewedSubscription() {
+        var subscription = createSubscription(1, START.plusSeconds(60));
+        when(subscriptionDao.findByStatusAndExpirationBetween(eq(Status.ACTIVE), any(), any()))
+                .thenReturn(List.of(subscription))
+                .thenReturn(List.of());
+        when(subscriptionDao.findById(1)).thenReturn(Optional.of(subscription));
+        when(subscriptionDao.expireIfDue(eq(1), any())).thenReturn(true);
+        expiryScheduler.load();
+
+        subscription.setExpirationDate(START.plusSeconds(120));
+        expiryScheduler.onTransition(SubscriptionOperation.UPSERT, Status.ACTIVE, subscription);
+
+        clock.advance(Duration.ofSeconds(61));
+        assertThat(expiryScheduler.tick()).isZero();
+        clock.advance(Duration.ofSeconds(60));
+        assertThat(expiryScheduler.tick()).isEqualTo(1);
+    }
+
+    @Test
+    void tick_shouldKeepSubscriptionRenewedAfterItWasScheduled() {
+        var scheduled = createSubscription(1, START.plusSeconds(60));
+        var renewed = createSubscription(1, START.plus(Duration.ofDays(30)));
+        when(subscriptionDao.findByStatusAndExpirationBetween(eq(Status.ACTIVE), any(), any()))
+                .thenReturn(List.of(scheduled))
+                .thenReturn(List.of());
+        when(subscriptionDao.findById(1)).thenReturn(Optional.of(renewed));
+        expiryScheduler.load();
+
+        clock.advance(Duration.ofSeconds(61));
+
+        assertThat(expiryScheduler.tick()).isZero();
+        assertThat(renewed.getStatus()).isEqualTo(Status.ACTIVE);
+        assertThat(renewed.getExpirationDate()).isEqualTo(START.plus(Duration.ofDays(30)));
+        verify(subscriptionDao, never()).expireIfDue(any(), any());
+        verify(subscriptionDao, never()).update(any());
+    }
+
+    @Test
+    void tick_shouldSkipSubscriptionRenewedAfterItWasRead() {
+        var subscription = createSubscription(1, START.plusSeconds(60));
+        when(subscriptionDao.findByStatusAndExpirationBetween(eq(Status.ACTIVE), any(), any()))
+                .thenReturn(List.of(subscription))
+                .thenReturn(List.of());
+        when(subscriptionDao.findById(1)).thenReturn(Optional.of(subscription));
+        when(subscriptionDao.expireIfDue(eq(1), any())).thenReturn(false);
+        expiryScheduler.load();
+
+        clock.advance(Duration.ofSeconds(61));
+
+        assertThat(expiryScheduler.tick()).isZero();
+        assertThat(subscription.getStatus()).isEqualTo(Status.ACTIVE);
+        assertThat(expiryScheduler.getFiredExpirations()).isZero();
+    }
+
+    @Test
+    void onTransition_shouldDropCanceledSubscription() {
+        var subscription = createSubscription(1, START.plusSeconds(60));
+        when(subscriptionDao.findByStatusAndExpirationBetween(eq(Status.ACTIVE), any(), any()))
+                .thenReturn(List.of(subscription))
+                .thenReturn(List.of());
+        expiryScheduler.load();
+        assertThat(expiryScheduler.isScheduled(1)).isTrue();
+
+        subscription.setStatus(Status.CANCELED);
+        expiryScheduler.onTransition(SubscriptionOperation.CANCEL, Status.ACTIVE, subscription);
+
+        assertThat(expiryScheduler.isScheduled(1)).isFalse();
+        clock.advance(Duration.ofMinutes(2));
+        assertThat(expiryScheduler.tick()).isZero();
+        verify(subscriptionDao, never()).findById(1);
+    }
+
+    @Test
+    void tick_shouldLoadSubscriptionsEnteringWindow() {
+        var later = createSubscription(2, START.plus(Duration.ofMinutes(90)));
+        when(subscriptionDao.findByStatusAndExpirationBetween(eq(Status.ACTIVE), any(), any()))
+                .thenReturn(List.of())
+                .thenReturn(List.of(later));
+        expiryScheduler.load();
+        assertThat(expiryScheduler.getScheduledCount()).isZero();
+
+        clock.advance(Duration.ofMinutes(31));
+        expiryScheduler.tick();
+
+        assertThat(expiryScheduler.isScheduled(2)).isTrue();
+        verify(subscriptionDao).findByStatusAndExpirationBetween(Status.ACTIVE,
+                START.plus(Duration.ofHours(1)), START.plus(Duration.ofMinutes(91)));
+    }
+
+    private Subscription createSubscription(int id, Instant expirationDate) {
+        return Subscription.builder()
+                .id(id)
+                .userId(id)
+                .name("Subscription " + id)
+                .provider(Provider.APPLE)
+                .expirationDate(expirationDate)
+                .status(Status.ACTIVE)
+                .build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.dmdev.scheduler;
+
+import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.util.MutableClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SubscriptionArchiverTest {
+
+    private static final Instant NOW = Instant.parse("2030-01-01T00:00:00Z");
+
+    private final SubscriptionDao subscriptionDao = mock(SubscriptionDao.class);
+    private final MutableClock clock = new MutableClock(NOW);
+
+    @Test
+    void runOnce_shouldArchiveInChunksUntilShortChunk() {
+        when(subscriptionDao.archiveTerminal(eq(NOW.minus(Duration.ofDays(30))), eq(100), any()))
+                .thenReturn(100, 100, 42);
+        var archiver = new SubscriptionArchiver(subscriptionDao, clock, Duration.ofDays(30), 100, 1_000);
+
+        long archived = archiver.runOnce();
+
+        assertThat(archived).isEqualTo(242);
+        assertThat(archiver.getArchivedRows()).isEqualTo(242);
+        assertThat(archiver.getBatches()).isEqualTo(3);
+        assertThat(archiver.getLastRunArchivedRows()).isEqualTo(242);
+        assertThat(archiver.isRunning()).isFalse();
+        verify(subscriptionDao, times(3)).archiveTerminal(any(), eq(100), eq(NOW));
+    }
+
+    @Test
+    void runOnce_shouldSpaceChunksByRateLimit() {
+        when(subscriptionDao.archiveTerminal(any(), eq(10), any())).thenReturn(10, 10, 10, 0);
+        var archiver = new SubscriptionArchiver(subscriptionDao, clock, Duration.ofDays(1), 10, 20);
+
+        long started = System.nanoTime();
+        archiver.runOnce();
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isGreaterThanOrEqualTo(Duration.ofMillis(150));
+        assertThat(archiver.getBatches()).isEqualTo(4);
+    }
+
+    @Test
+    void runOnce_shouldDoNothingAfterClose() {
+        var archiver = new SubscriptionArchiver(subscriptionDao, clock, Duration.ofDays(1), 10, 20);
+        archiver.close();
+
+        assertThat(archiver.runOnce()).isZero();
+        assertThat(archiver.getRuns()).isEqualTo(1);
+    }
+}
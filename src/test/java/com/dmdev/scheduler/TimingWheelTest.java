@@ -0,0 +1,84 @@
+package com.dmdev.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimingWheelTest {
+
+    private final TimingWheel timingWheel = new TimingWheel(10, 8, 3, 1_000);
+
+    @Test
+    void advanceTo_shouldFireEntriesInDeadlineOrder_acrossLevels() {
+        timingWheel.schedule(1, 1_000 + 3_000);
+        timingWheel.schedule(2, 1_000 + 25);
+        timingWheel.schedule(3, 1_000 + 700);
+
+        List<Integer> fired = new ArrayList<>();
+        timingWheel.advanceTo(1_000 + 20, fired::add);
+        assertThat(fired).isEmpty();
+
+        timingWheel.advanceTo(1_000 + 30, fired::add);
+        assertThat(fired).containsExactly(2);
+
+        timingWheel.advanceTo(1_000 + 699, fired::add);
+        assertThat(fired).containsExactly(2);
+
+        timingWheel.advanceTo(1_000 + 5_000, fired::add);
+        assertThat(fired).containsExactly(2, 3, 1);
+        assertThat(timingWheel.size()).isZero();
+    }
+
+    @Test
+    void advanceTo_shouldNotFireBeforeDeadline() {
+        for (int id = 0; id < 500; id++) {
+            timingWheel.schedule(id, 1_000 + id * 9L);
+        }
+
+        for (long now = 1_000; now <= 1_000 + 500 * 9L; now += 10) {
+            long currentNow = now;
+            timingWheel.advanceTo(now, id -> assertThat(1_000 + id * 9L).isLessThanOrEqualTo(currentNow));
+        }
+        assertThat(timingWheel.size()).isZero();
+    }
+
+    @Test
+    void cancel_shouldRemoveEntry() {
+        timingWheel.schedule(1, 1_100);
+
+        assertThat(timingWheel.cancel(1)).isTrue();
+
+        List<Integer> fired = new ArrayList<>();
+        timingWheel.advanceTo(2_000, fired::add);
+        assertThat(fired).isEmpty();
+        assertThat(timingWheel.cancel(1)).isFalse();
+    }
+
+    @Test
+    void schedule_shouldReplacePreviousDeadline() {
+        timingWheel.schedule(1, 1_100);
+        timingWheel.schedule(1, 1_900);
+
+        List<Integer> fired = new ArrayList<>();
+        timingWheel.advanceTo(1_500, fired::add);
+        assertThat(fired).isEmpty();
+
+        timingWheel.advanceTo(1_900, fired::add);
+        assertThat(fired).containsExactly(1);
+    }
+
+    @Test
+    void schedule_shouldRejectDeadlineBeyondSpan() {
+        assertThat(timingWheel.schedule(1, 1_000 + timingWheel.getSpanMillis())).isFalse();
+        assertThat(timingWheel.contains(1)).isFalse();
+    }
+
+    @Test
+    void constructor_shouldRejectNonPowerOfTwoWheelSize() {
+        assertThatThrownBy(() -> new TimingWheel(10, 6, 2, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
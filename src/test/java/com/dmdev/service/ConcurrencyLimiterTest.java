@@ -0,0 +1,201 @@
+package com.dmdev.service;
+
+import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.exception.LimitExceededException;
+import com.dmdev.mapper.CreateSubscriptionMapper;
+import com.dmdev.validator.CreateSubscriptionValidator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConcurrencyLimiterTest {
+
+    @Test
+    void acquire_shouldReject_whenLimitReachedAndQueueFull() {
+        var limiter = new ConcurrencyLimiter(2, 1, 10, Duration.ofHours(1), Duration.ofMillis(10), 0);
+
+        var first = limiter.acquire();
+        var second = limiter.acquire();
+
+        assertThatThrownBy(limiter::acquire).isInstanceOf(LimitExceededException.class);
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+        assertThat(limiter.getRejections()).isEqualTo(1);
+
+        first.close();
+        second.close();
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void acquire_shouldWaitForReleasedPermit() throws Exception {
+        var limiter = new ConcurrencyLimiter(1, 1, 1, Duration.ofHours(1), Duration.ofSeconds(5), 1);
+        var permit = limiter.acquire();
+
+        var waiting = CompletableFuture.supplyAsync(limiter::acquire);
+        while (limiter.getQueued() == 0) {
+            Thread.onSpinWait();
+        }
+        permit.close();
+
+        waiting.get(5, TimeUnit.SECONDS).close();
+        assertThat(limiter.getAccepted()).isEqualTo(2);
+        assertThat(limiter.getRejections()).isZero();
+    }
+
+    @Test
+    void acquire_shouldReject_whenNoPermitWithinMaxWait() {
+        var limiter = new ConcurrencyLimiter(1, 1, 1, Duration.ofHours(1), Duration.ofMillis(20), 1);
+        var permit = limiter.acquire();
+
+        long started = System.nanoTime();
+        assertThatThrownBy(limiter::acquire).isInstanceOf(LimitExceededException.class);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isGreaterThanOrEqualTo(Duration.ofMillis(20));
+        assertThat(limiter.getQueued()).isZero();
+        permit.close();
+    }
+
+    @Test
+    void release_shouldGrowLimitOnFastCallsAndCutItOnSlowCalls() {
+        var fast = new ConcurrencyLimiter(4, 1, 6, Duration.ofHours(1), Duration.ZERO, 0);
+        for (int i = 0; i < 5; i++) {
+            var permits = List.of(fast.acquire(), fast.acquire(), fast.acquire());
+            permits.forEach(ConcurrencyLimiter.Permit::close);
+        }
+        assertThat(fast.getLimit()).isEqualTo(6);
+
+        var slow = new ConcurrencyLimiter(10, 5, 10, Duration.ZERO, Duration.ZERO, 0);
+        var permits = List.of(slow.acquire(), slow.acquire(), slow.acquire());
+        permits.forEach(ConcurrencyLimiter.Permit::close);
+        assertThat(slow.getLimit()).isEqualTo(9);
+        assertThat(slow.getDecreases()).isEqualTo(1);
+
+        for (int i = 0; i < 20; i++) {
+            slow.acquire().close();
+        }
+        assertThat(slow.getLimit()).isEqualTo(5);
+    }
+
+    /**
+     * 64 callers hammer {@code expire} against a database that serves 4 statements at a time.
+     * Unlimited, every call queues for a connection and p99 grows with the number of callers;
+     * limited, excess calls are rejected within {@code maxWait} and accepted calls stay fast.
+     */
+    @Test
+    void subscriptionService_shouldKeepP99BoundedUnderOverload() throws Exception {
+        long unlimitedP99 = runOverload(null);
+        var limiter = new ConcurrencyLimiter(8, 1, 64, Duration.ofMillis(15), Duration.ofMillis(10), 16);
+        long limitedP99 = runOverload(limiter);
+
+        assertThat(limiter.getRejections()).isPositive();
+        assertThat(limiter.getLimit()).isLessThan(64);
+        assertThat(limitedP99).isLessThan(unlimitedP99 / 2);
+        assertThat(Duration.ofNanos(limitedP99)).isLessThan(Duration.ofMillis(100));
+    }
+
+    private long runOverload(ConcurrencyLimiter limiter) throws Exception {
+        var subscriptionService = new SubscriptionService(new SlowSubscriptionDao(4, 2),
+                CreateSubscriptionMapper.getInstance(), CreateSubscriptionValidator.getInstance(), Clock.systemUTC());
+        if (limiter != null) {
+            subscriptionService.setConcurrencyLimiter(limiter);
+        }
+        int callers = 64;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1500);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        List<CompletableFuture<List<Long>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < callers; i++) {
+                results.add(CompletableFuture.supplyAsync(() -> {
+                    List<Long> latencies = new ArrayList<>();
+                    while (System.nanoTime() < deadline) {
+                        long started = System.nanoTime();
+                        try {
+                            subscriptionService.expire(1);
+                            latencies.add(System.nanoTime() - started);
+                        } catch (LimitExceededException e) {
+                            sleep(1);
+                        }
+                    }
+                    return latencies;
+                }, executor));
+            }
+            long[] latencies = results.stream()
+                    .flatMap(result -> result.join().stream())
+                    .mapToLong(Long::longValue)
+                    .toArray();
+            Arrays.sort(latencies);
+            assertThat(latencies).isNotEmpty();
+            return latencies[(int) (latencies.length * 0.99)];
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stands in for a database with {@code connections} connections, each statement taking
+     * {@code statementMillis}.
+     */
+    private static class SlowSubscriptionDao extends SubscriptionDao {
+
+        private final Semaphore connections;
+        private final long statementMillis;
+
+        SlowSubscriptionDao(int connections, long statementMillis) {
+            this.connections = new Semaphore(connections, true);
+            this.statementMillis = statementMillis;
+        }
+
+        @Override
+        public Optional<Subscription> findById(Integer id) {
+            execute();
+            return Optional.of(Subscription.builder()
+                    .id(id)
+                    .userId(1)
+                    .name("Subscription")
+                    .provider(Provider.GOOGLE)
+                    .expirationDate(Instant.now().plusSeconds(3600))
+                    .status(Status.ACTIVE)
+                    .build());
+        }
+
+        @Override
+        public Subscription update(Subscription entity) {
+            execute();
+            return entity;
+        }
+
+        private void execute() {
+            connections.acquireUninterruptibly();
+            try {
+                sleep(statementMillis);
+            } finally {
+                connections.release();
+            }
+        }
+    }
+}
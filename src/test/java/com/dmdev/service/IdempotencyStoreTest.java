@@ -0,0 +1,199 @@
+package com.dmdev.service;
+
+import com.dmdev.dao.IdempotencyKeyDao;
+import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.exception.IdempotencyKeyReusedException;
+import com.dmdev.util.MutableClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyStoreTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+    private static final String HASH = "hash";
+
+    private final MutableClock clock = new MutableClock(NOW);
+    private final IdempotencyStore store = new IdempotencyStore(2, Duration.ofMinutes(10), clock);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void execute_shouldReturnStoredCopy_whenKeyRepeats() {
+        var first = store.execute("key", HASH, this::upsert);
+
+        var repeated = store.execute("key", HASH, this::upsert);
+
+        assertThat(repeated).isEqualTo(first).isNotSameAs(first);
+        assertThat(calls).hasValue(1);
+        assertThat(store.getExecuted()).isEqualTo(1);
+        assertThat(store.getDeduplicated()).isEqualTo(1);
+    }
+
+    @Test
+    void execute_shouldMakeConcurrentDuplicatesWaitForFirstCall() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var leader = executor.submit(() -> store.execute("key", HASH, () -> {
+                started.countDown();
+                await(release);
+                return upsert();
+            }));
+            started.await(5, TimeUnit.SECONDS);
+            var followers = IntStream.range(0, 3)
+                    .mapToObj(i -> executor.submit(() -> store.execute("key", HASH, this::upsert)))
+                    .toList();
+            while (store.getWaited() < 3) {
+                Thread.sleep(5);
+            }
+
+            release.countDown();
+
+            var expected = leader.get(5, TimeUnit.SECONDS);
+            for (var follower : followers) {
+                assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo(expected);
+            }
+            assertThat(calls).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_shouldRunAgain_whenFirstCallFailed() {
+        assertThatThrownBy(() -> store.execute("key", HASH, () -> {
+            throw new IllegalStateException("database down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        store.execute("key", HASH, this::upsert);
+
+        assertThat(calls).hasValue(1);
+        assertThat(store.getDeduplicated()).isZero();
+    }
+
+    @Test
+    void execute_shouldRunAgain_afterTtl() {
+        store.execute("key", HASH, this::upsert);
+        clock.advance(Duration.ofMinutes(10));
+
+        store.execute("key", HASH, this::upsert);
+
+        assertThat(calls).hasValue(2);
+        assertThat(store.getExpirations()).isEqualTo(1);
+    }
+
+    @Test
+    void execute_shouldEvictLeastRecentlyUsedKey_whenFull() {
+        store.execute("first", HASH, this::upsert);
+        store.execute("second", HASH, this::upsert);
+        store.execute("first", HASH, this::upsert);
+
+        store.execute("third", HASH, this::upsert);
+        store.execute("second", HASH, this::upsert);
+
+        assertThat(calls).hasValue(4);
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.getEvictions()).isEqualTo(2);
+    }
+
+    @Test
+    void execute_shouldResolvePersistedKey_withoutRunningUpsert() {
+        var keyDao = mock(IdempotencyKeyDao.class);
+        var subscriptionDao = mock(SubscriptionDao.class);
+        when(keyDao.findLive("key", NOW)).thenReturn(Optional.of(new IdempotencyKeyDao.StoredKey(7, HASH)));
+        when(subscriptionDao.findById(7)).thenReturn(Optional.of(createSubscription(7)));
+        store.setPersistence(keyDao, subscriptionDao);
+
+        var result = store.execute("key", HASH, this::upsert);
+
+        assertThat(result.getId()).isEqualTo(7);
+        assertThat(calls).hasValue(0);
+        assertThat(store.getPersistedHits()).isEqualTo(1);
+        verify(keyDao, never()).save(any(), anyInt(), any(), any());
+    }
+
+    @Test
+    void execute_shouldPersistNewKey_andCountFailedWrites() {
+        var keyDao = mock(IdempotencyKeyDao.class);
+        when(keyDao.findLive(any(), any())).thenReturn(Optional.empty());
+        doThrow(new IllegalStateException("database down")).when(keyDao).save(eq("failing"), anyInt(), any(), any());
+        store.setPersistence(keyDao, mock(SubscriptionDao.class));
+
+        store.execute("key", HASH, this::upsert);
+        var result = store.execute("failing", HASH, this::upsert);
+
+        verify(keyDao).save("key", 1, HASH, NOW.plus(Duration.ofMinutes(10)));
+        assertThat(result.getId()).isEqualTo(2);
+        assertThat(store.getPersistFailures()).isEqualTo(1);
+    }
+
+    @Test
+    void execute_shouldRejectKeyReusedForDifferentRequest() {
+        store.execute("key", HASH, this::upsert);
+
+        assertThatThrownBy(() -> store.execute("key", "other", this::upsert))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+
+        assertThat(calls).hasValue(1);
+        assertThat(store.getReusedKeys()).isEqualTo(1);
+        assertThat(store.execute("key", HASH, this::upsert).getId()).isEqualTo(1);
+    }
+
+    @Test
+    void execute_shouldRejectPersistedKeyReusedForDifferentRequest() {
+        var keyDao = mock(IdempotencyKeyDao.class);
+        when(keyDao.findLive("key", NOW)).thenReturn(Optional.of(new IdempotencyKeyDao.StoredKey(7, "other")));
+        store.setPersistence(keyDao, mock(SubscriptionDao.class));
+
+        assertThatThrownBy(() -> store.execute("key", HASH, this::upsert))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+
+        assertThat(calls).hasValue(0);
+        assertThat(store.size()).isZero();
+    }
+
+    private Subscription upsert() {
+        return createSubscription(calls.incrementAndGet());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Subscription createSubscription(int id) {
+        return Subscription.builder()
+                .id(id)
+                .userId(1)
+                .name("Subscription " + id)
+                .provider(Provider.APPLE)
+                .expirationDate(NOW.plus(Duration.ofDays(30)))
+                .status(Status.ACTIVE)
+                .build();
+    }
+}
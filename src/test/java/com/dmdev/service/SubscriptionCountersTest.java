@@ -0,0 +1,98 @@
+package com.dmdev.service;
+
+import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.dto.CreateSubscriptionDto;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.integration.IntegrationTestBase;
+import com.dmdev.mapper.CreateSubscriptionMapper;
+import com.dmdev.validator.CreateSubscriptionValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SubscriptionCountersTest extends IntegrationTestBase {
+
+    private final SubscriptionDao subscriptionDao = SubscriptionDao.getInstance();
+    private SubscriptionService subscriptionService;
+    private SubscriptionCounters subscriptionCounters;
+
+    @BeforeEach
+    void setUp() {
+        subscriptionCounters = new SubscriptionCounters(subscriptionDao);
+        subscriptionService = new SubscriptionService(subscriptionDao, CreateSubscriptionMapper.getInstance(),
+                CreateSubscriptionValidator.getInstance(), Clock.systemUTC())
+                .addListener(subscriptionCounters);
+    }
+
+    @Test
+    void reconcile_shouldSeedCountsFromDatabase() {
+        subscriptionDao.insert(createSubscription(1, Provider.APPLE, Status.ACTIVE));
+        subscriptionDao.insert(createSubscription(2, Provider.APPLE, Status.CANCELED));
+        subscriptionDao.insert(createSubscription(3, Provider.GOOGLE, Status.ACTIVE));
+
+        subscriptionCounters.reconcile();
+
+        assertThat(subscriptionCounters.getActive(Provider.APPLE)).isEqualTo(1);
+        assertThat(subscriptionCounters.get(Provider.APPLE, Status.CANCELED)).isEqualTo(1);
+        assertThat(subscriptionCounters.getActive(Provider.GOOGLE)).isEqualTo(1);
+        assertThat(subscriptionCounters.checkDrift()).isEmpty();
+    }
+
+    @Test
+    void onTransition_shouldFollowServiceOperations() {
+        subscriptionCounters.reconcile();
+
+        var subscription = subscriptionService.upsert(createDto(1, "GOOGLE"));
+        subscriptionService.upsert(createDto(2, "APPLE"));
+        assertThat(subscriptionCounters.getActive(Provider.GOOGLE)).isEqualTo(1);
+        assertThat(subscriptionCounters.getActive(Provider.APPLE)).isEqualTo(1);
+
+        subscriptionService.cancel(subscription.getId());
+        assertThat(subscriptionCounters.getActive(Provider.GOOGLE)).isZero();
+        assertThat(subscriptionCounters.get(Provider.GOOGLE, Status.CANCELED)).isEqualTo(1);
+
+        subscriptionService.upsert(createDto(1, "GOOGLE"));
+        assertThat(subscriptionCounters.getActive(Provider.GOOGLE)).isEqualTo(1);
+        assertThat(subscriptionCounters.get(Provider.GOOGLE, Status.CANCELED)).isZero();
+        assertThat(subscriptionCounters.checkDrift()).isEmpty();
+    }
+
+    @Test
+    void checkDrift_shouldReportChangesMadeOutsideService() {
+        subscriptionCounters.reconcile();
+        subscriptionDao.insert(createSubscription(1, Provider.APPLE, Status.EXPIRED));
+
+        assertThat(subscriptionCounters.checkDrift()).isEqualTo(Map.of(Provider.APPLE, Map.of(Status.EXPIRED, 1L)));
+
+        subscriptionCounters.reconcile();
+        assertThat(subscriptionCounters.checkDrift()).isEmpty();
+        assertThat(subscriptionCounters.getReconciliations()).isEqualTo(2);
+    }
+
+    private CreateSubscriptionDto createDto(int userId, String provider) {
+        return CreateSubscriptionDto.builder()
+                .userId(userId)
+                .name("Subscription")
+                .provider(provider)
+                .expirationDate(Instant.now().plus(30, ChronoUnit.DAYS))
+                .build();
+    }
+
+    private Subscription createSubscription(int userId, Provider provider, Status status) {
+        return Subscription.builder()
+                .userId(userId)
+                .name("Subscription")
+                .provider(provider)
+                .expirationDate(Instant.now().plusSeconds(3600))
+                .status(status)
+                .build();
+    }
+}
@@ -5,28 +5,37 @@ import com.dmdev.entity.Provider;
 import com.dmdev.entity.Status;
 import com.dmdev.entity.Subscription;
 import com.dmdev.exception.SubscriptionException;
+import com.dmdev.exception.IdempotencyKeyReusedException;
 import com.dmdev.exception.ValidationException;
 import com.dmdev.integration.IntegrationTestBase;
 import com.dmdev.mapper.CreateSubscriptionMapper;
+import com.dmdev.util.BloomFilter;
+import com.dmdev.util.HeavyHitterTracker;
 import com.dmdev.validator.CreateSubscriptionValidator;
 import com.dmdev.validator.Error;
 import com.dmdev.validator.ValidationResult;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
+@Execution(ExecutionMode.CONCURRENT)
 class SubscriptionServiceTest {
 
     private static final int VALID_USER_ID = 1;
@@ -82,6 +91,51 @@ class SubscriptionServiceTest {
     }
 
 
+    @Test
+    void testUpsert_UnknownUserInFilter_ShouldSkipLookup() {
+        CreateSubscriptionDto dto = createValidDto();
+        when(createSubscriptionValidator.validate(dto)).thenReturn(new ValidationResult());
+        Subscription newSubscription = new Subscription().setUserId(VALID_USER_ID);
+        when(createSubscriptionMapper.map(dto)).thenReturn(newSubscription);
+        when(subscriptionDao.upsert(newSubscription)).thenReturn(newSubscription);
+        UserIdFilter userIdFilter = new UserIdFilter(BloomFilter.create(100, 0.01, 1024));
+        subscriptionService.setUserIdFilter(userIdFilter);
+
+        subscriptionService.upsert(dto);
+
+        verify(subscriptionDao, never()).findByUserId(anyInt());
+        assertEquals(1, userIdFilter.getSkippedLookups());
+        assertTrue(userIdFilter.mightHaveSubscriptions(VALID_USER_ID));
+    }
+
+    @Test
+    void testUpsert_UserMissedByFilter_ShouldFallBackToLookupAfterConstraintViolation() {
+        CreateSubscriptionDto dto = createValidDto();
+        when(createSubscriptionValidator.validate(dto)).thenReturn(new ValidationResult());
+        Subscription newSubscription = new Subscription().setUserId(VALID_USER_ID);
+        when(createSubscriptionMapper.map(dto)).thenReturn(newSubscription);
+        Subscription existingSubscription = new Subscription()
+                .setId(1)
+                .setName(SUBSCRIPTION_NAME)
+                .setProvider(Provider.GOOGLE)
+                .setUserId(VALID_USER_ID)
+                .setStatus(Status.EXPIRED);
+        when(subscriptionDao.upsert(newSubscription)).thenAnswer(invocation -> {
+            throw new SQLIntegrityConstraintViolationException("duplicate (user_id, name)", "23505");
+        });
+        when(subscriptionDao.findByUserId(VALID_USER_ID)).thenReturn(List.of(existingSubscription));
+        when(subscriptionDao.upsert(existingSubscription)).thenReturn(existingSubscription);
+        UserIdFilter userIdFilter = new UserIdFilter(BloomFilter.create(100, 0.01, 1024));
+        subscriptionService.setUserIdFilter(userIdFilter);
+
+        Subscription result = subscriptionService.upsert(dto);
+
+        assertSame(existingSubscription, result);
+        assertEquals(Status.ACTIVE, result.getStatus());
+        assertEquals(1, userIdFilter.getMisses());
+        assertTrue(userIdFilter.mightHaveSubscriptions(VALID_USER_ID));
+    }
+
     @Test
     void testUpsert_ExistingSubscription_ShouldUpdateExistingSubscription() {
         CreateSubscriptionDto dto = createValidDto();
@@ -126,6 +180,72 @@ class SubscriptionServiceTest {
         assertEquals("Invalid data", actualError.getMessage(), "Сообщение об ошибке должно совпадать");
     }
 
+    @Test
+    void testUpsert_WithHeavyHitters_ShouldCountCallsThatFailValidation() {
+        CreateSubscriptionDto dto = createValidDto();
+        ValidationResult validationResult = new ValidationResult();
+        validationResult.add(Error.of(1001, "Invalid data"));
+        when(createSubscriptionValidator.validate(dto)).thenReturn(validationResult);
+        SubscriptionHeavyHitters heavyHitters = new SubscriptionHeavyHitters(
+                new HeavyHitterTracker<>(Duration.ofMinutes(1), 6, 2, 256, 4, Clock.systemUTC()),
+                new HeavyHitterTracker<>(Duration.ofMinutes(1), 6, 2, 256, 4, Clock.systemUTC()));
+        subscriptionService.setHeavyHitters(heavyHitters);
+
+        assertThrows(ValidationException.class, () -> subscriptionService.upsert(dto));
+        assertThrows(ValidationException.class, () -> subscriptionService.upsert(dto));
+
+        assertTrue(heavyHitters.isHeavyUser(VALID_USER_ID));
+        assertTrue(heavyHitters.isHeavyKey(VALID_USER_ID, SUBSCRIPTION_NAME));
+        assertEquals(2, heavyHitters.getTopUsers().get(0).getCount());
+    }
+
+    @Test
+    void testUpsert_WithRepeatedIdempotencyKey_ShouldWriteOnce() {
+        CreateSubscriptionDto dto = createValidDto();
+        when(createSubscriptionValidator.validate(dto)).thenReturn(new ValidationResult());
+        when(subscriptionDao.findByUserId(dto.getUserId())).thenReturn(Collections.emptyList());
+        when(createSubscriptionMapper.map(dto)).thenReturn(new Subscription());
+        when(subscriptionDao.upsert(any(Subscription.class))).thenAnswer(invocation -> invocation.<Subscription>getArgument(0)
+                .setId(1)
+                .setUserId(VALID_USER_ID));
+        IdempotencyStore idempotencyStore = new IdempotencyStore(16, Duration.ofMinutes(1), Clock.systemUTC());
+        subscriptionService.setIdempotencyStore(idempotencyStore);
+
+        Subscription first = subscriptionService.upsert(dto, "request-1");
+        Subscription retried = subscriptionService.upsert(dto, "request-1");
+        subscriptionService.upsert(dto, "request-2");
+
+        assertEquals(first, retried);
+        assertNotSame(first, retried);
+        verify(subscriptionDao, times(2)).upsert(any(Subscription.class));
+        verify(createSubscriptionValidator, times(2)).validate(dto);
+        assertEquals(1, idempotencyStore.getDeduplicated());
+    }
+
+    @Test
+    void testUpsert_WithIdempotencyKeyReusedForOtherPayload_ShouldThrowException() {
+        CreateSubscriptionDto dto = createValidDto();
+        CreateSubscriptionDto changed = CreateSubscriptionDto.builder()
+                .userId(dto.getUserId())
+                .name("Other subscription")
+                .provider(dto.getProvider())
+                .expirationDate(dto.getExpirationDate())
+                .build();
+        when(createSubscriptionValidator.validate(dto)).thenReturn(new ValidationResult());
+        when(subscriptionDao.findByUserId(dto.getUserId())).thenReturn(Collections.emptyList());
+        when(createSubscriptionMapper.map(dto)).thenReturn(new Subscription());
+        when(subscriptionDao.upsert(any(Subscription.class))).thenAnswer(invocation -> invocation.<Subscription>getArgument(0)
+                .setId(1)
+                .setUserId(VALID_USER_ID));
+        subscriptionService.setIdempotencyStore(new IdempotencyStore(16, Duration.ofMinutes(1), Clock.systemUTC()));
+
+        subscriptionService.upsert(dto, "request-1");
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> subscriptionService.upsert(changed, "request-1"));
+        verify(subscriptionDao, times(1)).upsert(any(Subscription.class));
+        verify(createSubscriptionValidator, never()).validate(changed);
+    }
+
 
     @Test
     void testUpsert_DaoThrowsException_ShouldPropagateException() {
@@ -0,0 +1,35 @@
+package com.dmdev.service;
+
+import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.util.BloomFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class UserIdFilterTest {
+
+    private final UserIdFilter userIdFilter = new UserIdFilter(BloomFilter.create(1_000, 0.001, 1024));
+
+    @Test
+    void refresh_shouldReplaceContentsWithTable_andKeepUsersAddedDuringScan() {
+        userIdFilter.add(1);
+        var subscriptionDao = mock(SubscriptionDao.class);
+        doAnswer(invocation -> {
+            IntConsumer action = invocation.getArgument(0);
+            action.accept(2);
+            userIdFilter.add(3);
+            return null;
+        }).when(subscriptionDao).forEachUserId(any());
+
+        userIdFilter.refresh(subscriptionDao);
+
+        assertThat(userIdFilter.mightHaveSubscriptions(1)).isFalse();
+        assertThat(userIdFilter.mightHaveSubscriptions(2)).isTrue();
+        assertThat(userIdFilter.mightHaveSubscriptions(3)).isTrue();
+    }
+}
@@ -0,0 +1,47 @@
+package com.dmdev.subscriptionDao;
+
+import com.dmdev.dao.IdempotencyKeyDao;
+import com.dmdev.dao.IdempotencyKeyDao.StoredKey;
+import com.dmdev.integration.IntegrationTestBase;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IdempotencyKeyDaoTest extends IntegrationTestBase {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final IdempotencyKeyDao idempotencyKeyDao = IdempotencyKeyDao.getInstance();
+
+    @Test
+    void findLive_shouldIgnoreExpiredKey() {
+        idempotencyKeyDao.save("1:live", 1, "hash-1", NOW.plus(Duration.ofHours(1)));
+        idempotencyKeyDao.save("1:expired", 2, "hash-2", NOW);
+
+        assertEquals(Optional.of(new StoredKey(1, "hash-1")), idempotencyKeyDao.findLive("1:live", NOW));
+        assertEquals(Optional.empty(), idempotencyKeyDao.findLive("1:expired", NOW));
+        assertEquals(Optional.empty(), idempotencyKeyDao.findLive("1:unknown", NOW));
+    }
+
+    @Test
+    void save_shouldReplaceExistingKey() {
+        idempotencyKeyDao.save("1:key", 1, "hash-1", NOW);
+
+        idempotencyKeyDao.save("1:key", 2, "hash-2", NOW.plus(Duration.ofHours(1)));
+
+        assertEquals(Optional.of(new StoredKey(2, "hash-2")), idempotencyKeyDao.findLive("1:key", NOW));
+    }
+
+    @Test
+    void deleteExpired_shouldRemoveOnlyExpiredKeys() {
+        idempotencyKeyDao.save("1:live", 1, "hash-1", NOW.plus(Duration.ofHours(1)));
+        idempotencyKeyDao.save("1:expired", 2, "hash-2", NOW.minus(Duration.ofHours(1)));
+
+        assertEquals(1, idempotencyKeyDao.deleteExpired(NOW));
+        assertEquals(Optional.of(new StoredKey(1, "hash-1")), idempotencyKeyDao.findLive("1:live", NOW));
+    }
+}
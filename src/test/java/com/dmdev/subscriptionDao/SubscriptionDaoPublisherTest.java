@@ -0,0 +1,136 @@
+package com.dmdev.subscriptionDao;
+
+import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.integration.IntegrationTestBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SubscriptionDaoPublisherTest extends IntegrationTestBase {
+
+    private static final Object COMPLETE = new Object();
+
+    private final ExecutorService publisherExecutor = Executors.newCachedThreadPool();
+    private final SubscriptionDao subscriptionDao = new SubscriptionDao();
+
+    @BeforeEach
+    void bindPublisherExecutor() {
+        subscriptionDao.setPublisherExecutor(isolatedExecutor(publisherExecutor));
+    }
+
+    @AfterEach
+    void shutdownPublisherExecutor() {
+        publisherExecutor.shutdownNow();
+    }
+
+    @Test
+    void publishAll_shouldEmitOnlyRequestedRows() throws InterruptedException {
+        insertSubscriptions(3);
+        var subscriber = new RecordingSubscriber();
+        subscriptionDao.publishAll().subscribe(subscriber);
+
+        subscriber.subscription.request(2);
+        assertInstanceOf(Subscription.class, subscriber.next());
+        assertInstanceOf(Subscription.class, subscriber.next());
+        assertNull(subscriber.signals.poll(200, TimeUnit.MILLISECONDS));
+
+        subscriber.subscription.request(5);
+        assertInstanceOf(Subscription.class, subscriber.next());
+        assertEquals(COMPLETE, subscriber.next());
+    }
+
+    @Test
+    void publishByUserId_shouldCompleteAfterMatchingRows() throws InterruptedException {
+        insertSubscriptions(3);
+        var subscriber = new RecordingSubscriber();
+        subscriptionDao.publishByUserId(2).subscribe(subscriber);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        var subscription = (Subscription) subscriber.next();
+        assertEquals(2, subscription.getUserId());
+        assertEquals(COMPLETE, subscriber.next());
+    }
+
+    @Test
+    void publishByStatus_shouldStopEmittingAfterCancel() throws InterruptedException {
+        insertSubscriptions(3);
+        var subscriber = new RecordingSubscriber();
+        subscriptionDao.publishByStatus(Status.ACTIVE).subscribe(subscriber);
+
+        subscriber.subscription.request(1);
+        assertInstanceOf(Subscription.class, subscriber.next());
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(10);
+
+        assertNull(subscriber.signals.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void publishByExpirationBetween_shouldSignalErrorOnNonPositiveRequest() throws InterruptedException {
+        var subscriber = new RecordingSubscriber();
+        subscriptionDao.publishByExpirationBetween(Instant.now(), Instant.now().plusSeconds(60)).subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+
+        assertInstanceOf(IllegalArgumentException.class, subscriber.next());
+    }
+
+    private void insertSubscriptions(int count) {
+        for (int userId = 1; userId <= count; userId++) {
+            subscriptionDao.insert(Subscription.builder()
+                    .userId(userId)
+                    .name("Subscription " + userId)
+                    .provider(Provider.GOOGLE)
+                    .expirationDate(Instant.now().plusSeconds(3600).truncatedTo(ChronoUnit.MILLIS))
+                    .status(Status.ACTIVE)
+                    .build());
+        }
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<Subscription> {
+
+        private final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+        private volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Subscription item) {
+            signals.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            signals.add(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            signals.add(COMPLETE);
+        }
+
+        private Object next() throws InterruptedException {
+            return signals.poll(5, TimeUnit.SECONDS);
+        }
+    }
+}
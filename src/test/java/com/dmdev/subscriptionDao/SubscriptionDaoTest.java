@@ -1,15 +1,23 @@
 package com.dmdev.subscriptionDao;
 
+import com.dmdev.dao.ExpiryCheckpoint;
 import com.dmdev.dao.SubscriptionDao;
 import com.dmdev.entity.Provider;
 import com.dmdev.entity.Status;
 import com.dmdev.entity.Subscription;
 import com.dmdev.integration.IntegrationTestBase;
+import com.dmdev.util.ConnectionManager;
 import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -99,12 +107,284 @@ class SubscriptionDaoTest extends IntegrationTestBase {
         assertTrue(actualResult.stream().anyMatch(s -> s.getName().equals("Subscription 2")));
     }
 
+    @Test
+    void findByIds() {
+        Subscription subscription1 = subscriptionDao.insert(createSubscription(1, "Subscription 1"));
+        Subscription subscription2 = subscriptionDao.insert(createSubscription(2, "Subscription 2"));
+        subscriptionDao.insert(createSubscription(3, "Subscription 3"));
+
+        Map<Integer, Subscription> actualResult = subscriptionDao.findByIds(
+                List.of(subscription1.getId(), subscription2.getId(), subscription1.getId(), -1));
+
+        assertEquals(Map.of(subscription1.getId(), subscription1, subscription2.getId(), subscription2), actualResult);
+    }
+
+    @Test
+    void findByIdsWithMoreKeysThanOneStatement() {
+        Subscription subscription1 = subscriptionDao.insert(createSubscription(1, "Subscription 1"));
+        Subscription subscription2 = subscriptionDao.insert(createSubscription(2, "Subscription 2"));
+        List<Integer> ids = IntStream.rangeClosed(subscription2.getId() - 2_500, subscription2.getId())
+                .boxed()
+                .toList();
+
+        Map<Integer, Subscription> actualResult = subscriptionDao.findByIds(ids);
+
+        assertEquals(Map.of(subscription1.getId(), subscription1, subscription2.getId(), subscription2), actualResult);
+    }
+
+    @Test
+    void findByUserIds() {
+        Subscription subscription1 = subscriptionDao.insert(createSubscription(1, "Subscription 1"));
+        Subscription subscription2 = subscriptionDao.insert(createSubscription(1, "Subscription 2"));
+        Subscription subscription3 = subscriptionDao.insert(createSubscription(2, "Subscription 3"));
+
+        Map<Integer, List<Subscription>> actualResult = subscriptionDao.findByUserIds(List.of(1, 2, 2, 3));
+
+        assertEquals(List.of(1, 2, 3), List.copyOf(actualResult.keySet()));
+        assertEquals(2, actualResult.get(1).size());
+        assertTrue(actualResult.get(1).containsAll(List.of(subscription1, subscription2)));
+        assertEquals(List.of(subscription3), actualResult.get(2));
+        assertTrue(actualResult.get(3).isEmpty());
+    }
+
+    @Test
+    void findByStatusAndExpirationBetween() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Subscription expiringSoon = createSubscription(1, "Subscription 1").setExpirationDate(now.plusSeconds(60));
+        Subscription expiringLater = createSubscription(2, "Subscription 2").setExpirationDate(now.plusSeconds(7200));
+        Subscription canceled = createSubscription(3, "Subscription 3")
+                .setExpirationDate(now.plusSeconds(60))
+                .setStatus(Status.CANCELED);
+        subscriptionDao.insert(expiringSoon);
+        subscriptionDao.insert(expiringLater);
+        subscriptionDao.insert(canceled);
+
+        List<Subscription> actualResult = subscriptionDao.findByStatusAndExpirationBetween(
+                Status.ACTIVE, now, now.plusSeconds(3600));
+
+        assertEquals(List.of(expiringSoon), actualResult);
+    }
+
+    @Test
+    void streamByStatusAndExpirationBetween() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        List<Subscription> expectedResult = insertExpiringSubscriptions(now);
+
+        List<Subscription> actualResult = subscriptionDao.streamByStatusAndExpirationBetween(
+                Status.ACTIVE, now, now.plusSeconds(3600), null, null, 2).toList();
+
+        assertEquals(expectedResult, actualResult);
+    }
+
+    @Test
+    void streamByStatusAndExpirationBetweenWithProvider() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        List<Subscription> expectedResult = insertExpiringSubscriptions(now).stream()
+                .filter(subscription -> subscription.getProvider() == Provider.GOOGLE)
+                .toList();
+
+        List<Subscription> actualResult = subscriptionDao.streamByStatusAndExpirationBetween(
+                Status.ACTIVE, now, now.plusSeconds(3600), Provider.GOOGLE, null, 2).toList();
+
+        assertEquals(expectedResult, actualResult);
+    }
+
+    @Test
+    void streamByStatusAndExpirationBetweenFromCheckpoint() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        List<Subscription> expectedResult = insertExpiringSubscriptions(now);
+        ExpiryCheckpoint checkpoint = subscriptionDao.streamByStatusAndExpirationBetween(
+                        Status.ACTIVE, now, now.plusSeconds(3600), null, null, 2)
+                .limit(2)
+                .reduce((first, second) -> second)
+                .map(ExpiryCheckpoint::of)
+                .orElseThrow();
+
+        List<Subscription> actualResult = subscriptionDao.streamByStatusAndExpirationBetween(
+                Status.ACTIVE, now, now.plusSeconds(3600), null, checkpoint).toList();
+
+        assertEquals(expectedResult.subList(2, expectedResult.size()), actualResult);
+    }
+
+    @Test
+    void streamByStatusAndExpirationBetweenShouldUseIndex() throws Exception {
+        try (var connection = ConnectionManager.get();
+             var statement = connection.createStatement()) {
+            var resultSet = statement.executeQuery("""
+                    EXPLAIN SELECT id FROM subscription
+                    WHERE status = 'ACTIVE'
+                      AND expiration_date >= TIMESTAMP '2030-01-01 00:00:00'
+                      AND (expiration_date > TIMESTAMP '2030-01-01 00:00:00' OR id > 10)
+                      AND expiration_date < TIMESTAMP '2030-02-01 00:00:00'
+                    ORDER BY expiration_date, id
+                    LIMIT 10
+                    """);
+            resultSet.next();
+
+            assertTrue(resultSet.getString(1).contains("SUBSCRIPTION_STATUS_EXPIRATION_IDX"), resultSet.getString(1));
+        }
+    }
+
+    @Test
+    void parallelScan() throws Exception {
+        List<Integer> expectedIds = insertSubscriptions(40);
+        ForkJoinPool pool = newIsolatedPool(4);
+
+        List<Integer> actualResult;
+        try {
+            actualResult = pool.submit(() -> subscriptionDao.parallelScan()
+                    .map(Subscription::getId)
+                    .toList()).get();
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(expectedIds.size(), actualResult.size());
+        assertTrue(actualResult.containsAll(expectedIds));
+    }
+
+    @Test
+    void parallelScanIterator() {
+        List<Integer> expectedIds = insertSubscriptions(3);
+
+        List<Integer> actualResult = new ArrayList<>();
+        subscriptionDao.parallelScan().iterator().forEachRemaining(subscription -> actualResult.add(subscription.getId()));
+
+        assertEquals(expectedIds, actualResult);
+    }
+
+    @Test
+    void scanPartitions() {
+        List<Integer> expectedIds = insertSubscriptions(40);
+        ForkJoinPool pool = newIsolatedPool(4);
+        Map<Integer, List<Integer>> idsByPartition = new ConcurrentHashMap<>();
+
+        try {
+            subscriptionDao.scanPartitions(16, pool, partition -> subscription -> idsByPartition
+                    .computeIfAbsent(partition, key -> new ArrayList<>())
+                    .add(subscription.getId()));
+        } finally {
+            pool.shutdown();
+        }
+
+        assertTrue(idsByPartition.size() <= 4);
+        List<Integer> actualResult = idsByPartition.values().stream().flatMap(List::stream).toList();
+        assertEquals(expectedIds.size(), actualResult.size());
+        assertTrue(actualResult.containsAll(expectedIds));
+    }
+
+    @Test
+    void parallelScanOfEmptyTable() {
+        assertEquals(0, subscriptionDao.parallelScan().count());
+    }
+
+    @Test
+    void archiveTerminal() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Subscription active = subscriptionDao.insert(createSubscription(1, "Subscription 1"));
+        Subscription oldExpired = subscriptionDao.insert(createSubscription(1, "Subscription 2")
+                .setStatus(Status.EXPIRED)
+                .setExpirationDate(now.minusSeconds(7200)));
+        Subscription oldCanceled = subscriptionDao.insert(createSubscription(1, "Subscription 3")
+                .setStatus(Status.CANCELED)
+                .setExpirationDate(now.minusSeconds(7200)));
+        Subscription recentExpired = subscriptionDao.insert(createSubscription(1, "Subscription 4")
+                .setStatus(Status.EXPIRED)
+                .setExpirationDate(now.minusSeconds(60)));
+
+        int firstBatch = subscriptionDao.archiveTerminal(now.minusSeconds(3600), 1, now);
+        int secondBatch = subscriptionDao.archiveTerminal(now.minusSeconds(3600), 1, now);
+        int thirdBatch = subscriptionDao.archiveTerminal(now.minusSeconds(3600), 1, now);
+
+        assertEquals(List.of(1, 1, 0), List.of(firstBatch, secondBatch, thirdBatch));
+        List<Subscription> hot = subscriptionDao.findByUserId(1);
+        assertEquals(2, hot.size());
+        assertTrue(hot.containsAll(List.of(active, recentExpired)));
+        List<Subscription> all = subscriptionDao.findByUserId(1, true);
+        assertEquals(4, all.size());
+        assertTrue(all.containsAll(List.of(active, oldExpired, oldCanceled, recentExpired)));
+        assertEquals(4, subscriptionDao.findAll(true).size());
+        assertTrue(subscriptionDao.findById(oldExpired.getId()).isEmpty());
+        assertEquals(Optional.of(oldExpired), subscriptionDao.findById(oldExpired.getId(), true));
+    }
+
+    @Test
+    void expireIfDue() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Subscription due = subscriptionDao.insert(createSubscription(1, "Subscription 1")
+                .setExpirationDate(now.minusSeconds(60)));
+        Subscription renewed = subscriptionDao.insert(createSubscription(2, "Subscription 2")
+                .setExpirationDate(now.minusSeconds(60)));
+        Subscription canceled = subscriptionDao.insert(createSubscription(3, "Subscription 3")
+                .setExpirationDate(now.minusSeconds(60))
+                .setStatus(Status.CANCELED));
+        subscriptionDao.update(renewed.setExpirationDate(now.plusSeconds(3600)));
+
+        assertTrue(subscriptionDao.expireIfDue(due.getId(), now));
+        assertFalse(subscriptionDao.expireIfDue(due.getId(), now));
+        assertFalse(subscriptionDao.expireIfDue(renewed.getId(), now));
+        assertFalse(subscriptionDao.expireIfDue(canceled.getId(), now));
+        assertEquals(Optional.of(due.setStatus(Status.EXPIRED)), subscriptionDao.findById(due.getId()));
+        assertEquals(Optional.of(renewed), subscriptionDao.findById(renewed.getId()));
+        assertEquals(Optional.of(canceled), subscriptionDao.findById(canceled.getId()));
+    }
+
+    @Test
+    void mapSyntheticRows() {
+        assertEquals(2_500, subscriptionDao.mapSyntheticRows(2_500));
+        assertTrue(subscriptionDao.findAll().isEmpty());
+    }
+
+    @Test
+    void forEachUserId() {
+        subscriptionDao.insert(createSubscription(1, "Subscription 1"));
+        subscriptionDao.insert(createSubscription(1, "Subscription 2"));
+        subscriptionDao.insert(createSubscription(2, "Subscription 3"));
+
+        List<Integer> actualResult = new ArrayList<>();
+        subscriptionDao.forEachUserId(actualResult::add);
+
+        assertEquals(3, actualResult.size());
+        assertTrue(actualResult.containsAll(List.of(1, 2)));
+    }
+
+    /**
+     * Inserts rows around the window {@code [now, now + 1h)}, two of them sharing an
+     * expiration date, and returns the ACTIVE ones inside it in expiry order.
+     */
+    private List<Subscription> insertExpiringSubscriptions(Instant now) {
+        Subscription tiedFirst = createSubscription(1, "Subscription 1").setExpirationDate(now.plusSeconds(600));
+        Subscription earliest = createSubscription(2, "Subscription 2")
+                .setExpirationDate(now.plusSeconds(60))
+                .setProvider(Provider.GOOGLE);
+        Subscription tiedSecond = createSubscription(3, "Subscription 3")
+                .setExpirationDate(now.plusSeconds(600))
+                .setProvider(Provider.GOOGLE);
+        Subscription latest = createSubscription(4, "Subscription 4").setExpirationDate(now.plusSeconds(1200));
+        Subscription canceled = createSubscription(5, "Subscription 5")
+                .setExpirationDate(now.plusSeconds(300))
+                .setStatus(Status.CANCELED);
+        Subscription outsideWindow = createSubscription(6, "Subscription 6").setExpirationDate(now.plusSeconds(7200));
+        for (Subscription subscription : List.of(tiedFirst, earliest, tiedSecond, latest, canceled, outsideWindow)) {
+            subscriptionDao.insert(subscription);
+        }
+        return List.of(earliest, tiedFirst, tiedSecond, latest);
+    }
+
+    private List<Integer> insertSubscriptions(int count) {
+        List<Integer> ids = new ArrayList<>();
+        for (int userId = 1; userId <= count; userId++) {
+            ids.add(subscriptionDao.insert(createSubscription(userId, "Subscription " + userId)).getId());
+        }
+        return ids;
+    }
+
     private Subscription createSubscription(Integer userId, String name) {
         return Subscription.builder()
                 .userId(userId)
                 .name(name)
                 .provider(Provider.APPLE)
-                .expirationDate(Instant.now().plusSeconds(3600))
+                .expirationDate(Instant.now().plusSeconds(3600).truncatedTo(ChronoUnit.MILLIS))
                 .status(Status.ACTIVE)
                 .build();
     }
@@ -115,7 +395,7 @@ class SubscriptionDaoTest extends IntegrationTestBase {
                 .userId(userId)
                 .name("Test Subscription")
                 .provider(Provider.APPLE)
-                .expirationDate(Instant.now().plusSeconds(3600))
+                .expirationDate(Instant.now().plusSeconds(3600).truncatedTo(ChronoUnit.MILLIS))
                 .status(Status.ACTIVE)
                 .build();
     }
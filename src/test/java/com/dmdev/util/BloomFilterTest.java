@@ -0,0 +1,51 @@
+package com.dmdev.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BloomFilterTest {
+
+    @Test
+    void mightContain_shouldNeverReturnFalseNegatives() {
+        var bloomFilter = BloomFilter.create(10_000, 0.01, 1024 * 1024);
+        for (int userId = 0; userId < 10_000; userId++) {
+            bloomFilter.put(userId * 7);
+        }
+
+        for (int userId = 0; userId < 10_000; userId++) {
+            assertThat(bloomFilter.mightContain(userId * 7)).isTrue();
+        }
+    }
+
+    @Test
+    void mightContain_shouldKeepFalsePositiveRateNearConfiguredValue() {
+        var bloomFilter = BloomFilter.create(10_000, 0.01, 1024 * 1024);
+        for (int userId = 0; userId < 10_000; userId++) {
+            bloomFilter.put(userId);
+        }
+
+        int falsePositives = 0;
+        for (int userId = 10_000; userId < 110_000; userId++) {
+            if (bloomFilter.mightContain(userId)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+    }
+
+    @Test
+    void create_shouldCapBitArrayByMemoryBudget() {
+        var bloomFilter = BloomFilter.create(1_000_000, 0.001, 1024);
+
+        assertThat(bloomFilter.getBitCount()).isEqualTo(1024 * 8);
+    }
+
+    @Test
+    void create_shouldRejectInvalidFalsePositiveRate() {
+        assertThatThrownBy(() -> BloomFilter.create(100, 1.5, 1024))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -1,28 +1,50 @@
 package com.dmdev.util;
 
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.SQLException;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mockStatic;
 
+/**
+ * Isolated because {@link ConnectionManager#closeAll()} closes the pools of concurrently
+ * running integration tests too.
+ */
+@Isolated
 class ConnectionManagerTest {
 
     private MockedStatic<PropertiesUtil> propertiesUtilMock;
     private MockedStatic<DriverManager> driverManagerMock;
 
+    @BeforeAll
+    static void initDriver() throws ClassNotFoundException {
+        Class.forName(ConnectionManager.class.getName());
+    }
+
     @BeforeEach
     void setUp() {
         propertiesUtilMock = mockStatic(PropertiesUtil.class);
         driverManagerMock = mockStatic(DriverManager.class);
     }
 
+    @AfterEach
+    void tearDown() {
+        driverManagerMock.close();
+        propertiesUtilMock.close();
+    }
+
     @Test
     void testGetConnection() throws Exception {
         propertiesUtilMock.when(() -> PropertiesUtil.get("db.url")).thenReturn("jdbc:h2:mem:test");
@@ -38,4 +60,46 @@ class ConnectionManagerTest {
         assertNotNull(connection);
         driverManagerMock.verify(() -> DriverManager.getConnection("jdbc:h2:mem:test", "sa", ""), Mockito.times(1));
     }
+
+    @Test
+    void testGetConnectionUsesUrlSupplier() throws Exception {
+        propertiesUtilMock.when(() -> PropertiesUtil.get("db.url")).thenReturn("jdbc:h2:mem:test");
+        propertiesUtilMock.when(() -> PropertiesUtil.get("db.user")).thenReturn("sa");
+        propertiesUtilMock.when(() -> PropertiesUtil.get("db.password")).thenReturn("");
+        driverManagerMock.when(() -> DriverManager.getConnection(anyString(), anyString(), anyString()))
+                .thenReturn(Mockito.mock(Connection.class));
+
+        var previous = ConnectionManager.getUrlSupplier();
+        var testThread = Thread.currentThread();
+        ConnectionManager.setUrlSupplier(() -> Thread.currentThread() == testThread
+                ? "jdbc:h2:mem:isolated"
+                : previous.get());
+        try {
+            ConnectionManager.get();
+        } finally {
+            ConnectionManager.setUrlSupplier(previous);
+        }
+        ConnectionManager.get();
+
+        driverManagerMock.verify(() -> DriverManager.getConnection("jdbc:h2:mem:isolated", "sa", ""), Mockito.times(1));
+        driverManagerMock.verify(() -> DriverManager.getConnection("jdbc:h2:mem:test", "sa", ""), Mockito.times(1));
+    }
+
+    @Test
+    void closeAllClosesAndForgetsEveryPool() throws Exception {
+        propertiesUtilMock.when(() -> PropertiesUtil.get("db.url")).thenReturn("jdbc:h2:mem:test");
+        propertiesUtilMock.when(() -> PropertiesUtil.get("db.user")).thenReturn("sa");
+        propertiesUtilMock.when(() -> PropertiesUtil.get("db.password")).thenReturn("");
+        propertiesUtilMock.when(() -> PropertiesUtil.get("db.pool.size")).thenReturn("2");
+        driverManagerMock.when(() -> DriverManager.getConnection(anyString(), anyString(), anyString()))
+                .thenReturn(Mockito.mock(Connection.class));
+        var pool = ConnectionManager.getPool();
+        ConnectionManager.get().close();
+
+        ConnectionManager.closeAll();
+
+        assertThrows(SQLException.class, pool::getConnection);
+        assertNotSame(pool, ConnectionManager.getPool());
+        ConnectionManager.closeAll();
+    }
 }
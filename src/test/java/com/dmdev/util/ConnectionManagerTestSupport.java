@@ -0,0 +1,38 @@
+package com.dmdev.util;
+
+import lombok.experimental.UtilityClass;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.util.function.Supplier;
+
+/**
+ * Opens {@link ConnectionManager}'s package-private URL seam to tests in other packages.
+ */
+@UtilityClass
+public class ConnectionManagerTestSupport {
+
+    public static Supplier<String> getUrlSupplier() {
+        return ConnectionManager.getUrlSupplier();
+    }
+
+    public static void setUrlSupplier(Supplier<String> urlSupplier) {
+        ConnectionManager.setUrlSupplier(urlSupplier);
+    }
+
+    /**
+     * Closes {@link ConnectionManager}'s pools once the whole test run is over, however many
+     * test classes register it.
+     */
+    public static class ClosePoolsAfterRun implements BeforeAllCallback {
+
+        private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(ClosePoolsAfterRun.class);
+
+        @Override
+        public void beforeAll(ExtensionContext context) {
+            context.getRoot().getStore(NAMESPACE).getOrComputeIfAbsent(ClosePoolsAfterRun.class,
+                    key -> (ExtensionContext.Store.CloseableResource) ConnectionManager::closeAll,
+                    ExtensionContext.Store.CloseableResource.class);
+        }
+    }
+}
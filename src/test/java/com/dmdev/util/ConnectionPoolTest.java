@@ -0,0 +1,194 @@
+package com.dmdev.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConnectionPoolTest {
+
+    private static final AtomicInteger DATABASE_SEQUENCE = new AtomicInteger();
+    private static final String SELECT_SQL = "SELECT label FROM item WHERE id = ?";
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        var url = "jdbc:h2:mem:connection_pool_" + DATABASE_SEQUENCE.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        pool = new ConnectionPool(url, "sa", "", 2, 2);
+        try (var connection = pool.getConnection();
+             var statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE item (id INT AUTO_INCREMENT PRIMARY KEY, label VARCHAR(16))");
+            statement.execute("INSERT INTO item (label) VALUES ('first'), ('second')");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void getConnection_shouldReuseClosedConnection() throws SQLException {
+        pool.getConnection().close();
+        pool.getConnection().close();
+
+        assertThat(pool.getConnectionsOpened()).isEqualTo(1);
+        assertThat(pool.getIdleConnections()).isEqualTo(1);
+    }
+
+    @Test
+    void getConnection_shouldReplaceIdleConnectionThatDied() throws SQLException, InterruptedException {
+        Connection physical;
+        try (var connection = pool.getConnection()) {
+            physical = connection.unwrap(Connection.class);
+        }
+        physical.close();
+        Thread.sleep(600);
+
+        try (var connection = pool.getConnection();
+             var statement = connection.createStatement()) {
+            assertThat(statement.execute("SELECT 1")).isTrue();
+        }
+
+        assertThat(pool.getConnectionsOpened()).isEqualTo(2);
+        assertThat(pool.getConnectionsClosed()).isEqualTo(1);
+    }
+
+    @Test
+    void prefill_shouldOpenIdleConnectionsUpToMaxSize() throws SQLException {
+        assertThat(pool.prefill(5)).isEqualTo(1);
+        assertThat(pool.prefill(5)).isZero();
+
+        assertThat(pool.getIdleConnections()).isEqualTo(2);
+        assertThat(pool.getConnectionsOpened()).isEqualTo(2);
+    }
+
+    @Test
+    void prepareStatement_shouldReuseCachedStatementWithClearedParameters() throws SQLException {
+        PreparedStatement first;
+        try (var connection = pool.getConnection();
+             var preparedStatement = connection.prepareStatement(SELECT_SQL)) {
+            first = preparedStatement.unwrap(PreparedStatement.class);
+            preparedStatement.setInt(1, 1);
+            var resultSet = preparedStatement.executeQuery();
+            assertThat(resultSet.next()).isTrue();
+            assertThat(resultSet.getString(1)).isEqualTo("first");
+        }
+
+        try (var connection = pool.getConnection();
+             var preparedStatement = connection.prepareStatement(SELECT_SQL)) {
+            assertThat(preparedStatement.unwrap(PreparedStatement.class)).isSameAs(first);
+            assertThatThrownBy(preparedStatement::executeQuery).isInstanceOf(SQLException.class);
+        }
+
+        assertThat(pool.getStatementHits()).isEqualTo(1);
+        assertThat(pool.getStatementMisses()).isEqualTo(1);
+        assertThat(pool.getStatementHitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    void prepareStatement_shouldKeySeparatelyByGeneratedKeysMode() throws SQLException {
+        try (var connection = pool.getConnection()) {
+            try (var plain = connection.prepareStatement(SELECT_SQL)) {
+                plain.setInt(1, 1);
+                plain.executeQuery();
+            }
+            try (var withKeys = connection.prepareStatement(SELECT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                withKeys.setInt(1, 1);
+                withKeys.executeQuery();
+            }
+        }
+
+        assertThat(pool.getStatementMisses()).isEqualTo(2);
+        assertThat(pool.getStatementHits()).isZero();
+    }
+
+    @Test
+    void prepareStatement_shouldNotShareStatementThatIsStillOpen() throws SQLException {
+        try (var connection = pool.getConnection();
+             var first = connection.prepareStatement(SELECT_SQL);
+             var second = connection.prepareStatement(SELECT_SQL)) {
+            assertThat(second.unwrap(PreparedStatement.class)).isNotSameAs(first.unwrap(PreparedStatement.class));
+        }
+    }
+
+    @Test
+    void prepareStatement_shouldCloseLeastRecentlyUsedStatementOnEviction() throws SQLException {
+        try (var connection = pool.getConnection()) {
+            PreparedStatement evicted;
+            try (var preparedStatement = connection.prepareStatement(SELECT_SQL)) {
+                evicted = preparedStatement.unwrap(PreparedStatement.class);
+            }
+            connection.prepareStatement("SELECT 1").close();
+            connection.prepareStatement("SELECT 2").close();
+
+            assertThat(evicted.isClosed()).isTrue();
+            assertThat(pool.getStatementEvictions()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void getStatement_shouldReturnPooledProxies_soClosingThemReturnsTheConnection() throws SQLException {
+        var connection = pool.getConnection();
+        var preparedStatement = connection.prepareStatement(SELECT_SQL);
+        preparedStatement.setInt(1, 1);
+        var resultSet = preparedStatement.executeQuery();
+
+        assertThat(resultSet.getStatement()).isSameAs(preparedStatement);
+        assertThat(resultSet.getStatement().getConnection()).isSameAs(connection);
+
+        resultSet.getStatement().getConnection().close();
+
+        assertThat(resultSet.isClosed()).isTrue();
+        assertThat(connection.isClosed()).isTrue();
+        pool.getConnection().close();
+        assertThat(pool.getConnectionsOpened()).isEqualTo(1);
+        assertThat(pool.getConnectionsClosed()).isZero();
+    }
+
+    @Test
+    void close_shouldRollBackOpenTransactionAndCloseResultSets() throws SQLException {
+        var connection = pool.getConnection();
+        connection.setAutoCommit(false);
+        connection.createStatement().executeUpdate("DELETE FROM item");
+        var preparedStatement = connection.prepareStatement(SELECT_SQL);
+        preparedStatement.setInt(1, 1);
+        var resultSet = preparedStatement.executeQuery();
+        connection.close();
+
+        assertThat(resultSet.isClosed()).isTrue();
+        assertThat(connection.isClosed()).isTrue();
+        assertThatThrownBy(connection::createStatement).isInstanceOf(SQLException.class);
+        try (var reused = pool.getConnection();
+             var statement = reused.createStatement()) {
+            assertThat(reused.getAutoCommit()).isTrue();
+            var count = statement.executeQuery("SELECT COUNT(*) FROM item");
+            count.next();
+            assertThat(count.getInt(1)).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void close_shouldClosePhysicalConnectionsAndTheirStatements() throws SQLException {
+        PreparedStatement cached;
+        try (var connection = pool.getConnection();
+             var preparedStatement = connection.prepareStatement(SELECT_SQL)) {
+            cached = preparedStatement.unwrap(PreparedStatement.class);
+        }
+
+        pool.close();
+
+        assertThat(cached.isClosed()).isTrue();
+        assertThat(pool.getConnectionsClosed()).isEqualTo(1);
+        assertThatThrownBy(pool::getConnection).isInstanceOf(SQLException.class);
+    }
+}
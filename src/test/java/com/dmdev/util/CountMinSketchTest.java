@@ -0,0 +1,48 @@
+package com.dmdev.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CountMinSketchTest {
+
+    @Test
+    void estimate_shouldNeverUndercount_andStayWithinErrorBound() {
+        var sketch = new CountMinSketch(1024, 4);
+        int[] counts = new int[5_000];
+        var random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(counts.length);
+            counts[key]++;
+            sketch.add(key, 1);
+        }
+
+        int overLimit = 0;
+        for (int key = 0; key < counts.length; key++) {
+            long estimate = sketch.estimate(key);
+            assertThat(estimate).isGreaterThanOrEqualTo(counts[key]);
+            if (estimate - counts[key] > Math.E / 1024 * 100_000) {
+                overLimit++;
+            }
+        }
+        assertThat(overLimit).isLessThan(counts.length / 20);
+    }
+
+    @Test
+    void clear_shouldResetEstimates() {
+        var sketch = new CountMinSketch(64, 2);
+        sketch.add(1, 10);
+
+        sketch.clear();
+
+        assertThat(sketch.estimate(1)).isZero();
+    }
+
+    @Test
+    void constructor_shouldRejectEmptySketch() {
+        assertThatThrownBy(() -> new CountMinSketch(0, 4)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
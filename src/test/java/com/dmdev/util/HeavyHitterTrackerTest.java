@@ -0,0 +1,79 @@
+package com.dmdev.util;
+
+import com.dmdev.util.HeavyHitterTracker.HeavyHitter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HeavyHitterTrackerTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2030-01-01T00:00:00Z"));
+    private final HeavyHitterTracker<Integer> tracker =
+            new HeavyHitterTracker<>(Duration.ofSeconds(60), 6, 3, 512, 4, clock);
+
+    @Test
+    void getTop_shouldFindHeavyKeysInSkewedStream() {
+        var random = new Random(11);
+        for (int i = 0; i < 50_000; i++) {
+            int roll = random.nextInt(100);
+            int userId = roll < 20 ? 1 : roll < 35 ? 2 : roll < 45 ? 3 : 100 + random.nextInt(100_000);
+            tracker.record(userId);
+        }
+
+        assertThat(tracker.getTop()).extracting(HeavyHitter::getKey).containsExactly(1, 2, 3);
+        assertThat(tracker.getTop().get(0).getCount()).isBetween(9_500L, 11_500L);
+        assertThat(tracker.isHeavyHitter(1)).isTrue();
+        assertThat(tracker.isHeavyHitter(150)).isFalse();
+    }
+
+    @Test
+    void getTop_shouldForgetKeysThatLeftTheWindow() {
+        for (int i = 0; i < 100; i++) {
+            tracker.record(1);
+        }
+        clock.advance(Duration.ofSeconds(30));
+        tracker.record(2);
+
+        assertThat(tracker.estimate(1)).isEqualTo(100);
+
+        clock.advance(Duration.ofSeconds(35));
+
+        assertThat(tracker.estimate(1)).isZero();
+        assertThat(tracker.getTop()).containsExactly(new HeavyHitter<>(2, 1L));
+        assertThat(tracker.isHeavyHitter(1)).isFalse();
+    }
+
+    @Test
+    void record_shouldReplaceWeakestCandidate_whenHeapIsFull() {
+        tracker.record(1);
+        tracker.record(2);
+        tracker.record(3);
+        tracker.record(4);
+        tracker.record(4);
+
+        assertThat(tracker.getTop()).hasSize(3).extracting(HeavyHitter::getKey).first().isEqualTo(4);
+        assertThat(tracker.isHeavyHitter(4)).isTrue();
+    }
+
+    @Test
+    void record_shouldEvictTrueMinimum_afterMembersRaisedTheirCountsInPlace() {
+        tracker.record(1);
+        tracker.record(2);
+        tracker.record(3);
+        for (int i = 0; i < 5; i++) {
+            tracker.record(1);
+            tracker.record(2);
+        }
+
+        tracker.record(4);
+        tracker.record(4);
+
+        assertThat(tracker.getTop()).extracting(HeavyHitter::getKey).containsExactlyInAnyOrder(1, 2, 4);
+        assertThat(tracker.getTop().get(0).getCount()).isEqualTo(6);
+        assertThat(tracker.isHeavyHitter(3)).isFalse();
+    }
+}
@@ -0,0 +1,44 @@
+package com.dmdev.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StringInternerTest {
+
+    @Test
+    void intern_shouldReturnPooledInstanceForEqualStrings() {
+        var interner = new StringInterner(10);
+        var first = new String("premium".toCharArray());
+        var second = new String("premium".toCharArray());
+
+        assertThat(interner.intern(first)).isSameAs(first);
+        assertThat(interner.intern(second)).isSameAs(first);
+        assertThat(interner.getHits()).isEqualTo(1);
+        assertThat(interner.getMisses()).isEqualTo(1);
+        assertThat(interner.getHitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    void intern_shouldStopPoolingAtMaxSize() {
+        var interner = new StringInterner(2);
+        interner.intern("premium");
+        interner.intern("family");
+        var student = new String("student".toCharArray());
+
+        assertThat(interner.intern(student)).isSameAs(student);
+        assertThat(interner.intern(new String("student".toCharArray()))).isNotSameAs(student);
+        assertThat(interner.size()).isEqualTo(2);
+    }
+
+    @Test
+    void intern_shouldPassNullThrough() {
+        assertThat(new StringInterner(1).intern(null)).isNull();
+    }
+
+    @Test
+    void constructor_shouldRejectNonPositiveMaxSize() {
+        assertThatThrownBy(() -> new StringInterner(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -35,6 +35,22 @@ class CreateSubscriptionValidatorTest {
         assertThat(result.hasErrors()).isFalse();
     }
 
+    @Test
+    void validate_shouldReturnSharedValidResult_whenAllFieldsAreValid() {
+        Instant now = Instant.parse("2030-01-01T00:00:00Z");
+        CreateSubscriptionDto dto = CreateSubscriptionDto.builder()
+                .userId(1)
+                .name("YouTube Premium")
+                .provider("google")
+                .expirationDate(now)
+                .build();
+
+        assertThat(validator.validate(dto, now)).isSameAs(ValidationResult.VALID);
+        assertThat(validator.validate(dto, now.plusMillis(1)).getErrors())
+                .extracting(Error::getCode)
+                .containsExactly(103);
+    }
+
     @ParameterizedTest
     @MethodSource("invalidDtoProvider")
     void validate_shouldFailValidation_whenFieldsAreInvalid(CreateSubscriptionDto dto, int expectedErrorCode) {